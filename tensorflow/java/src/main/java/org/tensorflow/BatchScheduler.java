@@ -0,0 +1,609 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups the concurrent executions of a {@link Session} into batches.
+ *
+ * <p>A server typically receives many independent requests, each feeding a small batch (often of a
+ * single example) to the same model. A {@code BatchScheduler} queues the inputs of these requests,
+ * concatenates them along their first dimension into a single tensor per feed, executes the session
+ * once for the whole batch and splits the fetched tensors back between the requests. For example:
+ *
+ * <pre>{@code
+ * try (SavedModelBundle model = SavedModelBundle.load(exportDir, "serve");
+ *     BatchScheduler scheduler =
+ *         BatchScheduler.options()
+ *             .feed("x")
+ *             .fetch("y")
+ *             .maxBatchSize(32)
+ *             .batchTimeout(2, TimeUnit.MILLISECONDS)
+ *             .build(model.session())) {
+ *   // From any request thread:
+ *   try (Tensor<Float> x = Tensor.create(features, Float.class)) {
+ *     List<Tensor<?>> y = scheduler.submit(x).get();
+ *     // ...
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>A batch is executed as soon as it holds {@link Options#maxBatchSize(int)} examples, or when
+ * its oldest request has been waiting for {@link Options#batchTimeout(long, TimeUnit)}, whichever
+ * comes first. Requests whose inputs cannot be concatenated with the current batch (e.g. because
+ * their trailing dimensions differ) are deferred to the next one.
+ *
+ * <p>The first dimension of all feeds and fetches must be the batch dimension. {@link
+ * DataType#STRING} tensors are not supported.
+ *
+ * <p><b>WARNING:</b> A {@code BatchScheduler} owns a thread and native resources that <b>must</b>
+ * be explicitly freed by invoking {@link #close()}. Closing the scheduler does not close the
+ * session it executes.
+ *
+ * <p>Instances of a BatchScheduler are thread-safe.
+ */
+public final class BatchScheduler implements AutoCloseable {
+
+  public static class Options {
+
+    /**
+     * Adds an operation to feed with the inputs of each request.
+     *
+     * <p>Inputs are passed to {@link BatchScheduler#submit(Tensor[])} in the order in which their
+     * operations were added.
+     *
+     * @param operation the name of the operation, with an optional output index (e.g. "x:0")
+     */
+    public Options feed(String operation) {
+      feeds.add(operation);
+      return this;
+    }
+
+    /**
+     * Adds an operation to fetch for each request.
+     *
+     * <p>Outputs are returned to each request in the order in which their operations were added.
+     *
+     * @param operation the name of the operation, with an optional output index (e.g. "y:0")
+     */
+    public Options fetch(String operation) {
+      fetches.add(operation);
+      return this;
+    }
+
+    /**
+     * Maximum number of examples, i.e. the sum of the first dimension of the inputs of all
+     * requests, executed in a single batch.
+     *
+     * <p>A request larger than this value is executed alone. Batches are limited to 32 examples by
+     * default.
+     *
+     * @param value maximum number of examples per batch
+     */
+    public Options maxBatchSize(int value) {
+      if (value < 1) {
+        throw new IllegalArgumentException("maxBatchSize must be positive");
+      }
+      maxBatchSize = value;
+      return this;
+    }
+
+    /**
+     * Maximum time a request waits for other requests to join its batch before being executed.
+     *
+     * <p>Requests wait up to 1 millisecond by default.
+     *
+     * @param timeout maximum waiting time, 0 to execute the requests already queued immediately
+     * @param unit unit of {@code timeout}
+     */
+    public Options batchTimeout(long timeout, TimeUnit unit) {
+      if (timeout < 0) {
+        throw new IllegalArgumentException("batchTimeout cannot be negative");
+      }
+      batchTimeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
+    /**
+     * Builds a scheduler executing batches on {@code session} with the selected options.
+     *
+     * @throws IllegalArgumentException if no feed or no fetch has been added, or if one of them
+     *     does not exist in the graph of the session
+     */
+    public BatchScheduler build(Session session) {
+      if (feeds.isEmpty() || fetches.isEmpty()) {
+        throw new IllegalArgumentException("a BatchScheduler requires at least one feed and fetch");
+      }
+      return new BatchScheduler(session, this);
+    }
+
+    private final List<String> feeds = new ArrayList<>();
+    private final List<String> fetches = new ArrayList<>();
+    private int maxBatchSize;
+    private long batchTimeoutNanos;
+
+    private Options() {
+      maxBatchSize = 32;
+      batchTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(1);
+    }
+  }
+
+  /** Returns an object that configures and builds a {@code BatchScheduler}. */
+  public static BatchScheduler.Options options() {
+    return new Options();
+  }
+
+  /**
+   * Queues a request for execution in the next batch.
+   *
+   * <p>The input tensors remain owned by the caller, who must not close them before the returned
+   * future is done. The caller assumes ownership of the tensors returned by the future, i.e., the
+   * caller must call {@link Tensor#close} on all of them to free up resources.
+   *
+   * <p>If the batch fails, the future completes with the exception raised by the session. Cancelling
+   * a request that is still queued removes it from the queue. Once a request has been collected in
+   * a batch, its inputs are read until the batch has been executed: cancelling it then only takes
+   * effect when the batch completes, and the future is not done before that.
+   *
+   * @param inputs values to feed, in the order in which their operations were added to the {@link
+   *     Options}, all with the same first dimension
+   * @return a future of the fetched values, in the order in which their operations were added to
+   *     the {@link Options}
+   * @throws IllegalArgumentException if the inputs do not match the feeds of this scheduler
+   * @throws IllegalStateException if this scheduler has been closed
+   */
+  public Future<List<Tensor<?>>> submit(Tensor<?>... inputs) {
+    if (inputs.length != numFeeds) {
+      throw new IllegalArgumentException(
+          "expected " + numFeeds + " input Tensors, got " + inputs.length);
+    }
+    long batchSize = -1;
+    for (Tensor<?> t : inputs) {
+      if (t.dataType() == DataType.STRING) {
+        throw new IllegalArgumentException("STRING tensors cannot be batched");
+      }
+      if (t.numDimensions() == 0) {
+        throw new IllegalArgumentException("scalars cannot be batched");
+      }
+      long n = t.shape()[0];
+      if (batchSize >= 0 && n != batchSize) {
+        throw new IllegalArgumentException(
+            "all inputs must have the same first dimension, got " + batchSize + " and " + n);
+      }
+      batchSize = n;
+    }
+    Request request = new Request(inputs, batchSize);
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("submit() cannot be called after close()");
+      }
+      if (stopped) {
+        throw new IllegalStateException("The batch scheduler stopped after an error");
+      }
+      queue.add(request);
+    }
+    return request.result;
+  }
+
+  /** Returns the number of requests waiting for a batch. */
+  public int queueDepth() {
+    return queue.size();
+  }
+
+  /** Returns the number of batches executed by this scheduler. */
+  public synchronized long batchCount() {
+    return batchCount;
+  }
+
+  /** Returns the number of requests executed by this scheduler. */
+  public synchronized long requestCount() {
+    return requestCount;
+  }
+
+  /**
+   * Returns the distribution of the size of the batches executed by this scheduler.
+   *
+   * <p>Element {@code i} of the returned array is the number of batches of {@code i} examples.
+   * Batches larger than {@link Options#maxBatchSize(int)}, made of a single oversized request, are
+   * counted in the last element.
+   */
+  public synchronized long[] batchSizeHistogram() {
+    return Arrays.copyOf(batchSizeHistogram, batchSizeHistogram.length);
+  }
+
+  /** Returns the mean time, in nanoseconds, requests waited in the queue before execution. */
+  public synchronized long meanQueueLatencyNanos() {
+    return requestCount > 0 ? totalQueueNanos / requestCount : 0;
+  }
+
+  /** Returns the longest time, in nanoseconds, a request waited in the queue before execution. */
+  public synchronized long maxQueueLatencyNanos() {
+    return maxQueueNanos;
+  }
+
+  /** Returns the mean time, in nanoseconds, spent executing a batch. */
+  public synchronized long meanRunLatencyNanos() {
+    return batchCount > 0 ? totalRunNanos / batchCount : 0;
+  }
+
+  /**
+   * Stops accepting requests and releases the resources of this scheduler.
+   *
+   * <p>Blocks until all the requests already submitted have been executed.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      queue.add(END_OF_QUEUE);
+    }
+    try {
+      worker.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // Possible leak of the callable in this case?
+      return;
+    }
+    callable.close();
+  }
+
+  // The result of a request. Once the request has been collected in a batch, its cancellation is
+  // deferred until the batch completes, as the batch still reads its inputs.
+  private static final class Result extends FutureTask<List<Tensor<?>>> {
+
+    @Override
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+      if (!collected) {
+        return super.cancel(false);
+      }
+      if (isDone()) {
+        return false;
+      }
+      cancelRequested = true;
+      return true;
+    }
+
+    // Marks the request as read by a batch, returns false if it has been cancelled.
+    synchronized boolean collect() {
+      if (isCancelled()) {
+        return false;
+      }
+      collected = true;
+      return true;
+    }
+
+    // Returns the request to the queue, cancelling it if it has been cancelled while collected.
+    synchronized void release() {
+      if (cancelRequested) {
+        super.cancel(false);
+      }
+      collected = false;
+    }
+
+    // Completes the request with its outputs, returns false if it has been cancelled meanwhile.
+    synchronized boolean complete(List<Tensor<?>> outputs) {
+      if (cancelRequested) {
+        super.cancel(false);
+        return false;
+      }
+      set(outputs);
+      return true;
+    }
+
+    synchronized void fail(Throwable t) {
+      if (cancelRequested) {
+        super.cancel(false);
+      } else {
+        setException(t);
+      }
+    }
+
+    private boolean collected = false;
+    private boolean cancelRequested = false;
+
+    private Result() {
+      super(NO_TASK, null);
+    }
+  }
+
+  private static final class Request {
+
+    private final Tensor<?>[] inputs;
+    private final long batchSize;
+    private final long submitNanos = System.nanoTime();
+    private final Result result = new Result();
+
+    private Request(Tensor<?>[] inputs, long batchSize) {
+      this.inputs = inputs;
+      this.batchSize = batchSize;
+    }
+  }
+
+  // The result of a request is only completed by the scheduler, never by running its task.
+  private static final Runnable NO_TASK =
+      new Runnable() {
+        @Override
+        public void run() {}
+      };
+
+  private static final Request END_OF_QUEUE = new Request(new Tensor<?>[0], 0);
+
+  private final Session.Callable callable;
+  private final int numFeeds;
+  private final long maxBatchSize;
+  private final long batchTimeoutNanos;
+  private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+  private final Thread worker;
+  private Request deferred = null; // only accessed by the worker
+  private boolean closed = false;
+  private boolean stopped = false; // set once the worker has exited
+
+  private long batchCount = 0;
+  private long requestCount = 0;
+  private final long[] batchSizeHistogram;
+  private long totalQueueNanos = 0;
+  private long maxQueueNanos = 0;
+  private long totalRunNanos = 0;
+
+  private BatchScheduler(Session session, Options options) {
+    Session.Runner runner = session.runner();
+    for (String fetch : options.fetches) {
+      runner.fetch(fetch);
+    }
+    callable = runner.makeCallable(options.feeds.toArray(new String[options.feeds.size()]));
+    numFeeds = options.feeds.size();
+    maxBatchSize = options.maxBatchSize;
+    batchTimeoutNanos = options.batchTimeoutNanos;
+    batchSizeHistogram = new long[options.maxBatchSize + 1];
+    worker =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                processBatches();
+              }
+            },
+            "tensorflow-batch-scheduler");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  private void processBatches() {
+    Throwable failure = null;
+    try {
+      List<Request> batch;
+      while ((batch = nextBatch()) != null) {
+        runBatch(batch);
+      }
+    } catch (InterruptedException e) {
+      failure = e;
+    } catch (Throwable e) {
+      failure = e;
+      throw e;
+    } finally {
+      failQueuedRequests(failure);
+    }
+  }
+
+  // Completes exceptionally the requests that the worker will never execute, once it stopped.
+  private void failQueuedRequests(Throwable cause) {
+    synchronized (this) {
+      stopped = true;
+    }
+    Request r = deferred;
+    deferred = null;
+    while (r != null || (r = queue.poll()) != null) {
+      if (r != END_OF_QUEUE) {
+        r.result.fail(
+            new IllegalStateException(
+                "The batch scheduler stopped before executing the request", cause));
+      }
+      r = null;
+    }
+  }
+
+  // Waits for the first pending request and collects other requests until the batch is full or
+  // until the first request times out. Returns null once the end of the queue is reached.
+  private List<Request> nextBatch() throws InterruptedException {
+    Request first;
+    do {
+      first = deferred != null ? deferred : queue.take();
+      deferred = null;
+      if (first == END_OF_QUEUE) {
+        return null;
+      }
+    } while (!first.result.collect());
+
+    List<Request> batch = new ArrayList<>();
+    batch.add(first);
+    long batchSize = first.batchSize;
+    long deadline = first.submitNanos + batchTimeoutNanos;
+    while (batchSize < maxBatchSize) {
+      long remainingNanos = deadline - System.nanoTime();
+      Request next =
+          remainingNanos > 0
+              ? queue.poll(remainingNanos, TimeUnit.NANOSECONDS)
+              : queue.poll(); // still take the requests that are already queued
+      if (next == null) {
+        break;
+      }
+      if (next == END_OF_QUEUE) {
+        deferred = next;
+        break;
+      }
+      if (!next.result.collect()) {
+        continue;
+      }
+      if (batchSize + next.batchSize > maxBatchSize || !canConcatenate(first, next)) {
+        next.result.release();
+        deferred = next;
+        break;
+      }
+      batch.add(next);
+      batchSize += next.batchSize;
+    }
+    return batch;
+  }
+
+  private void runBatch(List<Request> batch) {
+    long startNanos = System.nanoTime();
+    long batchSize = 0;
+    for (Request r : batch) {
+      batchSize += r.batchSize;
+    }
+    Tensor<?>[] inputs = new Tensor<?>[numFeeds];
+    List<Tensor<?>> outputs = Collections.emptyList();
+    try {
+      for (int i = 0; i < numFeeds; ++i) {
+        inputs[i] = batch.size() > 1 ? concatenate(batch, i, batchSize) : batch.get(0).inputs[i];
+      }
+      outputs = callable.call(inputs);
+      split(outputs, batch, batchSize);
+    } catch (Throwable e) {
+      for (Request r : batch) {
+        r.result.fail(e); // ignored by the requests that already have their outputs
+      }
+      if (e instanceof Error) {
+        throw (Error) e; // stops the worker, which fails the requests still queued
+      }
+    } finally {
+      if (batch.size() > 1) {
+        for (Tensor<?> t : inputs) {
+          if (t != null) {
+            t.close();
+          }
+        }
+      }
+      for (Tensor<?> t : outputs) {
+        t.close();
+      }
+    }
+    recordBatch(batch, batchSize, startNanos, System.nanoTime());
+  }
+
+  private static boolean canConcatenate(Request first, Request next) {
+    for (int i = 0; i < first.inputs.length; ++i) {
+      Tensor<?> a = first.inputs[i];
+      Tensor<?> b = next.inputs[i];
+      if (a.dataType() != b.dataType()) {
+        return false;
+      }
+      long[] aShape = a.shape();
+      long[] bShape = b.shape();
+      if (aShape.length != bShape.length) {
+        return false;
+      }
+      for (int j = 1; j < aShape.length; ++j) {
+        if (aShape[j] != bShape[j]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  // Concatenates the index-th input of all requests along the first dimension, copying them
+  // directly into the memory of the batch tensor.
+  private static Tensor<?> concatenate(List<Request> batch, int index, long batchSize) {
+    Tensor<?> first = batch.get(0).inputs[index];
+    long[] shape = first.shape();
+    shape[0] = batchSize;
+    Tensor<?> t = Tensor.allocateUninitialized(first.dataType(), shape);
+    try {
+      ByteBuffer dst = t.buffer();
+      for (Request r : batch) {
+        r.inputs[index].writeTo(dst);
+      }
+    } catch (RuntimeException e) {
+      t.close();
+      throw e;
+    }
+    return t;
+  }
+
+  // Slices the outputs of a batch along their first dimension and completes the requests with their
+  // share of them.
+  private static void split(List<Tensor<?>> outputs, List<Request> batch, long batchSize) {
+    long[] rowBytes = new long[outputs.size()];
+    for (int i = 0; i < outputs.size(); ++i) {
+      Tensor<?> o = outputs.get(i);
+      if (o.dataType() == DataType.STRING) {
+        throw new IllegalStateException("fetch " + i + " is a STRING tensor, which cannot be split");
+      }
+      if (o.numDimensions() == 0 || o.shape()[0] != batchSize) {
+        throw new IllegalStateException(
+            "fetch " + i + " of shape " + Arrays.toString(o.shape())
+                + " does not have the batch size " + batchSize + " as its first dimension");
+      }
+      // All requests of a batch may be empty.
+      rowBytes[i] = batchSize > 0 ? o.numBytes() / batchSize : 0;
+    }
+    ByteBuffer[] srcs = new ByteBuffer[outputs.size()];
+    for (int i = 0; i < srcs.length; ++i) {
+      srcs[i] = outputs.get(i).buffer();
+    }
+    for (Request r : batch) {
+      List<Tensor<?>> results = new ArrayList<>(outputs.size());
+      try {
+        for (int i = 0; i < srcs.length; ++i) {
+          Tensor<?> o = outputs.get(i);
+          long[] shape = o.shape();
+          shape[0] = r.batchSize;
+          int numBytes = (int) (rowBytes[i] * r.batchSize);
+          ByteBuffer src = srcs[i];
+          src.limit(src.position() + numBytes);
+          results.add(Tensor.create(o.dataType(), shape, src, null));
+        }
+      } catch (RuntimeException e) {
+        for (Tensor<?> t : results) {
+          t.close();
+        }
+        throw e;
+      }
+      if (!r.result.complete(results)) {
+        // The request has been cancelled while the batch was executed, nobody will release them.
+        for (Tensor<?> t : results) {
+          t.close();
+        }
+      }
+    }
+  }
+
+  private synchronized void recordBatch(
+      List<Request> batch, long batchSize, long startNanos, long endNanos) {
+    ++batchCount;
+    requestCount += batch.size();
+    ++batchSizeHistogram[(int) Math.min(batchSize, batchSizeHistogram.length - 1)];
+    for (Request r : batch) {
+      long queueNanos = startNanos - r.submitNanos;
+      totalQueueNanos += queueNanos;
+      maxQueueNanos = Math.max(maxQueueNanos, queueNanos);
+    }
+    totalRunNanos += endNanos - startNanos;
+  }
+}
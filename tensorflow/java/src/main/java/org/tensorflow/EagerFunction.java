@@ -0,0 +1,213 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A function traced into a graph once, then executed in an {@link EagerSession} as a single
+ * operation.
+ *
+ * <p>Each operation built in an {@link EagerSession} is dispatched individually to the runtime, so
+ * code executing many small operations spends most of its time in dispatching them. The first time
+ * an {@code EagerFunction} is called with inputs of given data types and shapes, it instead records
+ * the operations of its body in a {@link Graph} and registers this graph as a function of the
+ * session. This and all subsequent calls with inputs of the same data types and shapes then
+ * execute the whole function in a single dispatch.
+ *
+ * <p>Example usage (prior to Java 8):
+ *
+ * <pre>{@code
+ * EagerFunction square = EagerFunction.create(session, "Square", new EagerFunction.Body() {
+ *   @Override
+ *   public Output<?>[] build(ExecutionEnvironment env, Output<?>[] inputs) {
+ *     Operation mul = env.opBuilder("Mul", "Mul").addInput(inputs[0]).addInput(inputs[0]).build();
+ *     return new Output<?>[] {mul.output(0)};
+ *   }
+ * });
+ * Output<?> y = square.call(x)[0];
+ * }</pre>
+ *
+ * <p>Example usage (after Java 8):
+ *
+ * <pre>{@code
+ * EagerFunction square = EagerFunction.create(session, "Square", (env, inputs) -> ...);
+ * }</pre>
+ *
+ * <p>As the body is only invoked when the function is traced, it must build the same operations for
+ * all inputs of the same data types and shapes. {@link #traceCount()} can be compared to {@link
+ * #callCount()} to detect functions that are retraced too often, e.g. when called with inputs of
+ * many different shapes.
+ *
+ * <p>Instances of this class are thread-safe.
+ */
+public final class EagerFunction {
+
+  /** Builds the operations of an {@link EagerFunction}. */
+  public interface Body {
+    /**
+     * To be overridden by user with code to build the operations of the function.
+     *
+     * @param env the environment in which the operations are traced
+     * @param inputs placeholders of the inputs of the function, of their data types and shapes
+     * @return the outputs of the function, built in {@code env}
+     */
+    public Output<?>[] build(ExecutionEnvironment env, Output<?>[] inputs);
+  }
+
+  /**
+   * Creates a function executed in a session.
+   *
+   * @param session the session executing the function
+   * @param name the name of the function, used as a prefix of the functions registered in the
+   *     session and as the name of the operations executing them
+   * @param body the builder of the operations of the function
+   */
+  public static EagerFunction create(EagerSession session, String name, Body body) {
+    return new EagerFunction(session, name, body);
+  }
+
+  /**
+   * Executes the function, tracing it first if it has not been called yet with inputs of the same
+   * data types and shapes.
+   *
+   * @param inputs the inputs of the function, executed in the session of the function
+   * @return the outputs of the function
+   * @throws IllegalArgumentException if the body returns outputs that are not built in the
+   *     environment it received
+   */
+  public Output<?>[] call(Operand<?>... inputs) {
+    Output<?>[] inputOutputs = new Output<?>[inputs.length];
+    StringBuilder signature = new StringBuilder();
+    for (int i = 0; i < inputs.length; ++i) {
+      inputOutputs[i] = inputs[i].asOutput();
+      signature.append(inputOutputs[i].dataType()).append(inputOutputs[i].shape());
+    }
+    String functionName;
+    synchronized (this) {
+      ++callCount;
+      functionName = functionNames.get(signature.toString());
+      if (functionName == null) {
+        functionName = trace(inputOutputs);
+        functionNames.put(signature.toString(), functionName);
+        ++traceCount;
+      }
+    }
+    OperationBuilder builder = session.opBuilder(functionName, name);
+    for (Output<?> input : inputOutputs) {
+      builder.addInput(input);
+    }
+    Operation operation = builder.build();
+    Output<?>[] outputs = new Output<?>[operation.numOutputs()];
+    for (int i = 0; i < outputs.length; ++i) {
+      outputs[i] = operation.output(i);
+    }
+    return outputs;
+  }
+
+  /** Returns the number of times the function has been called. */
+  public synchronized long callCount() {
+    return callCount;
+  }
+
+  /**
+   * Returns the number of times the function has been traced, i.e. the number of distinct data
+   * types and shapes of the inputs it has been called with.
+   */
+  public synchronized long traceCount() {
+    return traceCount;
+  }
+
+  private EagerFunction(EagerSession session, String name, Body body) {
+    this.session = session;
+    this.name = name;
+    this.body = body;
+  }
+
+  private String trace(Output<?>[] inputs) {
+    // Function names must be unique within a session, across all functions and their traces.
+    String functionName = name + "_" + nextFunctionId.getAndIncrement();
+    try (Graph graph = new Graph()) {
+      Output<?>[] placeholders = new Output<?>[inputs.length];
+      for (int i = 0; i < inputs.length; ++i) {
+        placeholders[i] =
+            graph
+                .opBuilder("Placeholder", "input_" + i)
+                .setAttr("dtype", inputs[i].dataType())
+                .setAttr("shape", inputs[i].shape())
+                .build()
+                .output(0);
+      }
+      Output<?>[] outputs = body.build(graph, placeholders);
+      for (Output<?> output : outputs) {
+        if (!output.op().equals(graph.operation(output.op().name()))) {
+          throw new IllegalArgumentException(
+              "Output " + output + " of function " + name + " was not built in its graph");
+        }
+      }
+      long[] inputHandles = new long[placeholders.length];
+      int[] inputIndices = new int[placeholders.length];
+      long[] outputHandles = new long[outputs.length];
+      int[] outputIndices = new int[outputs.length];
+      try (Graph.Reference ref = graph.ref()) {
+        for (int i = 0; i < placeholders.length; ++i) {
+          inputHandles[i] = placeholders[i].getUnsafeNativeHandle();
+          inputIndices[i] = placeholders[i].index();
+        }
+        for (int i = 0; i < outputs.length; ++i) {
+          outputHandles[i] = outputs[i].getUnsafeNativeHandle();
+          outputIndices[i] = outputs[i].index();
+        }
+        register(
+            session.nativeHandle(),
+            ref.nativeHandle(),
+            functionName,
+            inputHandles,
+            inputIndices,
+            outputHandles,
+            outputIndices);
+      }
+    }
+    return functionName;
+  }
+
+  private static final AtomicLong nextFunctionId = new AtomicLong();
+
+  private final EagerSession session;
+  private final String name;
+  private final Body body;
+
+  // Names of the functions registered in the session, by data types and shapes of their inputs.
+  private final Map<String, String> functionNames = new HashMap<>();
+
+  private long callCount;
+  private long traceCount;
+
+  private static native void register(
+      long contextHandle,
+      long graphHandle,
+      String functionName,
+      long[] inputOpHandles,
+      int[] inputOpIndices,
+      long[] outputOpHandles,
+      int[] outputOpIndices);
+
+  static {
+    TensorFlow.init();
+  }
+}
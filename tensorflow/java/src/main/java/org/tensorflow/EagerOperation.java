@@ -15,6 +15,7 @@ limitations under the License.
 
 package org.tensorflow;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
@@ -79,12 +80,7 @@ class EagerOperation extends AbstractOperation {
     if (tensor != null) {
       return tensor.shape();
     }
-    long outputNativeHandle = getUnsafeNativeHandle(outputIndex);
-    long[] shape = new long[numDims(outputNativeHandle)];
-    for (int i = 0; i < shape.length; ++i) {
-      shape[i] = dim(outputNativeHandle, i);
-    }
-    return shape;
+    return shape(getUnsafeNativeHandle(outputIndex));
   }
 
   @Override
@@ -108,6 +104,45 @@ class EagerOperation extends AbstractOperation {
     return tensor;
   }
 
+  /**
+   * Resolves the tensors of outputs of eager operations that have not been resolved yet, in a
+   * single native call.
+   *
+   * <p>In an asynchronous session, this waits until the operations producing these tensors have
+   * completed.
+   */
+  static void resolveTensors(Output<?>[] outputs) {
+    EagerOperation[] operations = new EagerOperation[outputs.length];
+    int[] outputIndices = new int[outputs.length];
+    long[] outputNativeHandles = new long[outputs.length];
+    int count = 0;
+    for (Output<?> output : outputs) {
+      EagerOperation operation = (EagerOperation) output.op();
+      if (operation.outputTensors.get(output.index()) == null) {
+        operations[count] = operation;
+        outputIndices[count] = output.index();
+        outputNativeHandles[count] = operation.getUnsafeNativeHandle(output.index());
+        ++count;
+      }
+    }
+    if (count == 0) {
+      return;
+    }
+    long[] tensorNativeHandles =
+        resolveTensorHandles(Arrays.copyOf(outputNativeHandles, count));
+    for (int i = 0; i < count; ++i) {
+      Tensor<?> tensor = Tensor.fromHandle(tensorNativeHandles[i], operations[i].session);
+      // Another thread, or a duplicate output, may have resolved this tensor meanwhile.
+      if (!operations[i].outputTensors.compareAndSet(outputIndices[i], null, tensor)) {
+        tensor.close();
+      }
+    }
+  }
+
+  EagerSession session() {
+    return session;
+  }
+
   private final EagerSession session;
   private final NativeReference nativeRef;
   private final String type;
@@ -160,13 +195,13 @@ class EagerOperation extends AbstractOperation {
 
   private static native long resolveTensorHandle(long handle);
 
+  private static native long[] resolveTensorHandles(long[] handles);
+
   private static native int outputListLength(long handle, String name);
 
   private static native int inputListLength(long handle, String name);
 
   private static native int dataType(long handle);
 
-  private static native int numDims(long handle);
-
-  private static native long dim(long handle, int index);
+  private static native long[] shape(long handle);
 }
@@ -24,10 +24,26 @@ import java.nio.charset.StandardCharsets;
 final class EagerOperationBuilder implements OperationBuilder {
 
   EagerOperationBuilder(EagerSession session, String type, String name) {
+    this(session, type, name, allocate(session.nativeHandle(), type));
+  }
+
+  /**
+   * Creates a builder of an operation of the same type as {@code template}, with all the attributes
+   * and the device already set on {@code template}.
+   */
+  EagerOperationBuilder(EagerSession session, String name, EagerOperationBuilder template) {
+    this(
+        session,
+        template.type,
+        name,
+        allocateFromTemplate(session.nativeHandle(), template.type, template.nativeRef.opHandle));
+  }
+
+  private EagerOperationBuilder(EagerSession session, String type, String name, long opHandle) {
     this.session = session;
     this.type = type;
     this.name = name;
-    this.nativeRef = new NativeReference(session, this, allocate(session.nativeHandle(), type));
+    this.nativeRef = new NativeReference(session, this, opHandle);
   }
 
   @Override
@@ -219,6 +235,9 @@ final class EagerOperationBuilder implements OperationBuilder {
 
   private static native long allocate(long ctxHandle, String type);
 
+  private static native long allocateFromTemplate(
+      long ctxHandle, String type, long templateOpHandle);
+
   private static native void delete(long opHandle);
 
   private static native long[] execute(long opHandle);
@@ -0,0 +1,159 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+/**
+ * A template of operations of the same type executed in an {@link EagerSession}, whose attributes
+ * are set once.
+ *
+ * <p>Each operation built in an {@link EagerSession} allocates a native operation and sets each of
+ * its attributes in a separate native call. Operations built from a template instead receive all
+ * the attributes of the template in a single native call, which reduces the dispatch overhead of
+ * operations built repeatedly with the same attributes, e.g. in a loop:
+ *
+ * <pre>{@code
+ * EagerOperationTemplate toFloat =
+ *     session.opTemplate("Cast").setAttr("SrcT", DataType.INT32).setAttr("DstT", DataType.FLOAT);
+ * for (Output<?> x : inputs) {
+ *   outputs.add(toFloat.opBuilder("ToFloat").addInput(x).build().output(0));
+ * }
+ * }</pre>
+ *
+ * <p>The inputs and the attributes that vary from one operation to the next are set on the builder
+ * returned by {@link #opBuilder(String)}. Attributes set on the template after an operation has
+ * been built only apply to the operations built afterwards.
+ *
+ * <p>Instances of this class are thread-safe.
+ */
+public final class EagerOperationTemplate {
+
+  /**
+   * Returns a builder of an operation of the type of this template, with all the attributes and
+   * the device of the template already set.
+   *
+   * @param name unique name for the operation
+   */
+  public synchronized OperationBuilder opBuilder(String name) {
+    return session.opBuilder(name, attributes);
+  }
+
+  /** Returns the type of the operations built from this template. */
+  public String type() {
+    return type;
+  }
+
+  /** See {@link OperationBuilder#setDevice(String)}. */
+  public synchronized EagerOperationTemplate setDevice(String device) {
+    attributes.setDevice(device);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, String)}. */
+  public synchronized EagerOperationTemplate setAttr(String name, String value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, String[])}. */
+  public synchronized EagerOperationTemplate setAttr(String name, String[] value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, byte[])}. */
+  public synchronized EagerOperationTemplate setAttr(String name, byte[] value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, long)}. */
+  public synchronized EagerOperationTemplate setAttr(String name, long value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, long[])}. */
+  public synchronized EagerOperationTemplate setAttr(String name, long[] value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, float)}. */
+  public synchronized EagerOperationTemplate setAttr(String name, float value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, float[])}. */
+  public synchronized EagerOperationTemplate setAttr(String name, float[] value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, boolean)}. */
+  public synchronized EagerOperationTemplate setAttr(String name, boolean value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, boolean[])}. */
+  public synchronized EagerOperationTemplate setAttr(String name, boolean[] value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, DataType)}. */
+  public synchronized EagerOperationTemplate setAttr(String name, DataType value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, DataType[])}. */
+  public synchronized EagerOperationTemplate setAttr(String name, DataType[] value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, Tensor)}. */
+  public synchronized EagerOperationTemplate setAttr(String name, Tensor<?> value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, Shape)}. */
+  public synchronized EagerOperationTemplate setAttr(String name, Shape value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  /** See {@link OperationBuilder#setAttr(String, Shape[])}. */
+  public synchronized EagerOperationTemplate setAttr(String name, Shape[] value) {
+    attributes.setAttr(name, value);
+    return this;
+  }
+
+  EagerOperationTemplate(EagerSession session, String type) {
+    this.session = session;
+    this.type = type;
+    this.attributes = new EagerOperationBuilder(session, type, type);
+  }
+
+  private final EagerSession session;
+  private final String type;
+
+  // Builder of an operation that is never executed, only holding the attributes of the template.
+  private final EagerOperationBuilder attributes;
+}
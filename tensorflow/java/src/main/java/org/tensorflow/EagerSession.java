@@ -18,10 +18,16 @@ package org.tensorflow;
 import java.lang.ref.PhantomReference;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
-import java.util.IdentityHashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * An environment for executing TensorFlow operations eagerly.
@@ -125,6 +131,10 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
      * operations might return "non-ready" outputs). When set to false, all operations are executed
      * synchronously.
      *
+     * <p>Outputs of asynchronous operations can be passed as inputs of other operations without
+     * waiting for them. Only reading their tensors waits for the operations producing them, which
+     * can be done in the background with {@link EagerSession#resolveAsync(Output[])}.
+     *
      * <p>Synchronous execution is used by default.
      *
      * @param value true for asynchronous execution, false for synchronous.
@@ -161,6 +171,24 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets the number of background threads releasing the resources of garbage-collected objects,
+     * when using {@link ResourceCleanupStrategy#IN_BACKGROUND}.
+     *
+     * <p>One thread is used by default. More threads may keep up with workloads allocating many
+     * short-lived tensors, at the cost of more concurrent native deallocations.
+     *
+     * @param value number of threads, must be positive
+     * @throws IllegalArgumentException if {@code value} is not positive
+     */
+    public Options resourceCleanupThreads(int value) {
+      if (value <= 0) {
+        throw new IllegalArgumentException("The number of cleanup threads must be positive");
+      }
+      resourceCleanupThreads = value;
+      return this;
+    }
+
     /**
      * Configures the session based on the data found in the provided buffer, which is serialized
      * TensorFlow config proto.
@@ -190,12 +218,14 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
     private boolean async;
     private DevicePlacementPolicy devicePlacementPolicy;
     private ResourceCleanupStrategy resourceCleanupStrategy;
+    private int resourceCleanupThreads;
     private byte[] config;
 
     private Options() {
       async = false;
       devicePlacementPolicy = DevicePlacementPolicy.SILENT;
       resourceCleanupStrategy = ResourceCleanupStrategy.IN_BACKGROUND;
+      resourceCleanupThreads = 1;
       config = null;
     }
   }
@@ -326,6 +356,7 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
       throw new IllegalStateException("Default eager session cannot be closed");
     }
     if (nativeHandle != 0L) {
+      shutdownResolveService();
       if (resourceCleanupStrategy == ResourceCleanupStrategy.IN_BACKGROUND) {
         nativeResources.stopCleanupThread();
       }
@@ -344,6 +375,93 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
     return new EagerOperationBuilder(this, type, name);
   }
 
+  /**
+   * Returns a new template of operations of the given type, whose attributes are set once and
+   * copied to each operation built from it.
+   *
+   * @see EagerOperationTemplate
+   */
+  public EagerOperationTemplate opTemplate(String type) {
+    checkSession();
+    return new EagerOperationTemplate(this, type);
+  }
+
+  /**
+   * Waits until all operations executed in this session have completed.
+   *
+   * <p>In a session executing operations asynchronously, errors raised by these operations are
+   * reported by this method, if not reported before.
+   *
+   * @throws TensorFlowException if an operation failed
+   */
+  public void sync() {
+    sync(nativeHandle());
+  }
+
+  /**
+   * Resolves the tensors of outputs of operations executed in this session in the background.
+   *
+   * <p>The tensors are resolved in a single native call, once the operations producing them have
+   * completed, while the calling thread can go on. When the returned future is done, {@link
+   * Output#tensor()} returns the resolved tensor of each of these outputs without waiting. Errors
+   * raised by the operations are reported by {@link Future#get()}.
+   *
+   * @param outputs outputs of operations executed in this session
+   * @return a future completed when all tensors have been resolved
+   * @throws IllegalArgumentException if an output does not belong to this session
+   */
+  public Future<Void> resolveAsync(Output<?>... outputs) {
+    final Output<?>[] resolvedOutputs = outputs.clone();
+    for (Output<?> output : resolvedOutputs) {
+      if (!(output.op() instanceof EagerOperation)
+          || ((EagerOperation) output.op()).session() != this) {
+        throw new IllegalArgumentException(
+            "Output " + output + " does not belong to this eager session");
+      }
+    }
+    return resolveService()
+        .submit(
+            new Callable<Void>() {
+              @Override
+              public Void call() {
+                EagerOperation.resolveTensors(resolvedOutputs);
+                return null;
+              }
+            });
+  }
+
+  /** Returns the number of native references currently attached to this session. */
+  public long liveReferenceCount() {
+    return nativeResources.liveCount();
+  }
+
+  /**
+   * Returns the number of native references released by this session, either after their objects
+   * have been garbage-collected or when the session was closed.
+   *
+   * <p>References explicitly released by their owners, e.g. by closing a {@link Tensor}, are not
+   * counted.
+   */
+  public long reclaimedReferenceCount() {
+    return nativeResources.reclaimedCount.get();
+  }
+
+  /**
+   * Returns the number of bytes of tensor data released by this session, either after their
+   * tensors have been garbage-collected or when the session was closed.
+   */
+  public long reclaimedBytes() {
+    return nativeResources.reclaimedBytes.get();
+  }
+
+  OperationBuilder opBuilder(String name, EagerOperationBuilder template) {
+    if (resourceCleanupStrategy == ResourceCleanupStrategy.ON_SAFE_POINTS) {
+      nativeResources.tryCleanup();
+    }
+    checkSession();
+    return new EagerOperationBuilder(this, name, template);
+  }
+
   long nativeHandle() {
     checkSession();
     return nativeHandle;
@@ -412,92 +530,117 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
     /** Releases all native resources owned by the referred object, now deleted. */
     abstract void delete();
 
+    /** Returns the number of bytes released by {@link #delete()}, 0 if unknown. */
+    long byteSize() {
+      return 0L;
+    }
+
     private final NativeResourceCollector nativeResources;
   }
 
   /**
    * Collects native references attached to this session and releases their resources if they are no
    * longer needed.
+   *
+   * <p>References are kept in a concurrent set, so attaching and detaching them never blocks other
+   * threads. Each reference is deleted only once, by the thread that removes it from the set.
    */
   private static class NativeResourceCollector {
 
-    NativeResourceCollector(ReferenceQueue<Object> garbageQueue) {
+    NativeResourceCollector(ReferenceQueue<Object> garbageQueue, int cleanupThreads) {
       this.garbageQueue = garbageQueue;
+      this.cleanupThreads = cleanupThreads;
     }
 
     void attach(NativeReference nativeRef) {
-      synchronized (nativeRefs) {
-        nativeRefs.put(nativeRef, null);
-      }
+      nativeRefs.add(nativeRef);
     }
 
     void detach(NativeReference nativeRef) {
-      synchronized (nativeRefs) {
-        nativeRefs.remove(nativeRef);
-      }
+      nativeRefs.remove(nativeRef);
     }
 
     void delete(NativeReference nativeRef) {
-      synchronized (nativeRefs) {
-        if (!nativeRefs.keySet().remove(nativeRef)) {
-          return; // safety check
-        }
+      if (!nativeRefs.remove(nativeRef)) {
+        return; // safety check
       }
+      long byteSize = nativeRef.byteSize();
       nativeRef.delete();
+      reclaimedCount.incrementAndGet();
+      reclaimedBytes.addAndGet(byteSize);
     }
 
     void deleteAll() {
-      synchronized (nativeRefs) {
-        for (NativeReference nativeRef : nativeRefs.keySet()) {
-          nativeRef.delete();
-        }
-        nativeRefs.clear();
+      for (NativeReference nativeRef : nativeRefs) {
+        delete(nativeRef);
       }
     }
 
     void tryCleanup() {
       Reference<?> nativeRef;
-      synchronized (nativeRefs) {
-        while ((nativeRef = garbageQueue.poll()) != null) {
-          delete((NativeReference) nativeRef);
-        }
+      while ((nativeRef = garbageQueue.poll()) != null) {
+        delete((NativeReference) nativeRef);
       }
     }
 
+    long liveCount() {
+      return nativeRefs.size();
+    }
+
     synchronized void startCleanupThread() {
       if (cleanupInBackground) {
-        return; // ignore if cleanup thread is already running
+        return; // ignore if cleanup threads are already running
       }
+      cleanupService = Executors.newFixedThreadPool(cleanupThreads);
       try {
         cleanupInBackground = true;
-        cleanupService.execute(
-            new Runnable() {
-              @Override
-              public void run() {
-                try {
-                  while (cleanupInBackground) {
-                    NativeReference nativeRef = (NativeReference) garbageQueue.remove();
-                    delete(nativeRef);
+        for (int i = 0; i < cleanupThreads; ++i) {
+          cleanupService.execute(
+              new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    while (cleanupInBackground) {
+                      // Wait for a first reference, then delete any other one already enqueued
+                      // without blocking again.
+                      Reference<?> nativeRef = garbageQueue.remove();
+                      int count = 0;
+                      do {
+                        delete((NativeReference) nativeRef);
+                      } while (++count < CLEANUP_BATCH_SIZE
+                          && (nativeRef = garbageQueue.poll()) != null);
+                    }
+                  } catch (InterruptedException e) {
+                    // exit
                   }
-                } catch (InterruptedException e) {
-                  // exit
                 }
-              }
-            });
+              });
+        }
       } catch (Exception e) {
         cleanupInBackground = false;
+        cleanupService.shutdownNow();
         throw e;
       }
     }
 
-    void stopCleanupThread() {
+    synchronized void stopCleanupThread() {
       cleanupInBackground = false;
-      cleanupService.shutdownNow(); // returns without waiting for the thread to stop
+      if (cleanupService != null) {
+        cleanupService.shutdownNow(); // returns without waiting for the threads to stop
+      }
     }
 
-    private final ExecutorService cleanupService = Executors.newSingleThreadExecutor();
-    private final Map<NativeReference, Void> nativeRefs = new IdentityHashMap<>();
+    // Maximum number of references deleted by a cleanup thread before it checks if it should stop.
+    private static final int CLEANUP_BATCH_SIZE = 256;
+
+    // References do not override equals(), so they are compared by identity.
+    private final Set<NativeReference> nativeRefs =
+        Collections.newSetFromMap(new ConcurrentHashMap<NativeReference, Boolean>());
     private final ReferenceQueue<Object> garbageQueue;
+    private final int cleanupThreads;
+    private final AtomicLong reclaimedCount = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private ExecutorService cleanupService;
     private volatile boolean cleanupInBackground = false;
   }
 
@@ -506,9 +649,11 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
   private final NativeResourceCollector nativeResources;
   private final ResourceCleanupStrategy resourceCleanupStrategy;
   private long nativeHandle;
+  private ExecutorService resolveService;
 
   private EagerSession(Options options, ReferenceQueue<Object> garbageQueue) {
-    this.nativeResources = new NativeResourceCollector(garbageQueue);
+    this.nativeResources =
+        new NativeResourceCollector(garbageQueue, options.resourceCleanupThreads);
     this.nativeHandle = allocate(options.async, options.devicePlacementPolicy.code, options.config);
     this.resourceCleanupStrategy = options.resourceCleanupStrategy;
 
@@ -517,6 +662,44 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
     }
   }
 
+  private synchronized ExecutorService resolveService() {
+    checkSession();
+    if (resolveService == null) {
+      resolveService =
+          Executors.newSingleThreadExecutor(
+              new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                  Thread thread = new Thread(r, "EagerSession-resolve");
+                  thread.setDaemon(true);
+                  return thread;
+                }
+              });
+    }
+    return resolveService;
+  }
+
+  private void shutdownResolveService() {
+    if (resolveService == null) {
+      return;
+    }
+    // Pending resolutions still access the native tensor handles, so they must complete before
+    // these handles are deleted.
+    resolveService.shutdown();
+    boolean interrupted = false;
+    while (!resolveService.isTerminated()) {
+      try {
+        resolveService.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    resolveService = null;
+  }
+
   private void checkSession() {
     if (nativeHandle == 0L) {
       throw new IllegalStateException("Eager session has been closed");
@@ -527,6 +710,8 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
 
   private static native void delete(long handle);
 
+  private static native void sync(long handle);
+
   static {
     TensorFlow.init();
   }
@@ -16,6 +16,8 @@ limitations under the License.
 package org.tensorflow;
 
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A data flow graph representing a TensorFlow computation.
@@ -42,24 +44,27 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
    *
    * <p>Blocks until there are no active {@link Session} instances referring to this Graph. A Graph
    * is not usable after close returns.
+   *
+   * <p>If the calling thread is interrupted while waiting, this method returns with the interrupt
+   * status of the thread set. The Graph is then already closed to any new use, but its native
+   * resources are only released by calling this method again, once the Graph is no longer in use.
    */
   @Override
   public void close() {
+    try {
+      refCounter.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // The graph is closed but still allocated, until close() is called again.
+      return;
+    }
     synchronized (nativeHandleLock) {
       if (nativeHandle == 0) {
         return;
       }
-      while (refcount > 0) {
-        try {
-          nativeHandleLock.wait();
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          // Possible leak of the graph in this case?
-          return;
-        }
-      }
       delete(nativeHandle);
       nativeHandle = 0;
+      operationsByName.clear();
     }
   }
 
@@ -69,12 +74,19 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
    * <p>Or {@code null} if no such operation exists in the Graph.
    */
   public GraphOperation operation(String name) {
-    synchronized (nativeHandleLock) {
-      long oph = operation(nativeHandle, name);
+    GraphOperation op = operationsByName.get(name);
+    if (op != null && nativeHandle != 0) {
+      return op;
+    }
+    // The lookup is synchronized natively, only prevent the graph from being closed meanwhile
+    try (Reference r = ref()) {
+      long oph = operation(r.nativeHandle(), name);
       if (oph == 0) {
         return null;
       }
-      return new GraphOperation(this, oph);
+      op = new GraphOperation(this, oph);
+      operationsByName.put(name, op);
+      return op;
     }
   }
 
@@ -102,6 +114,16 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
     return new GraphOperationBuilder(this, type, name);
   }
 
+  /**
+   * Returns a batch to add many {@link Operation}s to the Graph in a single native call.
+   *
+   * @return a {@link GraphOperationBatch}, which will add its operations to the graph when {@link
+   *     GraphOperationBatch#flush()} is invoked.
+   */
+  public GraphOperationBatch opBatch() {
+    return new GraphOperationBatch(this);
+  }
+
   /**
    * Import a serialized representation of a TensorFlow graph.
    *
@@ -347,8 +369,15 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
   }
 
   private final Object nativeHandleLock = new Object();
-  private long nativeHandle;
-  private int refcount = 0;
+  private final ReferenceCounter refCounter = new ReferenceCounter();
+  private volatile long nativeHandle;
+
+  // Operations resolved by name. Operations are never removed from a graph and their names are
+  // unique, so an entry remains valid until the graph is closed and adding operations (by a
+  // builder or by importing a GraphDef) never invalidates it. Failed lookups are not cached since
+  // they may succeed once more operations are added.
+  private final ConcurrentHashMap<String, GraphOperation> operationsByName =
+      new ConcurrentHashMap<>();
 
   // Related native objects (such as the TF_Operation object backing an Operation instance)
   // have a validity tied to that of the Graph. The handles to those native objects are not
@@ -358,36 +387,23 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
   // while dependent handles are in use.
   class Reference implements AutoCloseable {
     private Reference() {
-      synchronized (Graph.this.nativeHandleLock) {
-        active = Graph.this.nativeHandle != 0;
-        if (!active) {
-          throw new IllegalStateException("close() has been called on the Graph");
-        }
-        active = true;
-        Graph.this.refcount++;
+      if (!refCounter.acquire()) {
+        throw new IllegalStateException("close() has been called on the Graph");
       }
     }
 
     @Override
     public void close() {
-      synchronized (Graph.this.nativeHandleLock) {
-        if (!active) {
-          return;
-        }
-        active = false;
-        if (--Graph.this.refcount == 0) {
-          Graph.this.nativeHandleLock.notifyAll();
-        }
+      if (active.compareAndSet(true, false)) {
+        refCounter.release();
       }
     }
 
     public long nativeHandle() {
-      synchronized (Graph.this.nativeHandleLock) {
-        return active ? Graph.this.nativeHandle : 0;
-      }
+      return active.get() ? Graph.this.nativeHandle : 0;
     }
 
-    private boolean active;
+    private final AtomicBoolean active = new AtomicBoolean(true);
   }
 
   Reference ref() {
@@ -148,6 +148,10 @@ public final class GraphOperation extends AbstractOperation {
     return unsafeNativeHandle;
   }
 
+  Graph graph() {
+    return graph;
+  }
+
   private final Graph graph;
 
   private final long unsafeNativeHandle;
@@ -0,0 +1,457 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A batch of operations added to a {@link Graph} in a single native call.
+ *
+ * <p>Each method of a {@link GraphOperationBuilder} is a separate native call, which dominates the
+ * time taken to generate large graphs. A batch instead encodes the operations in a compact buffer
+ * and adds all of them to the graph when it is flushed:
+ *
+ * <pre>{@code
+ * GraphOperationBatch batch = graph.opBatch();
+ * GraphOperationBatch.PendingOperation x =
+ *     batch.opBuilder("Const", "X").setAttr("dtype", DataType.INT32).setAttr("value", t);
+ * GraphOperationBatch.PendingOperation y =
+ *     batch.opBuilder("Square", "Y").addInput(x, 0).setAttr("T", DataType.INT32);
+ * batch.flush();
+ * Output<Integer> output = y.operation().output(0);
+ * }</pre>
+ *
+ * <p>Operations are encoded in the order they are created, so only the last operation of a batch
+ * can be modified. Inputs can be outputs of operations already in the graph, or of operations
+ * created before in the same batch. Tensors set as attributes are only read when the batch is
+ * flushed, which fails if one of them has been closed meanwhile.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+public final class GraphOperationBatch {
+
+  /** An operation of a batch, added to the graph when the batch is flushed. */
+  public final class PendingOperation {
+
+    /**
+     * Returns the operation added to the graph, once the batch has been flushed.
+     *
+     * @throws IllegalStateException if the batch has not been flushed yet, or if the flush of this
+     *     operation failed
+     */
+    public GraphOperation operation() {
+      if (operation == null) {
+        throw new IllegalStateException(
+            "Operation " + name + " has not been flushed successfully");
+      }
+      return operation;
+    }
+
+    /** See {@link OperationBuilder#addInput(Output)}. */
+    public PendingOperation addInput(Output<?> input) {
+      checkModifiable();
+      append(INPUT);
+      appendInput(input);
+      return this;
+    }
+
+    /** Adds an output of an operation created before in the same batch as an input. */
+    public PendingOperation addInput(PendingOperation input, int index) {
+      checkModifiable();
+      append(INPUT);
+      appendInput(input, index);
+      return this;
+    }
+
+    /** See {@link OperationBuilder#addInputList(Output[])}. */
+    public PendingOperation addInputList(Output<?>[] inputs) {
+      checkModifiable();
+      append(INPUT_LIST);
+      append(inputs.length);
+      for (Output<?> input : inputs) {
+        appendInput(input);
+      }
+      return this;
+    }
+
+    /**
+     * Adds outputs of operations created before in the same batch as a list input.
+     *
+     * @param inputs the operations producing the inputs
+     * @param indices the index of each input in the outputs of its operation
+     */
+    public PendingOperation addInputList(PendingOperation[] inputs, int[] indices) {
+      if (inputs.length != indices.length) {
+        throw new IllegalArgumentException(
+            "expected " + inputs.length + ", got " + indices.length + " indices");
+      }
+      checkModifiable();
+      append(INPUT_LIST);
+      append(inputs.length);
+      for (int i = 0; i < inputs.length; ++i) {
+        appendInput(inputs[i], indices[i]);
+      }
+      return this;
+    }
+
+    /** See {@link OperationBuilder#addControlInput(Operation)}. */
+    public PendingOperation addControlInput(Operation control) {
+      if (!(control instanceof GraphOperation) || ((GraphOperation) control).graph() != graph) {
+        throw new IllegalArgumentException(
+            "Control input " + control + " is not an operation of the graph of the batch");
+      }
+      checkModifiable();
+      append(CONTROL_INPUT);
+      append(EXISTING_OPERATION);
+      append(((GraphOperation) control).getUnsafeNativeHandle());
+      return this;
+    }
+
+    /** Adds an operation created before in the same batch as a control input. */
+    public PendingOperation addControlInput(PendingOperation control) {
+      checkModifiable();
+      append(CONTROL_INPUT);
+      if (control.operation != null) {
+        append(EXISTING_OPERATION);
+        append(control.operation.getUnsafeNativeHandle());
+      } else {
+        checkPendingInput(control);
+        append(PENDING_OPERATION);
+        append(control.position);
+      }
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setDevice(String)}. */
+    public PendingOperation setDevice(String device) {
+      checkModifiable();
+      append(DEVICE);
+      appendString(device);
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, String)}. */
+    public PendingOperation setAttr(String name, String value) {
+      return setAttr(name, value.getBytes(UTF_8));
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, byte[])}. */
+    public PendingOperation setAttr(String name, byte[] value) {
+      appendAttr(ATTR_STRING, name);
+      appendBytes(value);
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, String[])}. */
+    public PendingOperation setAttr(String name, String[] value) {
+      appendAttr(ATTR_STRING_LIST, name);
+      append(value.length);
+      for (String v : value) {
+        appendString(v);
+      }
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, long)}. */
+    public PendingOperation setAttr(String name, long value) {
+      appendAttr(ATTR_INT, name);
+      append(value);
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, long[])}. */
+    public PendingOperation setAttr(String name, long[] value) {
+      appendAttr(ATTR_INT_LIST, name);
+      append(value.length);
+      for (long v : value) {
+        append(v);
+      }
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, float)}. */
+    public PendingOperation setAttr(String name, float value) {
+      appendAttr(ATTR_FLOAT, name);
+      append(Float.floatToRawIntBits(value));
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, float[])}. */
+    public PendingOperation setAttr(String name, float[] value) {
+      appendAttr(ATTR_FLOAT_LIST, name);
+      append(value.length);
+      for (float v : value) {
+        append(Float.floatToRawIntBits(v));
+      }
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, boolean)}. */
+    public PendingOperation setAttr(String name, boolean value) {
+      appendAttr(ATTR_BOOL, name);
+      append(value ? 1 : 0);
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, boolean[])}. */
+    public PendingOperation setAttr(String name, boolean[] value) {
+      appendAttr(ATTR_BOOL_LIST, name);
+      append(value.length);
+      for (boolean v : value) {
+        append(v ? 1 : 0);
+      }
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, DataType)}. */
+    public PendingOperation setAttr(String name, DataType value) {
+      appendAttr(ATTR_TYPE, name);
+      append(value.c());
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, DataType[])}. */
+    public PendingOperation setAttr(String name, DataType[] value) {
+      appendAttr(ATTR_TYPE_LIST, name);
+      append(value.length);
+      for (DataType v : value) {
+        append(v.c());
+      }
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, Tensor)}. */
+    public PendingOperation setAttr(String name, Tensor<?> value) {
+      appendAttr(ATTR_TENSOR, name);
+      append(tensors.size());
+      tensors.add(value);
+      return this;
+    }
+
+    /** See {@link OperationBuilder#setAttr(String, Shape)}. */
+    public PendingOperation setAttr(String name, Shape value) {
+      appendAttr(ATTR_SHAPE, name);
+      append(value.numDimensions());
+      for (int i = 0; i < value.numDimensions(); ++i) {
+        append(value.size(i));
+      }
+      return this;
+    }
+
+    private PendingOperation(int position, String name) {
+      this.position = position;
+      this.name = name;
+      this.generation = GraphOperationBatch.this.generation;
+    }
+
+    private void checkModifiable() {
+      if (pendingOperations.isEmpty()
+          || pendingOperations.get(pendingOperations.size() - 1) != this) {
+        throw new IllegalStateException(
+            "Operation " + name + " cannot be modified, only the last operation of a batch can");
+      }
+    }
+
+    private void appendAttr(long code, String name) {
+      checkModifiable();
+      append(code);
+      appendString(name);
+    }
+
+    private void appendInput(Output<?> input) {
+      if (!(input.op() instanceof GraphOperation)
+          || ((GraphOperation) input.op()).graph() != graph) {
+        throw new IllegalArgumentException(
+            "Input " + input + " is not an output of the graph of the batch");
+      }
+      append(EXISTING_OPERATION);
+      append(input.getUnsafeNativeHandle());
+      append(input.index());
+    }
+
+    private void appendInput(PendingOperation input, int index) {
+      if (input.operation != null) {
+        appendInput(input.operation.output(index));
+        return;
+      }
+      checkPendingInput(input);
+      append(PENDING_OPERATION);
+      append(input.position);
+      append(index);
+    }
+
+    private void checkPendingInput(PendingOperation input) {
+      if (input.batch() == GraphOperationBatch.this && input.generation != generation) {
+        // The operation was pending in a flush that failed, and its position now refers to
+        // another operation of the batch.
+        throw new IllegalArgumentException(
+            "Operation " + input.name + " belongs to a flush of the batch that failed");
+      }
+      if (input.batch() != GraphOperationBatch.this || input.position >= position) {
+        throw new IllegalArgumentException(
+            "Operation "
+                + input.name
+                + " must be created before "
+                + name
+                + " in the same batch to be one of its inputs");
+      }
+    }
+
+    private GraphOperationBatch batch() {
+      return GraphOperationBatch.this;
+    }
+
+    private final int position;
+    private final String name;
+    private final long generation;
+    private GraphOperation operation;
+  }
+
+  /**
+   * Creates an operation in this batch.
+   *
+   * @param type of the operation (i.e., identifies the computation to be performed)
+   * @param name to refer to the created operation in the graph
+   */
+  public PendingOperation opBuilder(String type, String name) {
+    PendingOperation operation = new PendingOperation(pendingOperations.size(), name);
+    pendingOperations.add(operation);
+    append(BEGIN_OPERATION);
+    appendString(type);
+    appendString(name);
+    return operation;
+  }
+
+  /** Returns the number of operations waiting to be added to the graph. */
+  public int size() {
+    return pendingOperations.size();
+  }
+
+  /**
+   * Adds all pending operations of the batch to the graph, in a single native call.
+   *
+   * <p>The batch is empty afterwards, even if an operation fails to be added, in which case the
+   * operations before it remain in the graph. If the failure comes from one of its inputs or
+   * attributes rather than from its validation, the operation that failed may also remain in the
+   * graph, configured with only the inputs and attributes set before the failure, since the native
+   * library adds an operation to the graph whenever it is valid.
+   *
+   * @return the operations added to the graph, in the order they were created
+   * @throws IllegalArgumentException if an operation is invalid
+   * @throws IllegalStateException if a tensor set as an attribute has been closed, in which case no
+   *     operation is added to the graph
+   */
+  public GraphOperation[] flush() {
+    PendingOperation[] operations =
+        pendingOperations.toArray(new PendingOperation[pendingOperations.size()]);
+    long[] batchCode = Arrays.copyOf(code, codeLength);
+    byte[] batchStrings = strings.toByteArray();
+    Tensor<?>[] batchTensors = tensors.toArray(new Tensor<?>[tensors.size()]);
+    pendingOperations.clear();
+    ++generation;
+    codeLength = 0;
+    strings.reset();
+    tensors.clear();
+
+    GraphOperation[] result = new GraphOperation[operations.length];
+    if (operations.length == 0) {
+      return result;
+    }
+    long[] tensorHandles = new long[batchTensors.length];
+    for (int i = 0; i < batchTensors.length; ++i) {
+      tensorHandles[i] = batchTensors[i].getNativeHandle();
+      if (tensorHandles[i] == 0) {
+        throw new IllegalStateException("close() has been called on a Tensor of the batch");
+      }
+    }
+    try (Graph.Reference ref = graph.ref()) {
+      long[] handles =
+          GraphOperationBuilder.buildBatch(
+              ref.nativeHandle(), operations.length, batchCode, batchStrings, tensorHandles);
+      for (int i = 0; i < operations.length; ++i) {
+        result[i] = new GraphOperation(graph, handles[i]);
+        operations[i].operation = result[i];
+      }
+    }
+    return result;
+  }
+
+  GraphOperationBatch(Graph graph) {
+    this.graph = graph;
+  }
+
+  private void append(long value) {
+    if (codeLength == code.length) {
+      code = Arrays.copyOf(code, code.length * 2);
+    }
+    code[codeLength++] = value;
+  }
+
+  private void appendString(String value) {
+    appendBytes(value.getBytes(UTF_8));
+  }
+
+  private void appendBytes(byte[] value) {
+    append(strings.size());
+    append(value.length);
+    strings.write(value, 0, value.length);
+  }
+
+  // Codes of the encoded operations, which must match those of graph_operation_builder_jni.cc.
+  private static final long BEGIN_OPERATION = 0;
+  private static final long INPUT = 1;
+  private static final long INPUT_LIST = 2;
+  private static final long CONTROL_INPUT = 3;
+  private static final long DEVICE = 4;
+  private static final long ATTR_STRING = 5;
+  private static final long ATTR_STRING_LIST = 6;
+  private static final long ATTR_INT = 7;
+  private static final long ATTR_INT_LIST = 8;
+  private static final long ATTR_FLOAT = 9;
+  private static final long ATTR_FLOAT_LIST = 10;
+  private static final long ATTR_BOOL = 11;
+  private static final long ATTR_BOOL_LIST = 12;
+  private static final long ATTR_TYPE = 13;
+  private static final long ATTR_TYPE_LIST = 14;
+  private static final long ATTR_TENSOR = 15;
+  private static final long ATTR_SHAPE = 16;
+
+  // Kinds of references to the operation of an input.
+  private static final long EXISTING_OPERATION = 0;
+  private static final long PENDING_OPERATION = 1;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final Graph graph;
+  private final List<PendingOperation> pendingOperations = new ArrayList<>();
+
+  // Number of times the batch has been flushed, so that operations of a previous flush are never
+  // mistaken for pending operations at the same position.
+  private long generation;
+
+  // Operations are encoded as a sequence of codes, each followed by its arguments. Strings are
+  // stored separately, and referred to by their offset and length.
+  private long[] code = new long[256];
+  private int codeLength;
+  private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+
+  // Tensors set as attributes, referred to by their index.
+  private final List<Tensor<?>> tensors = new ArrayList<>();
+}
@@ -302,6 +302,10 @@ public final class GraphOperationBuilder implements OperationBuilder {
 
   private static native long finish(long handle);
 
+  // Adds the operations encoded by a GraphOperationBatch to a graph, and returns their handles.
+  static native long[] buildBatch(
+      long graphHandle, int numOperations, long[] code, byte[] strings, long[] tensors);
+
   private static native void addInput(long handle, long opHandle, int index);
 
   private static native void addInputList(long handle, long[] opHandles, int[] indices);
@@ -0,0 +1,85 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the active references to a native object, so that it is not deleted while in use.
+ *
+ * <p>The number of references and whether the object has been closed are kept in a single atomic
+ * word, so acquiring and releasing a reference never blocks. Only closing the object, and releasing
+ * the last reference of a closed object, synchronize on the monitor of the counter.
+ */
+final class ReferenceCounter {
+
+  /**
+   * Acquires a reference, unless the object has been closed.
+   *
+   * @return true if the reference has been acquired, false if the object has been closed
+   */
+  boolean acquire() {
+    while (true) {
+      int s = state.get();
+      if ((s & CLOSED) != 0) {
+        return false;
+      }
+      if (s == MAX_COUNT) {
+        throw new IllegalStateException("too many active references");
+      }
+      if (state.compareAndSet(s, s + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /** Releases a reference previously acquired by {@link #acquire()}. */
+  void release() {
+    if (state.decrementAndGet() == CLOSED) {
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Prevents new references from being acquired and waits until all active references have been
+   * released.
+   *
+   * <p>This method can be called more than once, e.g. if a previous call has been interrupted.
+   *
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  void close() throws InterruptedException {
+    while (true) {
+      int s = state.get();
+      if ((s & CLOSED) != 0 || state.compareAndSet(s, s | CLOSED)) {
+        break;
+      }
+    }
+    synchronized (this) {
+      while (state.get() != CLOSED) {
+        wait();
+      }
+    }
+  }
+
+  private static final int CLOSED = Integer.MIN_VALUE;
+  private static final int MAX_COUNT = Integer.MAX_VALUE;
+
+  // The sign bit is set once the object is closed, the other bits count the active references.
+  private final AtomicInteger state = new AtomicInteger();
+}
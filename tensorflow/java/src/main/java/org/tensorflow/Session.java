@@ -15,8 +15,18 @@ limitations under the License.
 
 package org.tensorflow;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Driver for {@link Graph} execution.
@@ -86,23 +96,26 @@ public final class Session implements AutoCloseable {
    *
    * <p>Blocks until there are no active executions ({@link Session.Runner#run()} calls). A Session
    * is not usable after close returns.
+   *
+   * <p>If the calling thread is interrupted while waiting, this method returns with the interrupt
+   * status of the thread set. The Session is then already closed to any new execution, but its
+   * native resources are only released by calling this method again, once the executions in
+   * progress have completed.
    */
   @Override
   public void close() {
     graphRef.close();
+    try {
+      refCounter.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // The session is closed but still allocated, until close() is called again.
+      return;
+    }
     synchronized (nativeHandleLock) {
       if (nativeHandle == 0) {
         return;
       }
-      while (numActiveRuns > 0) {
-        try {
-          nativeHandleLock.wait();
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          // Possible leak of the Session and Graph in this case?
-          return;
-        }
-      }
       delete(nativeHandle);
       nativeHandle = 0;
     }
@@ -257,6 +270,11 @@ public final class Session implements AutoCloseable {
       return this;
     }
 
+    // Returns the serialized RunOptions set on this runner, or null if none.
+    byte[] options() {
+      return runOptions;
+    }
+
     /**
      * Execute the graph fragments necessary to compute all requested fetches.
      *
@@ -288,14 +306,115 @@ public final class Session implements AutoCloseable {
       return runHelper(true);
     }
 
+    /**
+     * Execute the graph fragments necessary to compute all requested fetches, copying their values
+     * directly into the provided buffers.
+     *
+     * <p>This is like {@link #run()}, except that the value of the {@code i}-th fetch is copied into
+     * {@code destinations[i]} (starting at its current position, which is then advanced past the
+     * copied data) instead of being returned as a new {@link Tensor}. Since no {@code Tensor} objects
+     * are created, the caller has nothing to release after the call and can reuse the same buffers
+     * for every execution.
+     *
+     * <p>All buffers must be direct and writable. A {@link ByteBuffer} receives the raw data, in
+     * native byte order, of a fetch of any type but {@link DataType#STRING}. A {@link FloatBuffer},
+     * {@link DoubleBuffer}, {@link IntBuffer} or {@link LongBuffer} only accepts a fetch of the
+     * corresponding type and must use the native byte order.
+     *
+     * @param destinations buffers receiving the fetched values, one per fetch
+     * @throws IllegalArgumentException if the number of buffers does not match the number of fetches,
+     *     if a buffer is not compatible with the fetch it receives or if it has not enough space
+     *     remaining to hold its value
+     */
+    public void runInto(Buffer... destinations) {
+      OutputBuffers buffers = new OutputBuffers(destinations, outputs.size());
+      long[] outputTensorHandles = new long[outputs.size()];
+      runNative(false, outputTensorHandles);
+      buffers.copyFrom(outputTensorHandles);
+    }
+
+    /**
+     * Execute the graph fragments necessary to compute all requested fetches on the given {@code
+     * executor}, without blocking the calling thread.
+     *
+     * <p>This is like {@link #run()}, except that the returned future completes with the fetched
+     * tensors, or with the exception raised by the execution. The run is accounted as active from
+     * the moment it is submitted, so {@link Session#close()} waits for it to complete even if it
+     * has not started yet. Cancelling the future before the run starts cancels the execution.
+     *
+     * <p>This runner and the tensors it feeds must not be modified or closed until the returned
+     * future is done.
+     *
+     * <p><b>WARNING:</b> The caller assumes ownership of all tensors returned by the future, i.e.,
+     * the caller must call {@link Tensor#close} on all of them to free up resources. Tensors
+     * fetched by a run whose future has been cancelled are released automatically.
+     *
+     * @param executor the executor on which the graph is executed
+     * @throws IllegalStateException if the session has been closed
+     * @throws java.util.concurrent.RejectedExecutionException if the executor does not accept the
+     *     run
+     */
+    public Future<List<Tensor<?>>> runAsync(Executor executor) {
+      RunTask task = new RunTask(new Reference());
+      try {
+        executor.execute(task);
+      } catch (RuntimeException e) {
+        task.cancel(false);
+        throw e;
+      }
+      return task;
+    }
+
+    // A run executed asynchronously, which keeps the session alive from its submission to its
+    // completion or cancellation.
+    private final class RunTask extends FutureTask<List<Tensor<?>>> {
+
+      @Override
+      protected void set(List<Tensor<?>> outputs) {
+        super.set(outputs);
+        if (isCancelled()) {
+          // The outputs are ignored by the future, release them now.
+          for (Tensor<?> t : outputs) {
+            t.close();
+          }
+        }
+      }
+
+      @Override
+      protected void done() {
+        runRef.close();
+      }
+
+      private RunTask(Reference runRef) {
+        super(
+            new java.util.concurrent.Callable<List<Tensor<?>>>() {
+              @Override
+              public List<Tensor<?>> call() {
+                return Runner.this.run();
+              }
+            });
+        this.runRef = runRef;
+      }
+
+      private final Reference runRef;
+    }
+
     private Run runHelper(boolean wantMetadata) {
+      long[] outputTensorHandles = new long[outputs.size()];
+      byte[] metadata = runNative(wantMetadata, outputTensorHandles);
+      Run ret = new Run();
+      ret.outputs = fromHandles(outputTensorHandles);
+      ret.metadata = metadata;
+      return ret;
+    }
+
+    private byte[] runNative(boolean wantMetadata, long[] outputTensorHandles) {
       long[] inputTensorHandles = new long[inputTensors.size()];
       long[] inputOpHandles = new long[inputs.size()];
       int[] inputOpIndices = new int[inputs.size()];
       long[] outputOpHandles = new long[outputs.size()];
       int[] outputOpIndices = new int[outputs.size()];
       long[] targetOpHandles = new long[targets.size()];
-      long[] outputTensorHandles = new long[outputs.size()];
 
       // It's okay to use Operation.getUnsafeNativeHandle() here since the safety depends on the
       // validity of the Graph and graphRef ensures that.
@@ -320,61 +439,82 @@ public final class Session implements AutoCloseable {
         targetOpHandles[idx++] = op.getUnsafeNativeHandle();
       }
       Reference runRef = new Reference();
-      byte[] metadata = null;
       try {
-        metadata =
-            Session.run(
-                nativeHandle,
-                runOptions,
-                inputTensorHandles,
-                inputOpHandles,
-                inputOpIndices,
-                outputOpHandles,
-                outputOpIndices,
-                targetOpHandles,
-                wantMetadata,
-                outputTensorHandles);
+        return Session.run(
+            nativeHandle,
+            runOptions,
+            inputTensorHandles,
+            inputOpHandles,
+            inputOpIndices,
+            outputOpHandles,
+            outputOpIndices,
+            targetOpHandles,
+            wantMetadata,
+            outputTensorHandles);
       } finally {
         runRef.close();
       }
-      List<Tensor<?>> outputs = new ArrayList<Tensor<?>>();
-      for (long h : outputTensorHandles) {
-        try {
-          outputs.add(Tensor.fromHandle(h));
-        } catch (Exception e) {
-          for (Tensor<?> t : outputs) {
-            t.close();
-          }
-          outputs.clear();
-          throw e;
-        }
-      }
-      Run ret = new Run();
-      ret.outputs = outputs;
-      ret.metadata = metadata;
-      return ret;
     }
 
-    private class Reference implements AutoCloseable {
-      public Reference() {
-        synchronized (nativeHandleLock) {
-          if (nativeHandle == 0) {
-            throw new IllegalStateException("run() cannot be called on the Session after close()");
-          }
-          ++numActiveRuns;
-        }
+    /**
+     * Prepare a {@link Callable} that repeatedly feeds {@code feeds} and executes the fetches and
+     * targets registered on this runner.
+     *
+     * <p>The endpoints of the graph are resolved once, when the callable is created, so that each
+     * subsequent {@link Callable#call(Tensor[])} only has to supply the values to feed, in the same
+     * order as {@code feeds}.
+     *
+     * <p><b>WARNING:</b> A {@code Callable} owns native resources that <b>must</b> be explicitly
+     * freed by invoking {@link Callable#close()}.
+     *
+     * @param feeds the operations to feed, each with an optional output index, as in {@link
+     *     #feed(String, Tensor)}
+     * @throws IllegalArgumentException if a feed does not exist in the graph
+     * @throws IllegalStateException if values to feed have been registered on this runner
+     */
+    public Callable makeCallable(String... feeds) {
+      if (!inputs.isEmpty()) {
+        throw new IllegalStateException(
+            "the feeds of a Callable must be passed to makeCallable(), not to feed()");
       }
+      long[] inputOpHandles = new long[feeds.length];
+      int[] inputOpIndices = new int[feeds.length];
+      long[] outputOpHandles = new long[outputs.size()];
+      int[] outputOpIndices = new int[outputs.size()];
+      long[] targetOpHandles = new long[targets.size()];
 
-      @Override
-      public void close() {
-        synchronized (nativeHandleLock) {
-          if (nativeHandle == 0) {
-            return;
-          }
-          if (--numActiveRuns == 0) {
-            nativeHandleLock.notifyAll();
-          }
-        }
+      // It's okay to use Operation.getUnsafeNativeHandle() here since the safety depends on the
+      // validity of the Graph and graphRef ensures that.
+      int idx = 0;
+      for (String feed : feeds) {
+        Output<?> o = parseOutput(feed);
+        inputOpHandles[idx] = o.getUnsafeNativeHandle();
+        inputOpIndices[idx] = o.index();
+        idx++;
+      }
+      idx = 0;
+      for (Output<?> o : outputs) {
+        outputOpHandles[idx] = o.getUnsafeNativeHandle();
+        outputOpIndices[idx] = o.index();
+        idx++;
+      }
+      idx = 0;
+      for (GraphOperation op : targets) {
+        targetOpHandles[idx++] = op.getUnsafeNativeHandle();
+      }
+      Reference runRef = new Reference();
+      try {
+        long callableHandle =
+            allocateCallable(
+                runOptions,
+                inputOpHandles,
+                inputOpIndices,
+                outputOpHandles,
+                outputOpIndices,
+                targetOpHandles);
+        return new Callable(callableHandle, feeds.length, outputs.size());
+      } finally {
+        runRef.close();
       }
     }
 
@@ -413,6 +553,140 @@ public final class Session implements AutoCloseable {
     return new Runner();
   }
 
+  /**
+   * A prepared execution of a fixed set of feeds, fetches and targets.
+   *
+   * <p>Unlike a {@link Runner}, which resolves its graph endpoints and builds the arguments of the
+   * native call each time it runs, a {@code Callable} does this work once when it is created by
+   * {@link Runner#makeCallable(String[])}. This makes it more suitable for executing the same graph
+   * fragment a large number of times, for example when serving a model. For example:
+   *
+   * <pre>{@code
+   * try (Session.Callable callable = s.runner().fetch("y").makeCallable("x")) {
+   *   for (Tensor<?> x : inputs) {
+   *     try (Tensor<?> y = callable.call(x).get(0)) {
+   *       // ...
+   *     }
+   *   }
+   * }
+   * }</pre>
+   *
+   * <p><b>WARNING:</b> A {@code Callable} owns resources that <b>must</b> be explicitly freed by
+   * invoking {@link #close()}. It cannot be called after its {@link Session} has been closed.
+   *
+   * <p>Instances of a Callable are thread-safe.
+   */
+  public final class Callable implements AutoCloseable {
+
+    /**
+     * Execute the prepared graph fragments, feeding {@code inputs} and returning the requested
+     * fetches.
+     *
+     * <p><b>WARNING:</b> The caller assumes ownership of all returned {@link Tensor Tensors}, i.e.,
+     * the caller must call {@link Tensor#close} on all elements of the returned list to free up
+     * resources.
+     *
+     * @param inputs values to feed, in the order in which their endpoints were registered with the
+     *     runner that prepared this callable
+     * @throws IllegalArgumentException if the number of inputs does not match the number of feeds
+     */
+    public List<Tensor<?>> call(Tensor<?>... inputs) {
+      long[] outputTensorHandles = new long[numOutputs];
+      callNative(inputs, outputTensorHandles);
+      return fromHandles(outputTensorHandles);
+    }
+
+    /**
+     * Execute the prepared graph fragments, feeding {@code inputs} and copying the requested
+     * fetches directly into {@code destinations}.
+     *
+     * <p>See {@link Runner#runInto(Buffer[])} for the requirements on the destination buffers.
+     *
+     * @param inputs values to feed, in the order in which their endpoints were registered with the
+     *     runner that prepared this callable
+     * @param destinations buffers receiving the fetched values, one per fetch
+     * @throws IllegalArgumentException if the number of inputs does not match the number of feeds,
+     *     or if the destination buffers are not compatible with the fetches
+     */
+    public void callInto(Tensor<?>[] inputs, Buffer... destinations) {
+      OutputBuffers buffers = new OutputBuffers(destinations, numOutputs);
+      long[] outputTensorHandles = new long[numOutputs];
+      callNative(inputs, outputTensorHandles);
+      buffers.copyFrom(outputTensorHandles);
+    }
+    /**
+     * Release resources associated with the Callable.
+     *
+     * <p>Blocks until there are no active executions ({@link #call(Tensor[])} calls). A Callable is
+     * not usable after close returns.
+     */
+    @Override
+    public synchronized void close() {
+      if (nativeHandle == 0) {
+        return;
+      }
+      while (numActiveCalls > 0) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          // Possible leak of the Callable in this case?
+          return;
+        }
+      }
+      deleteCallable(nativeHandle);
+      nativeHandle = 0;
+    }
+
+    private void callNative(Tensor<?>[] inputs, long[] outputTensorHandles) {
+      if (inputs.length != numInputs) {
+        throw new IllegalArgumentException(
+            "expected " + numInputs + " input Tensors, got " + inputs.length);
+      }
+      long[] inputTensorHandles = new long[numInputs];
+      for (int i = 0; i < numInputs; ++i) {
+        inputTensorHandles[i] = inputs[i].getNativeHandle();
+      }
+      long callableHandle = acquire();
+      try {
+        Reference runRef = new Reference();
+        try {
+          runCallable(
+              Session.this.nativeHandle, callableHandle, inputTensorHandles, outputTensorHandles);
+        } finally {
+          runRef.close();
+        }
+      } finally {
+        release();
+      }
+    }
+
+    private synchronized long acquire() {
+      if (nativeHandle == 0) {
+        throw new IllegalStateException("call() cannot be called on the Callable after close()");
+      }
+      ++numActiveCalls;
+      return nativeHandle;
+    }
+
+    private synchronized void release() {
+      if (--numActiveCalls == 0) {
+        notifyAll();
+      }
+    }
+
+    private Callable(long nativeHandle, int numInputs, int numOutputs) {
+      this.nativeHandle = nativeHandle;
+      this.numInputs = numInputs;
+      this.numOutputs = numOutputs;
+    }
+
+    private long nativeHandle;
+    private int numActiveCalls;
+    private final int numInputs;
+    private final int numOutputs;
+  }
+
   /**
    * Output tensors and metadata obtained when executing a session.
    *
@@ -436,12 +710,111 @@ public final class Session implements AutoCloseable {
     public byte[] metadata;
   }
 
+  private static List<Tensor<?>> fromHandles(long[] outputTensorHandles) {
+    List<Tensor<?>> outputs = new ArrayList<Tensor<?>>();
+    for (long h : outputTensorHandles) {
+      try {
+        outputs.add(Tensor.fromHandle(h));
+      } catch (Exception e) {
+        for (Tensor<?> t : outputs) {
+          t.close();
+        }
+        outputs.clear();
+        throw e;
+      }
+    }
+    return outputs;
+  }
+
+  /**
+   * Destination buffers of {@link Runner#runInto(Buffer[])} and {@link Callable#callInto(Tensor[],
+   * Buffer[])}.
+   *
+   * <p>Buffers are validated before the session is executed, so that output tensors are never
+   * leaked because of an invalid destination.
+   */
+  private static final class OutputBuffers {
+
+    OutputBuffers(Buffer[] buffers, int numOutputs) {
+      if (buffers.length != numOutputs) {
+        throw new IllegalArgumentException(
+            "expected " + numOutputs + " destination buffers, got " + buffers.length);
+      }
+      this.buffers = buffers;
+      dtypes = new int[buffers.length];
+      elemByteSizes = new int[buffers.length];
+      offsets = new long[buffers.length];
+      capacities = new long[buffers.length];
+      for (int i = 0; i < buffers.length; ++i) {
+        Buffer b = buffers[i];
+        if (!b.isDirect() || b.isReadOnly()) {
+          throw new IllegalArgumentException(
+              "destination buffer #" + i + " must be direct and writable");
+        }
+        DataType dtype = null;
+        ByteOrder order = ByteOrder.nativeOrder();
+        if (b instanceof FloatBuffer) {
+          dtype = DataType.FLOAT;
+          order = ((FloatBuffer) b).order();
+        } else if (b instanceof DoubleBuffer) {
+          dtype = DataType.DOUBLE;
+          order = ((DoubleBuffer) b).order();
+        } else if (b instanceof IntBuffer) {
+          dtype = DataType.INT32;
+          order = ((IntBuffer) b).order();
+        } else if (b instanceof LongBuffer) {
+          dtype = DataType.INT64;
+          order = ((LongBuffer) b).order();
+        } else if (!(b instanceof ByteBuffer)) {
+          throw new IllegalArgumentException(
+              "cannot copy fetched values into a " + b.getClass().getName());
+        }
+        if (order != ByteOrder.nativeOrder()) {
+          throw new IllegalArgumentException(
+              "destination buffer #" + i + " must use the native byte order");
+        }
+        dtypes[i] = dtype != null ? dtype.c() : -1;
+        elemByteSizes[i] = dtype != null ? dtype.byteSize() : 1;
+        offsets[i] = (long) b.position() * elemByteSizes[i];
+        capacities[i] = (long) b.remaining() * elemByteSizes[i];
+      }
+    }
+
+    /** Copies and releases the output tensors, advancing the position of each buffer. */
+    void copyFrom(long[] outputTensorHandles) {
+      long[] numBytes = new long[buffers.length];
+      copyOutputs(outputTensorHandles, buffers, dtypes, offsets, capacities, numBytes);
+      for (int i = 0; i < buffers.length; ++i) {
+        buffers[i].position(buffers[i].position() + (int) (numBytes[i] / elemByteSizes[i]));
+      }
+    }
+
+    private final Buffer[] buffers;
+    private final int[] dtypes;
+    private final int[] elemByteSizes;
+    private final long[] offsets;
+    private final long[] capacities;
+  }
+
+  private class Reference implements AutoCloseable {
+    public Reference() {
+      if (!refCounter.acquire()) {
+        throw new IllegalStateException("run() cannot be called on the Session after close()");
+      }
+    }
+
+    @Override
+    public void close() {
+      refCounter.release();
+    }
+  }
+
   private final Graph graph;
   private final Graph.Reference graphRef;
 
   private final Object nativeHandleLock = new Object();
-  private long nativeHandle;
-  private int numActiveRuns;
+  private final ReferenceCounter refCounter = new ReferenceCounter();
+  private volatile long nativeHandle;
 
   // TODO(ashankar): Remove after TensorFlow 1.2 has been released with allocate2().
   private static native long allocate(long graphHandle);
@@ -488,4 +861,61 @@ public final class Session implements AutoCloseable {
       long[] targetOpHandles,
       boolean wantRunMetadata,
       long[] outputTensorHandles);
+
+  /**
+   * Prepare the arguments of a session execution so that they can be reused by multiple calls to
+   * {@link #runCallable(long, long, long[], long[])}.
+   *
+   * @param runOptions serialized representation of a RunOptions protocol buffer, or null
+   * @param inputOpHandles (see inputOpIndices)
+   * @param inputOpIndices together with inputOpHandles identifies the values that are being "fed"
+   *     on each execution of the callable.
+   * @param outputOpHandles (see outputOpIndices)
+   * @param outputOpIndices together with outputOpHandles identifies the set of values that should
+   *     be computed.
+   * @param targetOpHandles is the set of Operations in the graph that are to be executed but whose
+   *     output will not be returned
+   * @return handle to the native representation of the prepared execution
+   */
+  private static native long allocateCallable(
+      byte[] runOptions,
+      long[] inputOpHandles,
+      int[] inputOpIndices,
+      long[] outputOpHandles,
+      int[] outputOpIndices,
+      long[] targetOpHandles);
+
+  private static native void deleteCallable(long callableHandle);
+
+  /**
+   * Execute a session using arguments prepared by {@link #allocateCallable}.
+   *
+   * @param handle to the C API TF_Session object (Session.nativeHandle)
+   * @param callableHandle handle returned by {@link #allocateCallable}
+   * @param inputTensorHandles values fed to the inputs of the callable, in order.
+   * @param outputTensorHandles will be filled in with handles to the outputs of the callable.
+   */
+  private static native void runCallable(
+      long handle, long callableHandle, long[] inputTensorHandles, long[] outputTensorHandles);
+
+  /**
+   * Copy the content of output tensors into direct buffers and delete them.
+   *
+   * <p>All tensors are deleted, even if copying one of them fails.
+   *
+   * @param outputTensorHandles handles to the output tensors, as returned by a session execution
+   * @param destinations direct buffers receiving the data of each tensor
+   * @param dtypes expected TF_DataType of each tensor, or -1 to accept any type with a fixed
+   *     element size
+   * @param offsets offset in bytes, from the address of each buffer, at which data is copied
+   * @param capacities number of bytes available in each buffer after its offset
+   * @param numBytes will be filled in with the number of bytes copied into each buffer
+   */
+  private static native void copyOutputs(
+      long[] outputTensorHandles,
+      Buffer[] destinations,
+      int[] dtypes,
+      long[] offsets,
+      long[] capacities,
+      long[] numBytes);
 }
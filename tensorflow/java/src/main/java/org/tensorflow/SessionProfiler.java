@@ -0,0 +1,549 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the execution statistics of the operations run by a {@link Session}.
+ *
+ * <p>Tracing a run has a cost, so the profiler only traces a fraction of the runs it executes,
+ * selected with {@link Options#sampleRate(double)}. The step statistics of the traced runs are
+ * aggregated per operation, so that the most expensive operations of a model can be found while it
+ * serves production traffic. For example:
+ *
+ * <pre>{@code
+ * SessionProfiler profiler = SessionProfiler.options().sampleRate(0.01).build();
+ * // For each request:
+ * List<Tensor<?>> outputs = profiler.run(session.runner().feed("x", x).fetch("y"));
+ * // Later on:
+ * for (SessionProfiler.OpStats op : profiler.hotspots(10)) {
+ *   System.out.println(op.nodeName() + ": " + op.totalMicros() + "us");
+ * }
+ * }</pre>
+ *
+ * <p>The statistics are read from the <a
+ * href="https://www.tensorflow.org/code/tensorflow/core/protobuf/config.proto">RunMetadata
+ * protocol buffer</a> returned by the traced runs. Since the org.tensorflow package is free of any
+ * protocol buffer dependencies, only the fields of the step statistics used by the profiler are
+ * decoded.
+ *
+ * <p>Instances of a SessionProfiler are thread-safe.
+ */
+public final class SessionProfiler {
+
+  public static class Options {
+
+    /**
+     * Fraction of the runs executed by {@link SessionProfiler#run(Session.Runner)} that are traced.
+     *
+     * <p>1% of the runs are traced by default.
+     *
+     * @param value a fraction between 0 (no run is traced) and 1 (all runs are traced)
+     */
+    public Options sampleRate(double value) {
+      if (!(value >= 0.0 && value <= 1.0)) {
+        throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+      }
+      sampleRate = value;
+      return this;
+    }
+
+    /** Builds a profiler with the selected options. */
+    public SessionProfiler build() {
+      return new SessionProfiler(this);
+    }
+
+    private double sampleRate;
+
+    private Options() {
+      sampleRate = 0.01;
+    }
+  }
+
+  /** Statistics of a single operation, aggregated over all the traced runs. */
+  public static final class OpStats {
+
+    /** Name of the operation in the graph. */
+    public String nodeName() {
+      return nodeName;
+    }
+
+    /** Type of the operation (e.g. "MatMul"), or an empty string if it was not traced. */
+    public String opType() {
+      return opType;
+    }
+
+    /** Device on which the operation was last executed. */
+    public String device() {
+      return device;
+    }
+
+    /** Number of traced executions of the operation. */
+    public long count() {
+      return count;
+    }
+
+    /** Total wall time, in microseconds, of all traced executions of the operation. */
+    public long totalMicros() {
+      return totalMicros;
+    }
+
+    /** Longest wall time, in microseconds, of a traced execution of the operation. */
+    public long maxMicros() {
+      return maxMicros;
+    }
+
+    /** Largest amount of memory, in bytes, allocated by a traced execution of the operation. */
+    public long peakBytes() {
+      return peakBytes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "<%s '%s' on %s: %d runs, %dus total, %dus max, %d bytes peak>",
+          opType, nodeName, device, count, totalMicros, maxMicros, peakBytes);
+    }
+
+    private OpStats(String nodeName) {
+      this.nodeName = nodeName;
+    }
+
+    private OpStats(OpStats other) {
+      this.nodeName = other.nodeName;
+      this.opType = other.opType;
+      this.device = other.device;
+      this.count = other.count;
+      this.totalMicros = other.totalMicros;
+      this.maxMicros = other.maxMicros;
+      this.peakBytes = other.peakBytes;
+    }
+
+    private final String nodeName;
+    private String opType = "";
+    private String device = "";
+    private long count = 0;
+    private long totalMicros = 0;
+    private long maxMicros = 0;
+    private long peakBytes = 0;
+  }
+
+  /** Returns a {@code SessionProfiler} configured with default options. */
+  public static SessionProfiler create() {
+    return options().build();
+  }
+
+  /** Returns an object that configures and builds a {@code SessionProfiler} with custom options. */
+  public static SessionProfiler.Options options() {
+    return new Options();
+  }
+
+  /**
+   * Executes {@code runner}, tracing the run if it is part of the sampled fraction.
+   *
+   * <p>This is like {@link Session.Runner#run()}, except that the traced runs also enable step
+   * statistics in the run options of the runner and record them in this profiler.
+   *
+   * <p><b>WARNING:</b> The caller assumes ownership of all returned {@link Tensor Tensors}, i.e.,
+   * the caller must call {@link Tensor#close} on all elements of the returned list to free up
+   * resources.
+   */
+  public List<Tensor<?>> run(Session.Runner runner) {
+    long n = runCount.getAndIncrement();
+    if ((long) ((n + 1) * sampleRate) == (long) (n * sampleRate)) {
+      return runner.run();
+    }
+    byte[] options = runner.options();
+    Session.Run run;
+    runner.setOptions(withTracing(options));
+    try {
+      run = runner.runAndFetchMetadata();
+    } finally {
+      runner.setOptions(options);
+    }
+    try {
+      record(run.metadata);
+    } catch (RuntimeException e) {
+      for (Tensor<?> t : run.outputs) {
+        t.close();
+      }
+      throw e;
+    }
+    return run.outputs;
+  }
+
+  /**
+   * Records the step statistics of a run traced by the caller.
+   *
+   * @param runMetadata a serialized <a
+   *     href="https://www.tensorflow.org/code/tensorflow/core/protobuf/config.proto">RunMetadata
+   *     protocol buffer</a>, as returned by {@link Session.Runner#runAndFetchMetadata()}
+   * @throws IllegalArgumentException if runMetadata is not a valid serialization of RunMetadata
+   */
+  public void record(byte[] runMetadata) {
+    List<NodeExec> nodes = parseRunMetadata(runMetadata);
+    synchronized (this) {
+      ++sampledRunCount;
+      for (NodeExec node : nodes) {
+        OpStats stats = opStats.get(node.nodeName);
+        if (stats == null) {
+          stats = new OpStats(node.nodeName);
+          opStats.put(node.nodeName, stats);
+        }
+        if (!node.opType.isEmpty()) {
+          stats.opType = node.opType;
+        }
+        stats.device = node.device;
+        stats.count++;
+        stats.totalMicros += node.durationMicros;
+        stats.maxMicros = Math.max(stats.maxMicros, node.durationMicros);
+        stats.peakBytes = Math.max(stats.peakBytes, node.peakBytes);
+      }
+      lastRun = nodes;
+    }
+  }
+
+  /** Returns the number of runs executed by {@link #run(Session.Runner)}. */
+  public long runCount() {
+    return runCount.get();
+  }
+
+  /** Returns the number of runs whose statistics have been recorded. */
+  public synchronized long sampledRunCount() {
+    return sampledRunCount;
+  }
+
+  /**
+   * Returns the statistics of the {@code n} operations with the largest total wall time, in
+   * decreasing order.
+   */
+  public synchronized List<OpStats> hotspots(int n) {
+    List<OpStats> ops = new ArrayList<>(opStats.size());
+    for (OpStats stats : opStats.values()) {
+      ops.add(new OpStats(stats));
+    }
+    Collections.sort(
+        ops,
+        new Comparator<OpStats>() {
+          @Override
+          public int compare(OpStats a, OpStats b) {
+            return Long.compare(b.totalMicros, a.totalMicros);
+          }
+        });
+    return ops.subList(0, Math.min(n, ops.size()));
+  }
+
+  /**
+   * Returns the timeline of the last recorded run in the <a
+   * href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">Trace
+   * Event Format</a>, which can be loaded in chrome://tracing.
+   *
+   * <p>Each device is represented as a process and each of its threads as a thread of that process.
+   */
+  public synchronized String toChromeTrace() {
+    StringBuilder json = new StringBuilder("{\"traceEvents\":[");
+    Map<String, Integer> pids = new HashMap<>();
+    long origin = Long.MAX_VALUE;
+    for (NodeExec node : lastRun) {
+      origin = Math.min(origin, node.startMicros);
+    }
+    for (NodeExec node : lastRun) {
+      Integer pid = pids.get(node.device);
+      if (pid == null) {
+        pid = pids.size();
+        pids.put(node.device, pid);
+        appendSeparator(json);
+        json.append("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":").append(pid);
+        json.append(",\"args\":{\"name\":");
+        appendString(json, node.device);
+        json.append("}}");
+      }
+      appendSeparator(json);
+      json.append("{\"name\":");
+      appendString(json, node.opType.isEmpty() ? node.nodeName : node.opType);
+      json.append(",\"cat\":\"Op\",\"ph\":\"X\",\"pid\":").append(pid);
+      json.append(",\"tid\":").append(node.threadId);
+      json.append(",\"ts\":").append(node.startMicros - origin);
+      json.append(",\"dur\":").append(node.durationMicros);
+      json.append(",\"args\":{\"name\":");
+      appendString(json, node.nodeName);
+      json.append(",\"op\":");
+      appendString(json, node.opType);
+      json.append("}}");
+    }
+    return json.append("]}").toString();
+  }
+
+  /** Discards all statistics recorded so far. */
+  public synchronized void reset() {
+    opStats.clear();
+    lastRun = Collections.emptyList();
+    sampledRunCount = 0;
+  }
+
+  private final double sampleRate;
+  private final AtomicLong runCount = new AtomicLong();
+  private long sampledRunCount = 0;
+  private final Map<String, OpStats> opStats = new LinkedHashMap<>();
+  private List<NodeExec> lastRun = Collections.emptyList();
+
+  private SessionProfiler(Options options) {
+    sampleRate = options.sampleRate;
+  }
+
+  // RunOptions with trace_level (field 1) set to SOFTWARE_TRACE (1). When appended to another
+  // serialized RunOptions, it overrides its trace level and preserves all other fields.
+  private static final byte[] SOFTWARE_TRACE = {0x08, 0x01};
+
+  private static byte[] withTracing(byte[] options) {
+    if (options == null) {
+      return SOFTWARE_TRACE;
+    }
+    byte[] traced = Arrays.copyOf(options, options.length + SOFTWARE_TRACE.length);
+    System.arraycopy(SOFTWARE_TRACE, 0, traced, options.length, SOFTWARE_TRACE.length);
+    return traced;
+  }
+
+  private static void appendSeparator(StringBuilder json) {
+    if (json.charAt(json.length() - 1) != '[') {
+      json.append(',');
+    }
+  }
+
+  private static void appendString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+
+  // A single execution of a node, as found in the step statistics of a run.
+  private static final class NodeExec {
+    private String device = "";
+    private String nodeName = "";
+    private String opType = "";
+    private long startMicros;
+    private long durationMicros;
+    private long threadId;
+    private long peakBytes;
+  }
+
+  // RunMetadata { StepStats step_stats = 1; }
+  // StepStats { repeated DeviceStepStats dev_stats = 1; }
+  // DeviceStepStats { string device = 1; repeated NodeExecStats node_stats = 2; }
+  private static List<NodeExec> parseRunMetadata(byte[] runMetadata) {
+    List<NodeExec> nodes = new ArrayList<>();
+    WireReader metadata = new WireReader(runMetadata, 0, runMetadata.length);
+    while (metadata.next()) {
+      if (metadata.field() != 1) {
+        metadata.skip();
+        continue;
+      }
+      WireReader stepStats = metadata.readMessage();
+      while (stepStats.next()) {
+        if (stepStats.field() != 1) {
+          stepStats.skip();
+          continue;
+        }
+        WireReader devStats = stepStats.readMessage();
+        int first = nodes.size();
+        String device = "";
+        while (devStats.next()) {
+          if (devStats.field() == 1) {
+            device = devStats.readString();
+          } else if (devStats.field() == 2) {
+            nodes.add(parseNodeExecStats(devStats.readMessage()));
+          } else {
+            devStats.skip();
+          }
+        }
+        for (int i = first; i < nodes.size(); ++i) {
+          nodes.get(i).device = device;
+        }
+      }
+    }
+    return nodes;
+  }
+
+  // NodeExecStats { string node_name = 1; int64 all_start_micros = 2;
+  //     int64 all_end_rel_micros = 5; repeated AllocatorMemoryUsed memory = 6;
+  //     string timeline_label = 8; uint32 thread_id = 10; ... }
+  // AllocatorMemoryUsed { ... int64 peak_bytes = 3; ... }
+  private static NodeExec parseNodeExecStats(WireReader reader) {
+    NodeExec node = new NodeExec();
+    while (reader.next()) {
+      switch (reader.field()) {
+        case 1:
+          node.nodeName = reader.readString();
+          break;
+        case 2:
+          node.startMicros = reader.readVarint();
+          break;
+        case 5:
+          node.durationMicros = reader.readVarint();
+          break;
+        case 6:
+          WireReader memory = reader.readMessage();
+          while (memory.next()) {
+            if (memory.field() == 3) {
+              node.peakBytes += memory.readVarint();
+            } else {
+              memory.skip();
+            }
+          }
+          break;
+        case 8:
+          node.opType = opTypeFromLabel(reader.readString());
+          break;
+        case 10:
+          node.threadId = reader.readVarint();
+          break;
+        default:
+          reader.skip();
+      }
+    }
+    return node;
+  }
+
+  // Timeline labels are formatted as "<node name> = <op type>(<inputs>)".
+  private static String opTypeFromLabel(String label) {
+    int start = label.indexOf(" = ");
+    if (start < 0) {
+      return "";
+    }
+    start += 3;
+    int end = label.indexOf('(', start);
+    return label.substring(start, end < 0 ? label.length() : end);
+  }
+
+  // Minimal reader of the protocol buffer wire format, for the fields decoded by the profiler.
+  private static final class WireReader {
+
+    boolean next() {
+      if (pos >= limit) {
+        return false;
+      }
+      tag = (int) readVarint();
+      return true;
+    }
+
+    int field() {
+      return tag >>> 3;
+    }
+
+    long readVarint() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        byte b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+      throw malformed();
+    }
+
+    String readString() {
+      int length = readLength();
+      String value = new String(buf, pos, length, UTF8);
+      pos += length;
+      return value;
+    }
+
+    WireReader readMessage() {
+      int length = readLength();
+      WireReader message = new WireReader(buf, pos, pos + length);
+      pos += length;
+      return message;
+    }
+
+    void skip() {
+      switch (tag & 0x7) {
+        case 0: // varint
+          readVarint();
+          break;
+        case 1: // 64-bit
+          skipBytes(8);
+          break;
+        case 2: // length-delimited
+          skipBytes(readLength());
+          break;
+        case 5: // 32-bit
+          skipBytes(4);
+          break;
+        default:
+          throw malformed();
+      }
+    }
+
+    private byte readByte() {
+      if (pos >= limit) {
+        throw malformed();
+      }
+      return buf[pos++];
+    }
+
+    private int readLength() {
+      long length = readVarint();
+      if (length < 0 || length > limit - pos) {
+        throw malformed();
+      }
+      return (int) length;
+    }
+
+    private void skipBytes(int n) {
+      if (n > limit - pos) {
+        throw malformed();
+      }
+      pos += n;
+    }
+
+    private static IllegalArgumentException malformed() {
+      return new IllegalArgumentException("malformed RunMetadata protocol buffer");
+    }
+
+    private WireReader(byte[] buf, int pos, int limit) {
+      this.buf = buf;
+      this.pos = pos;
+      this.limit = limit;
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final byte[] buf;
+    private int pos;
+    private final int limit;
+    private int tag;
+  }
+}
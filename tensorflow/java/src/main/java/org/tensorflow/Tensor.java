@@ -101,8 +101,13 @@ public final class Tensor<T> implements AutoCloseable {
    * @throws IllegalArgumentException if {@code obj} is not compatible with the TensorFlow type
    *     system.
    */
-  @SuppressWarnings("unchecked")
   public static <T> Tensor<T> create(Object obj, Class<T> type) {
+    return create(obj, type, null);
+  }
+
+  // Requires: pool is null or open
+  @SuppressWarnings("unchecked")
+  static <T> Tensor<T> create(Object obj, Class<T> type, TensorPool pool) {
     DataType dtype = DataType.fromClass(type);
     if (!objectCompatWithType(obj, dtype)) {
       throw new IllegalArgumentException(
@@ -112,7 +117,7 @@ public final class Tensor<T> implements AutoCloseable {
               + dataTypeOf(obj)
               + ")");
     }
-    return (Tensor<T>) create(obj, dtype);
+    return (Tensor<T>) create(obj, dtype, pool);
   }
 
   /**
@@ -123,7 +128,7 @@ public final class Tensor<T> implements AutoCloseable {
    *     system.
    */
   public static Tensor<?> create(Object obj) {
-    return create(obj, dataTypeOf(obj));
+    return create(obj, dataTypeOf(obj), null);
   }
 
   /**
@@ -133,9 +138,10 @@ public final class Tensor<T> implements AutoCloseable {
    * @param obj the object supplying the tensor data.
    * @param dtype the data type of the tensor to create. It must be compatible with the run-time
    *     type of the object.
+   * @param pool the pool providing the tensor memory, or null to allocate it directly
    * @return the new tensor
    */
-  private static Tensor<?> create(Object obj, DataType dtype) {
+  private static Tensor<?> create(Object obj, DataType dtype, TensorPool pool) {
     @SuppressWarnings("rawtypes")
     Tensor<?> t = new Tensor(dtype);
     t.shapeCopy = new long[numDimensions(obj, dtype)];
@@ -143,7 +149,7 @@ public final class Tensor<T> implements AutoCloseable {
     long nativeHandle;
     if (t.dtype != DataType.STRING) {
       int byteSize = elemByteSize(t.dtype) * numElements(t.shapeCopy);
-      nativeHandle = allocate(t.dtype.c(), t.shapeCopy, byteSize);
+      nativeHandle = allocate(t.dtype, t.shapeCopy, byteSize, pool);
       setValue(nativeHandle, obj);
     } else if (t.shapeCopy.length != 0) {
       nativeHandle = allocateNonScalarBytes(t.shapeCopy, (Object[]) obj);
@@ -167,7 +173,11 @@ public final class Tensor<T> implements AutoCloseable {
    * @throws IllegalArgumentException If the tensor shape is not compatible with the buffer
    */
   public static Tensor<Integer> create(long[] shape, IntBuffer data) {
-    Tensor<Integer> t = allocateForBuffer(DataType.INT32, shape, data.remaining());
+    return create(shape, data, null);
+  }
+
+  static Tensor<Integer> create(long[] shape, IntBuffer data, TensorPool pool) {
+    Tensor<Integer> t = allocateForBuffer(DataType.INT32, shape, data.remaining(), pool);
     t.buffer().asIntBuffer().put(data);
     return t;
   }
@@ -185,7 +195,11 @@ public final class Tensor<T> implements AutoCloseable {
    * @throws IllegalArgumentException If the tensor shape is not compatible with the buffer
    */
   public static Tensor<Float> create(long[] shape, FloatBuffer data) {
-    Tensor<Float> t = allocateForBuffer(DataType.FLOAT, shape, data.remaining());
+    return create(shape, data, null);
+  }
+
+  static Tensor<Float> create(long[] shape, FloatBuffer data, TensorPool pool) {
+    Tensor<Float> t = allocateForBuffer(DataType.FLOAT, shape, data.remaining(), pool);
     t.buffer().asFloatBuffer().put(data);
     return t;
   }
@@ -203,7 +217,11 @@ public final class Tensor<T> implements AutoCloseable {
    * @throws IllegalArgumentException If the tensor shape is not compatible with the buffer
    */
   public static Tensor<Double> create(long[] shape, DoubleBuffer data) {
-    Tensor<Double> t = allocateForBuffer(DataType.DOUBLE, shape, data.remaining());
+    return create(shape, data, null);
+  }
+
+  static Tensor<Double> create(long[] shape, DoubleBuffer data, TensorPool pool) {
+    Tensor<Double> t = allocateForBuffer(DataType.DOUBLE, shape, data.remaining(), pool);
     t.buffer().asDoubleBuffer().put(data);
     return t;
   }
@@ -221,7 +239,11 @@ public final class Tensor<T> implements AutoCloseable {
    * @throws IllegalArgumentException If the tensor shape is not compatible with the buffer
    */
   public static Tensor<Long> create(long[] shape, LongBuffer data) {
-    Tensor<Long> t = allocateForBuffer(DataType.INT64, shape, data.remaining());
+    return create(shape, data, null);
+  }
+
+  static Tensor<Long> create(long[] shape, LongBuffer data, TensorPool pool) {
+    Tensor<Long> t = allocateForBuffer(DataType.INT64, shape, data.remaining(), pool);
     t.buffer().asLongBuffer().put(data);
     return t;
   }
@@ -242,12 +264,16 @@ public final class Tensor<T> implements AutoCloseable {
    *     buffer
    */
   public static <T> Tensor<T> create(Class<T> type, long[] shape, ByteBuffer data) {
+    return create(type, shape, data, null);
+  }
+
+  static <T> Tensor<T> create(Class<T> type, long[] shape, ByteBuffer data, TensorPool pool) {
     @SuppressWarnings("unchecked")
-    Tensor<T> ret = (Tensor<T>) create(DataType.fromClass(type), shape, data);
+    Tensor<T> ret = (Tensor<T>) create(DataType.fromClass(type), shape, data, pool);
     return ret;
   }
 
-  private static Tensor<?> create(DataType dtype, long[] shape, ByteBuffer data) {
+  static Tensor<?> create(DataType dtype, long[] shape, ByteBuffer data, TensorPool pool) {
     int nremaining;
     if (dtype != DataType.STRING) {
       int elemBytes = elemByteSize(dtype);
@@ -261,11 +287,107 @@ public final class Tensor<T> implements AutoCloseable {
     } else {
       nremaining = data.remaining();
     }
-    Tensor<?> t = allocateForBuffer(dtype, shape, nremaining);
+    Tensor<?> t = allocateForBuffer(dtype, shape, nremaining, pool);
     t.buffer().put(data);
     return t;
   }
 
+  /**
+   * Create a Tensor of any type that shares its data with the given direct buffer.
+   *
+   * <p>Unlike {@link #create(Class, long[], ByteBuffer)}, the data is not copied: the elements of
+   * the tensor are backed by the bytes of {@code data} between its current position and its limit,
+   * which must be encoded in native byte order as per the specification of the TensorFlow <a
+   * href="https://www.tensorflow.org/code/tensorflow/c/c_api.h">C API</a>. The buffer remains
+   * reachable for as long as TensorFlow refers to its memory, possibly after the returned tensor has
+   * been closed, so it must not be modified once the tensor has been fed to a computation.
+   *
+   * <p>TensorFlow requires tensor data to be aligned in memory; if the address of the first byte of
+   * the data is not a multiple of 64, the data is copied as if {@link #create(Class, long[],
+   * ByteBuffer)} was called.
+   *
+   * @param <T> the tensor element type
+   * @param type the tensor element type, represented as a class object.
+   * @param shape the tensor shape.
+   * @param data a direct buffer containing the tensor data.
+   * @throws IllegalArgumentException If the tensor datatype or shape is not compatible with the
+   *     buffer, or if the buffer is not direct
+   */
+  public static <T> Tensor<T> wrap(Class<T> type, long[] shape, ByteBuffer data) {
+    DataType dtype = DataType.fromClass(type);
+    if (dtype == DataType.STRING) {
+      throw new IllegalArgumentException("STRING tensors cannot wrap a buffer");
+    }
+    int elemBytes = elemByteSize(dtype);
+    if (data.remaining() % elemBytes != 0) {
+      throw new IllegalArgumentException(
+          String.format(
+              "ByteBuffer with %d bytes is not compatible with a %s Tensor (%d bytes/element)",
+              data.remaining(), dtype.toString(), elemBytes));
+    }
+    return wrapBuffer(dtype, shape, data, data.remaining() / elemBytes, 1);
+  }
+
+  /**
+   * Create a {@link Integer} Tensor that shares its data with the given direct buffer.
+   *
+   * <p>See {@link #wrap(Class, long[], ByteBuffer)}; the buffer must use the native byte order.
+   *
+   * @param shape the tensor shape.
+   * @param data a direct buffer containing the tensor data.
+   * @throws IllegalArgumentException If the tensor shape is not compatible with the buffer, or if
+   *     the buffer is not direct or not in native byte order
+   */
+  public static Tensor<Integer> wrap(long[] shape, IntBuffer data) {
+    checkNativeOrder(data, data.order());
+    return wrapBuffer(DataType.INT32, shape, data, data.remaining(), 4);
+  }
+
+  /**
+   * Create a {@link Float} Tensor that shares its data with the given direct buffer.
+   *
+   * <p>See {@link #wrap(Class, long[], ByteBuffer)}; the buffer must use the native byte order.
+   *
+   * @param shape the tensor shape.
+   * @param data a direct buffer containing the tensor data.
+   * @throws IllegalArgumentException If the tensor shape is not compatible with the buffer, or if
+   *     the buffer is not direct or not in native byte order
+   */
+  public static Tensor<Float> wrap(long[] shape, FloatBuffer data) {
+    checkNativeOrder(data, data.order());
+    return wrapBuffer(DataType.FLOAT, shape, data, data.remaining(), 4);
+  }
+
+  /**
+   * Create a {@link Double} Tensor that shares its data with the given direct buffer.
+   *
+   * <p>See {@link #wrap(Class, long[], ByteBuffer)}; the buffer must use the native byte order.
+   *
+   * @param shape the tensor shape.
+   * @param data a direct buffer containing the tensor data.
+   * @throws IllegalArgumentException If the tensor shape is not compatible with the buffer, or if
+   *     the buffer is not direct or not in native byte order
+   */
+  public static Tensor<Double> wrap(long[] shape, DoubleBuffer data) {
+    checkNativeOrder(data, data.order());
+    return wrapBuffer(DataType.DOUBLE, shape, data, data.remaining(), 8);
+  }
+
+  /**
+   * Create a {@link Long} Tensor that shares its data with the given direct buffer.
+   *
+   * <p>See {@link #wrap(Class, long[], ByteBuffer)}; the buffer must use the native byte order.
+   *
+   * @param shape the tensor shape.
+   * @param data a direct buffer containing the tensor data.
+   * @throws IllegalArgumentException If the tensor shape is not compatible with the buffer, or if
+   *     the buffer is not direct or not in native byte order
+   */
+  public static Tensor<Long> wrap(long[] shape, LongBuffer data) {
+    checkNativeOrder(data, data.order());
+    return wrapBuffer(DataType.INT64, shape, data, data.remaining(), 8);
+  }
+
   /**
    * Returns this Tensor object with the type {@code Tensor<U>}. This method is useful when given a
    * value of type {@code Tensor<?>}.
@@ -287,7 +409,8 @@ public final class Tensor<T> implements AutoCloseable {
   // Helper function to allocate a Tensor for the create() methods that create a Tensor from
   // a java.nio.Buffer.
   // Requires: dataType matches T
-  private static <T> Tensor<T> allocateForBuffer(DataType dataType, long[] shape, int nBuffered) {
+  private static <T> Tensor<T> allocateForBuffer(
+      DataType dataType, long[] shape, int nBuffered, TensorPool pool) {
     final int nflattened = numElements(shape);
     int nbytes = 0;
     if (dataType != DataType.STRING) {
@@ -301,11 +424,59 @@ public final class Tensor<T> implements AutoCloseable {
     }
     Tensor<T> t = new Tensor<T>(dataType);
     t.shapeCopy = Arrays.copyOf(shape, shape.length);
-    long nativeHandle = allocate(t.dtype.c(), t.shapeCopy, nbytes);
+    long nativeHandle = allocate(t.dtype, t.shapeCopy, nbytes, pool);
     t.nativeRef = new NativeReference(nativeHandle);
     return t;
   }
 
+  // Helper function to allocate a Tensor whose (uninitialized) data is then filled in place through
+  // buffer(), saving the copy of a staging buffer.
+  // Requires: dataType is not STRING
+  static Tensor<?> allocateUninitialized(DataType dataType, long[] shape) {
+    return allocateForBuffer(dataType, shape, numElements(shape), null);
+  }
+
+  // Helper function to allocate the native tensor, borrowing its memory from the pool if any.
+  // STRING tensors are never pooled.
+  private static long allocate(DataType dataType, long[] shape, long byteSize, TensorPool pool) {
+    if (pool != null && dataType != DataType.STRING) {
+      return pool.allocateTensor(dataType, shape, byteSize);
+    }
+    return allocate(dataType.c(), shape, byteSize);
+  }
+
+  // Helper function to create a Tensor for the wrap() methods.
+  // Requires: dataType matches T and is not STRING
+  private static <T> Tensor<T> wrapBuffer(
+      DataType dataType, long[] shape, Buffer data, int nBuffered, int bufferElemBytes) {
+    if (!data.isDirect()) {
+      throw new IllegalArgumentException("only direct buffers can be wrapped by a Tensor");
+    }
+    final int nflattened = numElements(shape);
+    if (nBuffered != nflattened) {
+      throw incompatibleBuffer(nBuffered, shape);
+    }
+    Tensor<T> t = new Tensor<T>(dataType);
+    t.shapeCopy = Arrays.copyOf(shape, shape.length);
+    long nativeHandle =
+        allocateWrapped(
+            t.dtype.c(),
+            t.shapeCopy,
+            data,
+            (long) data.capacity() * bufferElemBytes,
+            (long) data.position() * bufferElemBytes,
+            (long) nflattened * elemByteSize(dataType));
+    t.nativeRef = new NativeReference(nativeHandle);
+    return t;
+  }
+
+  private static void checkNativeOrder(Buffer buf, ByteOrder order) {
+    if (order != ByteOrder.nativeOrder()) {
+      throw new IllegalArgumentException(
+          String.format("%s must use the native byte order", buf.getClass().getName()));
+    }
+  }
+
   /**
    * Release resources associated with the Tensor.
    *
@@ -524,6 +695,230 @@ public final class Tensor<T> implements AutoCloseable {
     dst.put(src);
   }
 
+  /**
+   * Copies all elements of a {@link Float} tensor into a flat array.
+   *
+   * <p>Elements are copied in row-major order, starting at {@code dst[offset]}. Unlike {@link
+   * #copyTo(Object)}, this copy is done in a single bulk operation, whatever the number of
+   * dimensions of the tensor.
+   *
+   * @param dst the destination array
+   * @param offset index in {@code dst} of the first element to copy
+   * @return the number of elements copied, i.e. {@code numElements()}
+   * @throws IllegalArgumentException if the tensor data type is not {@link Float}
+   * @throws IndexOutOfBoundsException if {@code dst} is too small
+   */
+  public int readFloats(float[] dst, int offset) {
+    return readFloats(0, dst, offset, numElements());
+  }
+
+  /**
+   * Copies a range of elements of a {@link Float} tensor into a flat array.
+   *
+   * <p>The tensor is viewed as a flat sequence of elements in row-major order. For example, the
+   * {@code i}-th row of a {@code [batch][n]} tensor can be read with {@code readFloats(i * n, dst,
+   * 0, n)}.
+   *
+   * @param index index of the first element to copy in the flattened tensor
+   * @param dst the destination array
+   * @param offset index in {@code dst} of the first element to copy
+   * @param length number of elements to copy
+   * @return the number of elements copied, i.e. {@code length}
+   * @throws IllegalArgumentException if the tensor data type is not {@link Float}, or if the
+   *     range of elements is not within the tensor
+   * @throws IndexOutOfBoundsException if {@code dst} is too small
+   */
+  public int readFloats(int index, float[] dst, int offset, int length) {
+    FloatBuffer src = asFloatBufferView();
+    checkRange(index, length, src.remaining());
+    src.position(index);
+    src.get(dst, offset, length);
+    return length;
+  }
+
+  /**
+   * Returns a read-only view of the data of a {@link Float} tensor.
+   *
+   * <p>The elements are not copied: the buffer refers directly to the native memory of the tensor,
+   * in row-major order.
+   *
+   * <p><b>WARNING:</b> The returned buffer <b>must not</b> be accessed after the tensor has been
+   * closed, as its memory might have been freed.
+   *
+   * @throws IllegalArgumentException if the tensor data type is not {@link Float}
+   */
+  public FloatBuffer asFloatBuffer() {
+    return asFloatBufferView().asReadOnlyBuffer();
+  }
+
+  /**
+   * Copies all elements of a {@link Double} tensor into a flat array.
+   *
+   * <p>Elements are copied in row-major order, starting at {@code dst[offset]}. Unlike {@link
+   * #copyTo(Object)}, this copy is done in a single bulk operation, whatever the number of
+   * dimensions of the tensor.
+   *
+   * @param dst the destination array
+   * @param offset index in {@code dst} of the first element to copy
+   * @return the number of elements copied, i.e. {@code numElements()}
+   * @throws IllegalArgumentException if the tensor data type is not {@link Double}
+   * @throws IndexOutOfBoundsException if {@code dst} is too small
+   */
+  public int readDoubles(double[] dst, int offset) {
+    return readDoubles(0, dst, offset, numElements());
+  }
+
+  /**
+   * Copies a range of elements of a {@link Double} tensor into a flat array.
+   *
+   * <p>The tensor is viewed as a flat sequence of elements in row-major order. For example, the
+   * {@code i}-th row of a {@code [batch][n]} tensor can be read with {@code readDoubles(i * n, dst,
+   * 0, n)}.
+   *
+   * @param index index of the first element to copy in the flattened tensor
+   * @param dst the destination array
+   * @param offset index in {@code dst} of the first element to copy
+   * @param length number of elements to copy
+   * @return the number of elements copied, i.e. {@code length}
+   * @throws IllegalArgumentException if the tensor data type is not {@link Double}, or if the
+   *     range of elements is not within the tensor
+   * @throws IndexOutOfBoundsException if {@code dst} is too small
+   */
+  public int readDoubles(int index, double[] dst, int offset, int length) {
+    DoubleBuffer src = asDoubleBufferView();
+    checkRange(index, length, src.remaining());
+    src.position(index);
+    src.get(dst, offset, length);
+    return length;
+  }
+
+  /**
+   * Returns a read-only view of the data of a {@link Double} tensor.
+   *
+   * <p>The elements are not copied: the buffer refers directly to the native memory of the tensor,
+   * in row-major order.
+   *
+   * <p><b>WARNING:</b> The returned buffer <b>must not</b> be accessed after the tensor has been
+   * closed, as its memory might have been freed.
+   *
+   * @throws IllegalArgumentException if the tensor data type is not {@link Double}
+   */
+  public DoubleBuffer asDoubleBuffer() {
+    return asDoubleBufferView().asReadOnlyBuffer();
+  }
+
+  /**
+   * Copies all elements of an {@link Integer} tensor into a flat array.
+   *
+   * <p>Elements are copied in row-major order, starting at {@code dst[offset]}. Unlike {@link
+   * #copyTo(Object)}, this copy is done in a single bulk operation, whatever the number of
+   * dimensions of the tensor.
+   *
+   * @param dst the destination array
+   * @param offset index in {@code dst} of the first element to copy
+   * @return the number of elements copied, i.e. {@code numElements()}
+   * @throws IllegalArgumentException if the tensor data type is not {@link Integer}
+   * @throws IndexOutOfBoundsException if {@code dst} is too small
+   */
+  public int readInts(int[] dst, int offset) {
+    return readInts(0, dst, offset, numElements());
+  }
+
+  /**
+   * Copies a range of elements of an {@link Integer} tensor into a flat array.
+   *
+   * <p>The tensor is viewed as a flat sequence of elements in row-major order. For example, the
+   * {@code i}-th row of a {@code [batch][n]} tensor can be read with {@code readInts(i * n, dst,
+   * 0, n)}.
+   *
+   * @param index index of the first element to copy in the flattened tensor
+   * @param dst the destination array
+   * @param offset index in {@code dst} of the first element to copy
+   * @param length number of elements to copy
+   * @return the number of elements copied, i.e. {@code length}
+   * @throws IllegalArgumentException if the tensor data type is not {@link Integer}, or if the
+   *     range of elements is not within the tensor
+   * @throws IndexOutOfBoundsException if {@code dst} is too small
+   */
+  public int readInts(int index, int[] dst, int offset, int length) {
+    IntBuffer src = asIntBufferView();
+    checkRange(index, length, src.remaining());
+    src.position(index);
+    src.get(dst, offset, length);
+    return length;
+  }
+
+  /**
+   * Returns a read-only view of the data of an {@link Integer} tensor.
+   *
+   * <p>The elements are not copied: the buffer refers directly to the native memory of the tensor,
+   * in row-major order.
+   *
+   * <p><b>WARNING:</b> The returned buffer <b>must not</b> be accessed after the tensor has been
+   * closed, as its memory might have been freed.
+   *
+   * @throws IllegalArgumentException if the tensor data type is not {@link Integer}
+   */
+  public IntBuffer asIntBuffer() {
+    return asIntBufferView().asReadOnlyBuffer();
+  }
+
+  /**
+   * Copies all elements of a {@link Long} tensor into a flat array.
+   *
+   * <p>Elements are copied in row-major order, starting at {@code dst[offset]}. Unlike {@link
+   * #copyTo(Object)}, this copy is done in a single bulk operation, whatever the number of
+   * dimensions of the tensor.
+   *
+   * @param dst the destination array
+   * @param offset index in {@code dst} of the first element to copy
+   * @return the number of elements copied, i.e. {@code numElements()}
+   * @throws IllegalArgumentException if the tensor data type is not {@link Long}
+   * @throws IndexOutOfBoundsException if {@code dst} is too small
+   */
+  public int readLongs(long[] dst, int offset) {
+    return readLongs(0, dst, offset, numElements());
+  }
+
+  /**
+   * Copies a range of elements of a {@link Long} tensor into a flat array.
+   *
+   * <p>The tensor is viewed as a flat sequence of elements in row-major order. For example, the
+   * {@code i}-th row of a {@code [batch][n]} tensor can be read with {@code readLongs(i * n, dst,
+   * 0, n)}.
+   *
+   * @param index index of the first element to copy in the flattened tensor
+   * @param dst the destination array
+   * @param offset index in {@code dst} of the first element to copy
+   * @param length number of elements to copy
+   * @return the number of elements copied, i.e. {@code length}
+   * @throws IllegalArgumentException if the tensor data type is not {@link Long}, or if the
+   *     range of elements is not within the tensor
+   * @throws IndexOutOfBoundsException if {@code dst} is too small
+   */
+  public int readLongs(int index, long[] dst, int offset, int length) {
+    LongBuffer src = asLongBufferView();
+    checkRange(index, length, src.remaining());
+    src.position(index);
+    src.get(dst, offset, length);
+    return length;
+  }
+
+  /**
+   * Returns a read-only view of the data of a {@link Long} tensor.
+   *
+   * <p>The elements are not copied: the buffer refers directly to the native memory of the tensor,
+   * in row-major order.
+   *
+   * <p><b>WARNING:</b> The returned buffer <b>must not</b> be accessed after the tensor has been
+   * closed, as its memory might have been freed.
+   *
+   * @throws IllegalArgumentException if the tensor data type is not {@link Long}
+   */
+  public LongBuffer asLongBuffer() {
+    return asLongBufferView().asReadOnlyBuffer();
+  }
+
   /** Returns a string describing the type and shape of the Tensor. */
   @Override
   public String toString() {
@@ -566,10 +961,52 @@ public final class Tensor<T> implements AutoCloseable {
     dtype = t;
   }
 
-  private ByteBuffer buffer() {
+  ByteBuffer buffer() {
     return buffer(getNativeHandle()).order(ByteOrder.nativeOrder());
   }
 
+  private FloatBuffer asFloatBufferView() {
+    if (dtype != DataType.FLOAT) {
+      throw incompatibleType(DataType.FLOAT);
+    }
+    return buffer().asFloatBuffer();
+  }
+
+  private DoubleBuffer asDoubleBufferView() {
+    if (dtype != DataType.DOUBLE) {
+      throw incompatibleType(DataType.DOUBLE);
+    }
+    return buffer().asDoubleBuffer();
+  }
+
+  private IntBuffer asIntBufferView() {
+    if (dtype != DataType.INT32) {
+      throw incompatibleType(DataType.INT32);
+    }
+    return buffer().asIntBuffer();
+  }
+
+  private LongBuffer asLongBufferView() {
+    if (dtype != DataType.INT64) {
+      throw incompatibleType(DataType.INT64);
+    }
+    return buffer().asLongBuffer();
+  }
+
+  private static void checkRange(int index, int length, int numElements) {
+    if (index < 0 || length < 0 || index > numElements - length) {
+      throw new IllegalArgumentException(
+          String.format(
+              "cannot read %d elements at index %d of a Tensor with %d elements",
+              length, index, numElements));
+    }
+  }
+
+  private IllegalArgumentException incompatibleType(DataType expected) {
+    return new IllegalArgumentException(
+        String.format("cannot read Tensor of type %s as %s", dtype, expected));
+  }
+
   private static IllegalArgumentException incompatibleBuffer(Buffer buf, DataType dataType) {
     return new IllegalArgumentException(
         String.format("cannot use %s with Tensor of type %s", buf.getClass().getName(), dataType));
@@ -628,6 +1065,9 @@ public final class Tensor<T> implements AutoCloseable {
 
       EagerReference(EagerSession session, Tensor<?> tensor) {
         super(session, tensor);
+        // Computed from the shape, as the tensor is unreachable once it is garbage-collected
+        int elementSize = tensor.dtype.byteSize();
+        this.byteSize = elementSize > 0 ? (long) elementSize * tensor.numElements() : 0L;
       }
 
       @Override
@@ -636,6 +1076,13 @@ public final class Tensor<T> implements AutoCloseable {
         NativeReference.this.eagerRef = null;
         NativeReference.this.release();
       }
+
+      @Override
+      long byteSize() {
+        return byteSize;
+      }
+
+      private final long byteSize;
     }
 
     NativeReference(long tensorHandle) {
@@ -806,6 +1253,9 @@ public final class Tensor<T> implements AutoCloseable {
 
   private static native long allocate(int dtype, long[] shape, long byteSize);
 
+  private static native long allocateWrapped(
+      int dtype, long[] shape, Buffer data, long byteCapacity, long byteOffset, long byteSize);
+
   private static native long allocateScalarBytes(byte[] value);
 
   private static native long allocateNonScalarBytes(long[] shape, Object[] value);
@@ -0,0 +1,269 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A pool recycling the native memory of {@link Tensor Tensors}.
+ *
+ * <p>Tensors created by a pool borrow their data buffer from it. When such a tensor is released,
+ * its buffer is returned to the pool instead of being freed, and is reused by the next tensor
+ * created with a similar size. This avoids the cost of allocating and freeing native memory for
+ * applications creating a lot of tensors of identical shapes, like a server feeding requests to a
+ * model. For example:
+ *
+ * <pre>{@code
+ * try (TensorPool pool = TensorPool.create()) {
+ *   while (serving) {
+ *     try (Tensor<Float> x = pool.createTensor(shape, nextRequest())) {
+ *       // ...
+ *     }
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>Buffers are grouped in size classes of powers of two. Idle buffers are kept until the pool
+ * reaches its capacity, in which case the least recently released buffers are freed first.
+ *
+ * <p>Tensors of type {@link DataType#STRING} are never pooled. Tensors returned by a {@link
+ * Session} are allocated by the TensorFlow runtime and cannot be pooled either; use {@link
+ * Session.Runner#runInto(java.nio.Buffer[])} to fetch values without allocating new tensors.
+ *
+ * <p><b>WARNING:</b> A {@code TensorPool} owns resources that <b>must</b> be explicitly freed by
+ * invoking {@link #close()}. Tensors created by the pool can still be used after it has been
+ * closed, their buffer is then freed when they are released.
+ *
+ * <p>Instances of a TensorPool are thread-safe.
+ */
+public final class TensorPool implements AutoCloseable {
+
+  public static class Options {
+
+    /**
+     * Maximum number of bytes retained by idle buffers of the pool.
+     *
+     * <p>64 MB are retained by default.
+     *
+     * @param value maximum number of bytes, 0 to disable pooling
+     */
+    public Options maxPooledBytes(long value) {
+      if (value < 0) {
+        throw new IllegalArgumentException("maxPooledBytes cannot be negative");
+      }
+      maxPooledBytes = value;
+      return this;
+    }
+
+    /**
+     * Maximum number of idle buffers retained for each size class.
+     *
+     * <p>16 buffers per size class are retained by default.
+     *
+     * @param value maximum number of buffers
+     */
+    public Options maxBuffersPerSizeClass(int value) {
+      if (value < 0) {
+        throw new IllegalArgumentException("maxBuffersPerSizeClass cannot be negative");
+      }
+      maxBuffersPerSizeClass = value;
+      return this;
+    }
+
+    /** Builds a tensor pool with the selected options. */
+    public TensorPool build() {
+      return new TensorPool(this);
+    }
+
+    private long maxPooledBytes;
+    private int maxBuffersPerSizeClass;
+
+    private Options() {
+      maxPooledBytes = 64L << 20;
+      maxBuffersPerSizeClass = 16;
+    }
+  }
+
+  /** Returns a {@code TensorPool} configured with default options. */
+  public static TensorPool create() {
+    return options().build();
+  }
+
+  /** Returns an object that configures and builds a {@code TensorPool} with custom options. */
+  public static TensorPool.Options options() {
+    return new Options();
+  }
+
+  /**
+   * Creates a Tensor from a Java object, using a buffer of this pool.
+   *
+   * @see Tensor#create(Object, Class)
+   */
+  public <T> Tensor<T> createTensor(Object obj, Class<T> type) {
+    return Tensor.create(obj, type, this);
+  }
+
+  /**
+   * Creates a Tensor of any type with data from the given buffer, using a buffer of this pool.
+   *
+   * @see Tensor#create(Class, long[], ByteBuffer)
+   */
+  public <T> Tensor<T> createTensor(Class<T> type, long[] shape, ByteBuffer data) {
+    return Tensor.create(type, shape, data, this);
+  }
+
+  /**
+   * Creates an {@link Integer} Tensor with data from the given buffer, using a buffer of this pool.
+   *
+   * @see Tensor#create(long[], IntBuffer)
+   */
+  public Tensor<Integer> createTensor(long[] shape, IntBuffer data) {
+    return Tensor.create(shape, data, this);
+  }
+
+  /**
+   * Creates a {@link Float} Tensor with data from the given buffer, using a buffer of this pool.
+   *
+   * @see Tensor#create(long[], FloatBuffer)
+   */
+  public Tensor<Float> createTensor(long[] shape, FloatBuffer data) {
+    return Tensor.create(shape, data, this);
+  }
+
+  /**
+   * Creates a {@link Double} Tensor with data from the given buffer, using a buffer of this pool.
+   *
+   * @see Tensor#create(long[], DoubleBuffer)
+   */
+  public Tensor<Double> createTensor(long[] shape, DoubleBuffer data) {
+    return Tensor.create(shape, data, this);
+  }
+
+  /**
+   * Creates a {@link Long} Tensor with data from the given buffer, using a buffer of this pool.
+   *
+   * @see Tensor#create(long[], LongBuffer)
+   */
+  public Tensor<Long> createTensor(long[] shape, LongBuffer data) {
+    return Tensor.create(shape, data, this);
+  }
+
+  /** Returns the number of tensors created with a recycled buffer. */
+  public long hitCount() {
+    return stats()[0];
+  }
+
+  /** Returns the number of tensors for which a new buffer had to be allocated. */
+  public long missCount() {
+    return stats()[1];
+  }
+
+  /** Returns the number of released buffers that were freed because the pool was full. */
+  public long evictionCount() {
+    return stats()[2];
+  }
+
+  /** Returns the number of bytes currently retained by idle buffers. */
+  public long pooledBytes() {
+    return stats()[3];
+  }
+
+  /** Returns the number of buffers currently lent to tensors. */
+  public long lentBufferCount() {
+    return stats()[4];
+  }
+
+  /**
+   * Release resources associated with the TensorPool.
+   *
+   * <p>Blocks until no tensor is being created by the pool. Idle buffers are freed immediately,
+   * buffers still lent to tensors are freed when these tensors are released. The pool cannot create
+   * tensors after close returns.
+   *
+   * <p>If the calling thread is interrupted while waiting, this method returns with the interrupt
+   * status of the thread set. The pool is then already closed to any new use, but its idle buffers
+   * are only freed by calling this method again.
+   */
+  @Override
+  public void close() {
+    try {
+      refCounter.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // The pool is closed but still allocated, until close() is called again.
+      return;
+    }
+    synchronized (nativeHandleLock) {
+      if (nativeHandle == 0) {
+        return;
+      }
+      delete(nativeHandle);
+      nativeHandle = 0;
+    }
+  }
+
+  /** Allocates a tensor whose data is borrowed from this pool. */
+  long allocateTensor(DataType dtype, long[] shape, long byteSize) {
+    // The native pool synchronizes concurrent allocations itself.
+    acquire();
+    try {
+      return allocateTensor(nativeHandle, dtype.c(), shape, byteSize);
+    } finally {
+      refCounter.release();
+    }
+  }
+
+  private long[] stats() {
+    acquire();
+    try {
+      return stats(nativeHandle);
+    } finally {
+      refCounter.release();
+    }
+  }
+
+  private void acquire() {
+    if (!refCounter.acquire()) {
+      throw new IllegalStateException("close() has been called on the TensorPool");
+    }
+  }
+
+  private final Object nativeHandleLock = new Object();
+  private final ReferenceCounter refCounter = new ReferenceCounter();
+  private volatile long nativeHandle;
+
+  private TensorPool(Options options) {
+    nativeHandle = allocate(options.maxPooledBytes, options.maxBuffersPerSizeClass);
+  }
+
+  private static native long allocate(long maxPooledBytes, int maxBuffersPerSizeClass);
+
+  private static native void delete(long handle);
+
+  private static native long allocateTensor(
+      long handle, int dtype, long[] shape, long byteSize);
+
+  // Returns hits, misses, evictions, pooled bytes and lent buffers, in that order
+  private static native long[] stats(long handle);
+
+  static {
+    TensorFlow.init();
+  }
+}
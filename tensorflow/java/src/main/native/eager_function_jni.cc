@@ -0,0 +1,69 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+#include "tensorflow/java/src/main/native/eager_function_jni.h"
+
+#include <memory>
+
+#include "tensorflow/c/c_api.h"
+#include "tensorflow/c/eager/c_api.h"
+#include "tensorflow/java/src/main/native/exception_jni.h"
+#include "tensorflow/java/src/main/native/utils_jni.h"
+
+JNIEXPORT void JNICALL Java_org_tensorflow_EagerFunction_register(
+    JNIEnv* env, jclass clazz, jlong context_handle, jlong graph_handle,
+    jstring name, jlongArray input_handles, jintArray input_indices,
+    jlongArray output_handles, jintArray output_indices) {
+  if (context_handle == 0) {
+    throwException(env, kIllegalStateException, "Context has been deleted");
+    return;
+  }
+  if (graph_handle == 0) {
+    throwException(env, kIllegalStateException,
+                   "close() has been called on the Graph");
+    return;
+  }
+  TFE_Context* context = reinterpret_cast<TFE_Context*>(context_handle);
+  TF_Graph* graph = reinterpret_cast<TF_Graph*>(graph_handle);
+
+  const jint ninputs = env->GetArrayLength(input_handles);
+  const jint noutputs = env->GetArrayLength(output_handles);
+  std::unique_ptr<TF_Output[]> inputs(new TF_Output[ninputs]);
+  std::unique_ptr<TF_Output[]> outputs(new TF_Output[noutputs]);
+  resolveOutputs(env, "input", input_handles, input_indices, inputs.get(),
+                 ninputs);
+  resolveOutputs(env, "output", output_handles, output_indices, outputs.get(),
+                 noutputs);
+  if (env->ExceptionCheck()) return;
+
+  // All operations of the graph are part of the function body, which is
+  // registered once in the context and then executed like any other op.
+  const char* cname = env->GetStringUTFChars(name, nullptr);
+  TF_Status* status = TF_NewStatus();
+  TF_Function* function = TF_GraphToFunction(
+      graph, cname, /*append_hash_to_fn_name=*/0, /*num_opers=*/-1,
+      /*opers=*/nullptr, ninputs, inputs.get(), noutputs, outputs.get(),
+      /*output_names=*/nullptr, /*opts=*/nullptr, /*description=*/nullptr,
+      status);
+  env->ReleaseStringUTFChars(name, cname);
+  if (!throwExceptionIfNotOK(env, status)) {
+    TF_DeleteStatus(status);
+    return;
+  }
+  TFE_ContextAddFunction(context, function, status);
+  TF_DeleteFunction(function);
+  throwExceptionIfNotOK(env, status);
+  TF_DeleteStatus(status);
+}
@@ -20,6 +20,7 @@ limitations under the License.
 #include <set>
 
 #include "tensorflow/c/eager/c_api.h"
+#include "tensorflow/c/eager/c_api_experimental.h"
 #include "tensorflow/java/src/main/native/exception_jni.h"
 
 // This value should be >= to the maximum number of outputs in any op
@@ -82,6 +83,36 @@ JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperationBuilder_allocate(
   return reinterpret_cast<jlong>(op);
 }
 
+JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperationBuilder_allocateFromTemplate(
+    JNIEnv* env, jclass clazz, jlong context_handle, jstring name,
+    jlong template_handle) {
+  TFE_Context* context = requireContext(env, context_handle);
+  if (context == nullptr) return 0;
+  TFE_Op* template_op = requireOp(env, template_handle);
+  if (template_op == nullptr) return 0;
+  const char* op_or_function_name = env->GetStringUTFChars(name, nullptr);
+  TF_Status* status = TF_NewStatus();
+  TFE_Op* op = TFE_NewOp(context, op_or_function_name, status);
+  env->ReleaseStringUTFChars(name, op_or_function_name);
+  if (!throwExceptionIfNotOK(env, status)) {
+    TF_DeleteStatus(status);
+    return 0;
+  }
+  // Copies all attributes at once, instead of one JNI call per attribute.
+  TFE_OpAddAttrs(op, TFE_OpGetAttrs(template_op));
+  const char* device = TFE_OpGetDevice(template_op, status);
+  if (TF_GetCode(status) == TF_OK && device[0] != '\0') {
+    TFE_OpSetDevice(op, device, status);
+  }
+  if (!throwExceptionIfNotOK(env, status)) {
+    TFE_DeleteOp(op);
+    TF_DeleteStatus(status);
+    return 0;
+  }
+  TF_DeleteStatus(status);
+  return reinterpret_cast<jlong>(op);
+}
+
 JNIEXPORT void JNICALL Java_org_tensorflow_EagerOperationBuilder_delete(
     JNIEnv* env, jclass clazz, jlong op_handle) {
   if (op_handle == 0) return;
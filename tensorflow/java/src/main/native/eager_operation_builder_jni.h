@@ -30,6 +30,16 @@ extern "C" {
 JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperationBuilder_allocate(
     JNIEnv *, jclass, jlong, jstring);
 
+/*
+ * Class:     org_tensorflow_EagerOperationBuilder
+ * Method:    allocateFromTemplate
+ * Signature: (JLjava/lang/String;J)J
+ */
+JNIEXPORT jlong JNICALL
+Java_org_tensorflow_EagerOperationBuilder_allocateFromTemplate(JNIEnv *, jclass,
+                                                               jlong, jstring,
+                                                               jlong);
+
 /*
  * Class:     org_tensorflow_EagerOperationBuilder
  * Method:    delete
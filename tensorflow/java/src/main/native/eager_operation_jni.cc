@@ -75,6 +75,42 @@ JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperation_resolveTensorHandle(
   return reinterpret_cast<jlong>(tensor);
 }
 
+JNIEXPORT jlongArray JNICALL
+Java_org_tensorflow_EagerOperation_resolveTensorHandles(JNIEnv* env,
+                                                        jclass clazz,
+                                                        jlongArray handles) {
+  const jint num_handles = env->GetArrayLength(handles);
+  jlongArray tensors = env->NewLongArray(num_handles);
+  if (num_handles == 0) return tensors;
+  jlong* handle_elems = env->GetLongArrayElements(handles, nullptr);
+  jlong* tensor_elems = env->GetLongArrayElements(tensors, nullptr);
+  TF_Status* status = TF_NewStatus();
+  jint num_resolved = 0;
+  for (; num_resolved < num_handles; ++num_resolved) {
+    TFE_TensorHandle* tensor_handle =
+        requireTensorHandle(env, handle_elems[num_resolved]);
+    if (tensor_handle == nullptr) break;
+    TF_Tensor* tensor = TFE_TensorHandleResolve(tensor_handle, status);
+    if (TF_GetCode(status) != TF_OK) break;
+    tensor_elems[num_resolved] = reinterpret_cast<jlong>(tensor);
+  }
+  if (num_resolved < num_handles) {
+    // Release the tensors already resolved before reporting the failure.
+    for (jint i = 0; i < num_resolved; ++i) {
+      TF_DeleteTensor(reinterpret_cast<TF_Tensor*>(tensor_elems[i]));
+    }
+  }
+  env->ReleaseLongArrayElements(tensors, tensor_elems, 0);
+  env->ReleaseLongArrayElements(handles, handle_elems, JNI_ABORT);
+  if (num_resolved < num_handles) {
+    throwExceptionIfNotOK(env, status);
+    TF_DeleteStatus(status);
+    return nullptr;
+  }
+  TF_DeleteStatus(status);
+  return tensors;
+}
+
 JNIEXPORT jint JNICALL Java_org_tensorflow_EagerOperation_outputListLength(
     JNIEnv* env, jclass clazz, jlong handle, jstring name) {
   TFE_Op* op = requireOp(env, handle);
@@ -115,32 +151,31 @@ JNIEXPORT jint JNICALL Java_org_tensorflow_EagerOperation_dataType(
   return static_cast<jint>(data_type);
 }
 
-JNIEXPORT jint JNICALL Java_org_tensorflow_EagerOperation_numDims(
+JNIEXPORT jlongArray JNICALL Java_org_tensorflow_EagerOperation_shape(
     JNIEnv* env, jclass clazz, jlong handle) {
   TFE_TensorHandle* tensor_handle = requireTensorHandle(env, handle);
-  if (tensor_handle == nullptr) return 0;
+  if (tensor_handle == nullptr) return nullptr;
+  // Retrieves all dimensions at once, as each of these calls waits for the
+  // operation producing the tensor in asynchronous sessions.
   TF_Status* status = TF_NewStatus();
   int num_dims = TFE_TensorHandleNumDims(tensor_handle, status);
   if (!throwExceptionIfNotOK(env, status)) {
     TF_DeleteStatus(status);
-    return 0;
+    return nullptr;
+  }
+  jlongArray shape = env->NewLongArray(num_dims);
+  if (num_dims > 0) {
+    jlong* dims = env->GetLongArrayElements(shape, nullptr);
+    for (int i = 0; i < num_dims && TF_GetCode(status) == TF_OK; ++i) {
+      dims[i] =
+          static_cast<jlong>(TFE_TensorHandleDim(tensor_handle, i, status));
+    }
+    env->ReleaseLongArrayElements(shape, dims, 0);
   }
-  TF_DeleteStatus(status);
-  return static_cast<jint>(num_dims);
-}
-
-JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperation_dim(JNIEnv* env,
-                                                               jclass clazz,
-                                                               jlong handle,
-                                                               jint dim_index) {
-  TFE_TensorHandle* tensor_handle = requireTensorHandle(env, handle);
-  if (tensor_handle == nullptr) return 0;
-  TF_Status* status = TF_NewStatus();
-  int64_t dim = TFE_TensorHandleDim(tensor_handle, dim_index, status);
   if (!throwExceptionIfNotOK(env, status)) {
     TF_DeleteStatus(status);
-    return 0;
+    return nullptr;
   }
   TF_DeleteStatus(status);
-  return static_cast<jlong>(dim);
+  return shape;
 }
@@ -46,6 +46,15 @@ Java_org_tensorflow_EagerOperation_deleteTensorHandle(JNIEnv *, jclass, jlong);
 JNIEXPORT jlong JNICALL
 Java_org_tensorflow_EagerOperation_resolveTensorHandle(JNIEnv *, jclass, jlong);
 
+/**
+ * Class:     org_tensorflow_EagerOperation
+ * Method:    resolveTensorHandles
+ * Signature: ([J)[J
+ */
+JNIEXPORT jlongArray JNICALL
+Java_org_tensorflow_EagerOperation_resolveTensorHandles(JNIEnv *, jclass,
+                                                        jlongArray);
+
 /**
  * Class:     org_tensorflow_EagerOperation
  * Method:    outputListLength
@@ -73,20 +82,12 @@ JNIEXPORT jint JNICALL Java_org_tensorflow_EagerOperation_dataType(JNIEnv *,
 
 /**
  * Class:     org_tensorflow_EagerOperation
- * Method:    numDims
- * Signature: (J)I
- */
-JNIEXPORT jint JNICALL Java_org_tensorflow_EagerOperation_numDims(JNIEnv *,
-                                                                  jclass,
-                                                                  jlong);
-
-/**
- * Class:     org_tensorflow_EagerOperation
- * Method:    dim
- * Signature: (JI)J
+ * Method:    shape
+ * Signature: (J)[J
  */
-JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperation_dim(JNIEnv *, jclass,
-                                                               jlong, jint);
+JNIEXPORT jlongArray JNICALL Java_org_tensorflow_EagerOperation_shape(JNIEnv *,
+                                                                      jclass,
+                                                                      jlong);
 
 #ifdef __cplusplus
 }  // extern "C"
@@ -19,6 +19,7 @@ limitations under the License.
 #include <memory>
 
 #include "tensorflow/c/eager/c_api.h"
+#include "tensorflow/c/eager/c_api_experimental.h"
 #include "tensorflow/java/src/main/native/exception_jni.h"
 
 JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerSession_allocate(
@@ -62,3 +63,16 @@ JNIEXPORT void JNICALL Java_org_tensorflow_EagerSession_delete(JNIEnv* env,
   if (handle == 0) return;
   TFE_DeleteContext(reinterpret_cast<TFE_Context*>(handle));
 }
+
+JNIEXPORT void JNICALL Java_org_tensorflow_EagerSession_sync(JNIEnv* env,
+                                                             jclass clazz,
+                                                             jlong handle) {
+  if (handle == 0) {
+    throwException(env, kIllegalStateException, "Context has been deleted");
+    return;
+  }
+  TF_Status* status = TF_NewStatus();
+  TFE_ContextAsyncWait(reinterpret_cast<TFE_Context*>(handle), status);
+  throwExceptionIfNotOK(env, status);
+  TF_DeleteStatus(status);
+}
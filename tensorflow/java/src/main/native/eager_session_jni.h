@@ -38,6 +38,14 @@ JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerSession_allocate(
 JNIEXPORT void JNICALL Java_org_tensorflow_EagerSession_delete(JNIEnv *, jclass,
                                                                jlong);
 
+/*
+ * Class:     org_tensorflow_EagerSession
+ * Method:    sync
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_tensorflow_EagerSession_sync(JNIEnv *, jclass,
+                                                             jlong);
+
 #ifdef __cplusplus
 }  // extern "C"
 #endif  // __cplusplus
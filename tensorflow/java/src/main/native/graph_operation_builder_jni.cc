@@ -16,6 +16,8 @@ limitations under the License.
 #include "tensorflow/java/src/main/native/graph_operation_builder_jni.h"
 #include <cstring>
 #include <memory>
+#include <string>
+#include <vector>
 #include "tensorflow/c/c_api.h"
 #include "tensorflow/java/src/main/native/exception_jni.h"
 
@@ -48,6 +50,206 @@ TF_Tensor* requireTensor(JNIEnv* env, jlong handle) {
   }
   return reinterpret_cast<TF_Tensor*>(handle);
 }
+
+// Codes of the operations encoded by GraphOperationBatch.java, each followed
+// by its arguments.
+enum BatchCode {
+  kBeginOperation = 0,
+  kInput = 1,
+  kInputList = 2,
+  kControlInput = 3,
+  kDevice = 4,
+  kAttrString = 5,
+  kAttrStringList = 6,
+  kAttrInt = 7,
+  kAttrIntList = 8,
+  kAttrFloat = 9,
+  kAttrFloatList = 10,
+  kAttrBool = 11,
+  kAttrBoolList = 12,
+  kAttrType = 13,
+  kAttrTypeList = 14,
+  kAttrTensor = 15,
+  kAttrShape = 16,
+};
+
+// Kinds of references to the operation of an input.
+const jlong kExistingOperation = 0;
+const jlong kPendingOperation = 1;
+
+// Reads the operations encoded by a GraphOperationBatch.
+class BatchReader {
+ public:
+  BatchReader(const jlong* code, jint length, const jbyte* strings,
+              const jlong* tensors, jint num_tensors,
+              const std::vector<TF_Operation*>* operations)
+      : code_(code),
+        length_(length),
+        strings_(reinterpret_cast<const char*>(strings)),
+        tensors_(tensors),
+        num_tensors_(num_tensors),
+        operations_(operations) {}
+
+  bool done() const { return position_ >= length_; }
+
+  jlong next() { return code_[position_++]; }
+
+  float nextFloat() {
+    const int32_t bits = static_cast<int32_t>(next());
+    float value;
+    std::memcpy(&value, &bits, sizeof(value));
+    return value;
+  }
+
+  std::string nextString() {
+    const jlong offset = next();
+    const jlong length = next();
+    return std::string(strings_ + offset, static_cast<size_t>(length));
+  }
+
+  // Returns nullptr if the tensor cannot be resolved.
+  TF_Tensor* nextTensor() {
+    const jlong index = next();
+    if (index < 0 || index >= num_tensors_) return nullptr;
+    return reinterpret_cast<TF_Tensor*>(tensors_[index]);
+  }
+
+  TF_Operation* nextOperation() {
+    const jlong kind = next();
+    const jlong ref = next();
+    if (kind == kPendingOperation) {
+      // Pending operations can only refer to operations created before them.
+      return (*operations_)[static_cast<size_t>(ref)];
+    }
+    return reinterpret_cast<TF_Operation*>(ref);
+  }
+
+  TF_Output nextOutput() {
+    TF_Output output;
+    output.oper = nextOperation();
+    output.index = static_cast<int>(next());
+    return output;
+  }
+
+ private:
+  const jlong* code_;
+  const jint length_;
+  const char* strings_;
+  const jlong* tensors_;
+  const jint num_tensors_;
+  const std::vector<TF_Operation*>* operations_;
+  jint position_ = 0;
+};
+
+// Applies an encoded input, device or attribute to an operation description.
+void readBatchCode(BatchReader* in, jlong code, TF_OperationDescription* d,
+                   TF_Status* status) {
+  if (code == kInput) {
+    TF_AddInput(d, in->nextOutput());
+    return;
+  }
+  if (code == kInputList) {
+    const int n = static_cast<int>(in->next());
+    std::vector<TF_Output> inputs(n);
+    for (int i = 0; i < n; ++i) inputs[i] = in->nextOutput();
+    TF_AddInputList(d, inputs.data(), n);
+    return;
+  }
+  if (code == kControlInput) {
+    TF_AddControlInput(d, in->nextOperation());
+    return;
+  }
+  if (code == kDevice) {
+    TF_SetDevice(d, in->nextString().c_str());
+    return;
+  }
+  const std::string name = in->nextString();
+  switch (code) {
+    case kAttrString: {
+      const std::string value = in->nextString();
+      TF_SetAttrString(d, name.c_str(), value.data(), value.size());
+      break;
+    }
+    case kAttrStringList: {
+      const int n = static_cast<int>(in->next());
+      std::vector<std::string> values(n);
+      std::vector<const void*> cvalues(n);
+      std::vector<size_t> lengths(n);
+      for (int i = 0; i < n; ++i) {
+        values[i] = in->nextString();
+        cvalues[i] = values[i].data();
+        lengths[i] = values[i].size();
+      }
+      TF_SetAttrStringList(d, name.c_str(), cvalues.data(), lengths.data(), n);
+      break;
+    }
+    case kAttrInt:
+      TF_SetAttrInt(d, name.c_str(), static_cast<int64_t>(in->next()));
+      break;
+    case kAttrIntList: {
+      const int n = static_cast<int>(in->next());
+      std::vector<int64_t> values(n);
+      for (int i = 0; i < n; ++i) values[i] = static_cast<int64_t>(in->next());
+      TF_SetAttrIntList(d, name.c_str(), values.data(), n);
+      break;
+    }
+    case kAttrFloat:
+      TF_SetAttrFloat(d, name.c_str(), in->nextFloat());
+      break;
+    case kAttrFloatList: {
+      const int n = static_cast<int>(in->next());
+      std::vector<float> values(n);
+      for (int i = 0; i < n; ++i) values[i] = in->nextFloat();
+      TF_SetAttrFloatList(d, name.c_str(), values.data(), n);
+      break;
+    }
+    case kAttrBool:
+      TF_SetAttrBool(d, name.c_str(), static_cast<unsigned char>(in->next()));
+      break;
+    case kAttrBoolList: {
+      const int n = static_cast<int>(in->next());
+      std::vector<unsigned char> values(n);
+      for (int i = 0; i < n; ++i) {
+        values[i] = static_cast<unsigned char>(in->next());
+      }
+      TF_SetAttrBoolList(d, name.c_str(), values.data(), n);
+      break;
+    }
+    case kAttrType:
+      TF_SetAttrType(d, name.c_str(), static_cast<TF_DataType>(in->next()));
+      break;
+    case kAttrTypeList: {
+      const int n = static_cast<int>(in->next());
+      std::vector<TF_DataType> values(n);
+      for (int i = 0; i < n; ++i) {
+        values[i] = static_cast<TF_DataType>(in->next());
+      }
+      TF_SetAttrTypeList(d, name.c_str(), values.data(), n);
+      break;
+    }
+    case kAttrTensor: {
+      TF_Tensor* tensor = in->nextTensor();
+      if (tensor == nullptr) {
+        TF_SetStatus(status, TF_FAILED_PRECONDITION,
+                     "close() has been called on the Tensor");
+        break;
+      }
+      TF_SetAttrTensor(d, name.c_str(), tensor, status);
+      break;
+    }
+    case kAttrShape: {
+      const int num_dims = static_cast<int>(in->next());
+      std::vector<int64_t> dims(num_dims > 0 ? num_dims : 0);
+      for (size_t i = 0; i < dims.size(); ++i) {
+        dims[i] = static_cast<int64_t>(in->next());
+      }
+      TF_SetAttrShape(d, name.c_str(), dims.data(), num_dims);
+      break;
+    }
+    default:
+      TF_SetStatus(status, TF_INTERNAL, "Invalid operation batch");
+  }
+}
 }  // namespace
 
 JNIEXPORT jlong JNICALL Java_org_tensorflow_GraphOperationBuilder_allocate(
@@ -333,3 +535,71 @@ Java_org_tensorflow_GraphOperationBuilder_setAttrStringList(
   }
   env->ReleaseStringUTFChars(name, cname);
 }
+
+JNIEXPORT jlongArray JNICALL
+Java_org_tensorflow_GraphOperationBuilder_buildBatch(
+    JNIEnv* env, jclass clazz, jlong graph_handle, jint num_operations,
+    jlongArray code, jbyteArray strings, jlongArray tensors) {
+  if (graph_handle == 0) {
+    throwException(env, kIllegalStateException,
+                   "close() has been called on the Graph");
+    return nullptr;
+  }
+  TF_Graph* graph = reinterpret_cast<TF_Graph*>(graph_handle);
+  std::vector<TF_Operation*> operations;
+  operations.reserve(num_operations);
+  jlong* code_elems = env->GetLongArrayElements(code, nullptr);
+  jbyte* string_elems = env->GetByteArrayElements(strings, nullptr);
+  jlong* tensor_elems = env->GetLongArrayElements(tensors, nullptr);
+  BatchReader in(code_elems, env->GetArrayLength(code), string_elems,
+                 tensor_elems, env->GetArrayLength(tensors), &operations);
+
+  TF_Status* status = TF_NewStatus();
+  TF_OperationDescription* d = nullptr;
+  while (!in.done() && TF_GetCode(status) == TF_OK) {
+    const jlong batch_code = in.next();
+    if (batch_code != kBeginOperation) {
+      readBatchCode(&in, batch_code, d, status);
+      continue;
+    }
+    if (d != nullptr) {
+      operations.push_back(TF_FinishOperation(d, status));
+      d = nullptr;
+      if (TF_GetCode(status) != TF_OK) break;
+    }
+    const std::string type = in.nextString();
+    const std::string name = in.nextString();
+    d = TF_NewOperation(graph, type.c_str(), name.c_str());
+  }
+  if (d != nullptr) {
+    if (TF_GetCode(status) == TF_OK) {
+      operations.push_back(TF_FinishOperation(d, status));
+    } else {
+      // Releases the description of the operation that failed. This still adds
+      // the operation to the graph if it is valid with the inputs and
+      // attributes set before the failure, as documented by flush().
+      TF_Status* finish_status = TF_NewStatus();
+      TF_FinishOperation(d, finish_status);
+      TF_DeleteStatus(finish_status);
+    }
+  }
+  env->ReleaseLongArrayElements(tensors, tensor_elems, JNI_ABORT);
+  env->ReleaseByteArrayElements(strings, string_elems, JNI_ABORT);
+  env->ReleaseLongArrayElements(code, code_elems, JNI_ABORT);
+  if (!throwExceptionIfNotOK(env, status)) {
+    TF_DeleteStatus(status);
+    return nullptr;
+  }
+  TF_DeleteStatus(status);
+
+  const jint num_built = static_cast<jint>(operations.size());
+  jlongArray handles = env->NewLongArray(num_built);
+  if (num_built > 0) {
+    jlong* handle_elems = env->GetLongArrayElements(handles, nullptr);
+    for (jint i = 0; i < num_built; ++i) {
+      handle_elems[i] = reinterpret_cast<jlong>(operations[i]);
+    }
+    env->ReleaseLongArrayElements(handles, handle_elems, 0);
+  }
+  return handles;
+}
@@ -196,6 +196,16 @@ Java_org_tensorflow_GraphOperationBuilder_setAttrStringList(JNIEnv *, jclass,
                                                             jlong, jstring,
                                                             jobjectArray);
 
+/*
+ * Class:     org_tensorflow_GraphOperationBuilder
+ * Method:    buildBatch
+ * Signature: (JI[J[B[J)[J
+ */
+JNIEXPORT jlongArray JNICALL
+Java_org_tensorflow_GraphOperationBuilder_buildBatch(JNIEnv *, jclass, jlong,
+                                                     jint, jlongArray,
+                                                     jbyteArray, jlongArray);
+
 #ifdef __cplusplus
 }  // extern "C"
 #endif  // __cplusplus
@@ -15,6 +15,7 @@ limitations under the License.
 
 #include <string.h>
 #include <memory>
+#include <vector>
 
 #include "tensorflow/c/c_api.h"
 #include "tensorflow/java/src/main/native/utils_jni.h"
@@ -68,6 +69,28 @@ unique_tf_buffer MakeUniqueBuffer(TF_Buffer* buf) {
   return unique_tf_buffer(buf, TF_MaybeDeleteBuffer);
 }
 
+// Arguments of TF_SessionRun that remain the same across the executions of a
+// Session.Callable.
+struct CallableSpec {
+  CallableSpec() : run_options(MakeUniqueBuffer(nullptr)) {}
+
+  std::vector<TF_Output> inputs;
+  std::vector<TF_Output> outputs;
+  std::vector<TF_Operation*> targets;
+  unique_tf_buffer run_options;
+};
+
+CallableSpec* requireCallableHandle(JNIEnv* env, jlong handle) {
+  static_assert(sizeof(jlong) >= sizeof(CallableSpec*),
+                "Cannot package C object pointers as a Java long");
+  if (handle == 0) {
+    throwException(env, kNullPointerException,
+                   "close() has been called on the Callable");
+    return nullptr;
+  }
+  return reinterpret_cast<CallableSpec*>(handle);
+}
+
 }  // namespace
 
 JNIEXPORT jlong JNICALL Java_org_tensorflow_Session_allocate(
@@ -201,3 +224,140 @@ JNIEXPORT jbyteArray JNICALL Java_org_tensorflow_Session_run(
   TF_DeleteStatus(status);
   return ret;
 }
+
+JNIEXPORT jlong JNICALL Java_org_tensorflow_Session_allocateCallable(
+    JNIEnv* env, jclass clazz, jbyteArray jrun_options,
+    jlongArray input_op_handles, jintArray input_op_indices,
+    jlongArray output_op_handles, jintArray output_op_indices,
+    jlongArray target_op_handles) {
+  const jint ninputs = env->GetArrayLength(input_op_handles);
+  const jint noutputs = env->GetArrayLength(output_op_handles);
+  const jint ntargets = env->GetArrayLength(target_op_handles);
+
+  std::unique_ptr<CallableSpec> spec(new CallableSpec);
+  spec->inputs.resize(ninputs);
+  spec->outputs.resize(noutputs);
+  spec->targets.resize(ntargets);
+
+  resolveOutputs(env, "input", input_op_handles, input_op_indices,
+                 spec->inputs.data(), ninputs);
+  resolveOutputs(env, "output", output_op_handles, output_op_indices,
+                 spec->outputs.data(), noutputs);
+  resolveHandles(env, "target Operations", target_op_handles,
+                 spec->targets.data(), ntargets);
+  if (env->ExceptionCheck()) return 0;
+
+  if (jrun_options != nullptr) {
+    size_t sz = env->GetArrayLength(jrun_options);
+    if (sz > 0) {
+      // TF_NewBufferFromString copies the data, so the Java array can be
+      // released right away.
+      jbyte* jrun_options_data =
+          env->GetByteArrayElements(jrun_options, nullptr);
+      spec->run_options.reset(
+          TF_NewBufferFromString(static_cast<void*>(jrun_options_data), sz));
+      env->ReleaseByteArrayElements(jrun_options, jrun_options_data,
+                                    JNI_ABORT);
+    }
+  }
+  return reinterpret_cast<jlong>(spec.release());
+}
+
+JNIEXPORT void JNICALL Java_org_tensorflow_Session_deleteCallable(
+    JNIEnv* env, jclass clazz, jlong callable_handle) {
+  CallableSpec* spec = requireCallableHandle(env, callable_handle);
+  if (spec == nullptr) return;
+  delete spec;
+}
+
+JNIEXPORT void JNICALL Java_org_tensorflow_Session_runCallable(
+    JNIEnv* env, jclass clazz, jlong handle, jlong callable_handle,
+    jlongArray input_tensor_handles, jlongArray output_tensor_handles) {
+  TF_Session* session = requireHandle(env, handle);
+  if (session == nullptr) return;
+  CallableSpec* spec = requireCallableHandle(env, callable_handle);
+  if (spec == nullptr) return;
+
+  const jint ninputs = static_cast<jint>(spec->inputs.size());
+  const jint noutputs = static_cast<jint>(spec->outputs.size());
+
+  std::unique_ptr<TF_Tensor* []> input_values(new TF_Tensor*[ninputs]);
+  std::unique_ptr<TF_Tensor* []> output_values(new TF_Tensor*[noutputs]);
+
+  resolveHandles(env, "input Tensors", input_tensor_handles, input_values.get(),
+                 ninputs);
+  if (env->ExceptionCheck()) return;
+  if (env->GetArrayLength(output_tensor_handles) != noutputs) {
+    throwException(env, kIllegalArgumentException,
+                   "expected %d, got %d output Tensors", noutputs,
+                   env->GetArrayLength(output_tensor_handles));
+    return;
+  }
+
+  TF_Status* status = TF_NewStatus();
+  TF_SessionRun(session, spec->run_options.get(), spec->inputs.data(),
+                input_values.get(), static_cast<int>(ninputs),
+                spec->outputs.data(), output_values.get(),
+                static_cast<int>(noutputs), spec->targets.data(),
+                static_cast<int>(spec->targets.size()), nullptr, status);
+  if (!throwExceptionIfNotOK(env, status)) {
+    TF_DeleteStatus(status);
+    return;
+  }
+  TF_DeleteStatus(status);
+
+  jlong* t = env->GetLongArrayElements(output_tensor_handles, nullptr);
+  for (int i = 0; i < noutputs; ++i) {
+    t[i] = reinterpret_cast<jlong>(output_values[i]);
+  }
+  env->ReleaseLongArrayElements(output_tensor_handles, t, 0);
+}
+
+JNIEXPORT void JNICALL Java_org_tensorflow_Session_copyOutputs(
+    JNIEnv* env, jclass clazz, jlongArray output_tensor_handles,
+    jobjectArray destinations, jintArray dtypes, jlongArray offsets,
+    jlongArray capacities, jlongArray num_bytes) {
+  const jint noutputs = env->GetArrayLength(output_tensor_handles);
+  jlong* t = env->GetLongArrayElements(output_tensor_handles, nullptr);
+  jint* expected_dtypes = env->GetIntArrayElements(dtypes, nullptr);
+  jlong* offset = env->GetLongArrayElements(offsets, nullptr);
+  jlong* capacity = env->GetLongArrayElements(capacities, nullptr);
+  jlong* copied = env->GetLongArrayElements(num_bytes, nullptr);
+  for (int i = 0; i < noutputs; ++i) {
+    TF_Tensor* tensor = reinterpret_cast<TF_Tensor*>(t[i]);
+    if (tensor == nullptr) continue;
+    // Once an exception is pending, remaining tensors are only deleted.
+    if (!env->ExceptionCheck()) {
+      const TF_DataType dtype = TF_TensorType(tensor);
+      const size_t sz = TF_TensorByteSize(tensor);
+      jobject dst = env->GetObjectArrayElement(destinations, i);
+      char* address = static_cast<char*>(env->GetDirectBufferAddress(dst));
+      env->DeleteLocalRef(dst);
+      if (address == nullptr) {
+        throwException(env, kIllegalArgumentException,
+                       "destination buffer #%d is not a direct buffer", i);
+      } else if (dtype == TF_STRING ||
+                 (expected_dtypes[i] >= 0 && dtype != expected_dtypes[i])) {
+        throwException(env, kIllegalArgumentException,
+                       "cannot copy fetch #%d of type %d into destination "
+                       "buffer #%d",
+                       i, dtype, i);
+      } else if (sz > static_cast<size_t>(capacity[i])) {
+        throwException(env, kIllegalArgumentException,
+                       "fetch #%d has %lld bytes but destination buffer #%d "
+                       "has only %lld bytes remaining",
+                       i, static_cast<long long>(sz), i,
+                       static_cast<long long>(capacity[i]));
+      } else {
+        memcpy(address + offset[i], TF_TensorData(tensor), sz);
+        copied[i] = static_cast<jlong>(sz);
+      }
+    }
+    TF_DeleteTensor(tensor);
+  }
+  env->ReleaseLongArrayElements(num_bytes, copied, 0);
+  env->ReleaseLongArrayElements(capacities, capacity, JNI_ABORT);
+  env->ReleaseLongArrayElements(offsets, offset, JNI_ABORT);
+  env->ReleaseIntArrayElements(dtypes, expected_dtypes, JNI_ABORT);
+  env->ReleaseLongArrayElements(output_tensor_handles, t, JNI_ABORT);
+}
@@ -56,6 +56,44 @@ JNIEXPORT jbyteArray JNICALL Java_org_tensorflow_Session_run(
     JNIEnv *, jclass, jlong, jbyteArray, jlongArray, jlongArray, jintArray,
     jlongArray, jintArray, jlongArray, jboolean, jlongArray);
 
+/*
+ * Class:     org_tensorflow_Session
+ * Method:    allocateCallable
+ * Signature: ([B[J[I[J[I[J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_tensorflow_Session_allocateCallable(
+    JNIEnv *, jclass, jbyteArray, jlongArray, jintArray, jlongArray, jintArray,
+    jlongArray);
+
+/*
+ * Class:     org_tensorflow_Session
+ * Method:    deleteCallable
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_tensorflow_Session_deleteCallable(JNIEnv *,
+                                                                  jclass,
+                                                                  jlong);
+
+/*
+ * Class:     org_tensorflow_Session
+ * Method:    runCallable
+ * Signature: (JJ[J[J)V
+ */
+JNIEXPORT void JNICALL Java_org_tensorflow_Session_runCallable(JNIEnv *,
+                                                               jclass, jlong,
+                                                               jlong,
+                                                               jlongArray,
+                                                               jlongArray);
+
+/*
+ * Class:     org_tensorflow_Session
+ * Method:    copyOutputs
+ * Signature: ([J[Ljava/nio/Buffer;[I[J[J[J)V
+ */
+JNIEXPORT void JNICALL Java_org_tensorflow_Session_copyOutputs(
+    JNIEnv *, jclass, jlongArray, jobjectArray, jintArray, jlongArray,
+    jlongArray, jlongArray);
+
 #ifdef __cplusplus
 }  // extern "C"
 #endif  // __cplusplus
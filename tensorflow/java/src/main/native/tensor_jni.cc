@@ -322,6 +322,92 @@ JNIEXPORT jlong JNICALL Java_org_tensorflow_Tensor_allocate(JNIEnv* env,
   return reinterpret_cast<jlong>(t);
 }
 
+namespace {
+// Keeps a direct buffer wrapped by a TF_Tensor reachable until TensorFlow no
+// longer refers to its memory.
+struct WrappedBuffer {
+  JavaVM* vm;
+  jobject buffer;
+};
+
+void releaseWrappedBuffer(void* data, size_t len, void* arg) {
+  WrappedBuffer* wrapped = static_cast<WrappedBuffer*>(arg);
+  JNIEnv* env = nullptr;
+  bool attached = false;
+  if (wrapped->vm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6) ==
+      JNI_EDETACHED) {
+    // The last reference to a tensor might be released by one of the threads
+    // of the TensorFlow runtime.
+#ifdef __ANDROID__
+    JNIEnv** penv = &env;
+#else
+    void** penv = reinterpret_cast<void**>(&env);
+#endif
+    if (wrapped->vm->AttachCurrentThread(penv, nullptr) != JNI_OK) {
+      // Leak the global reference rather than crashing.
+      delete wrapped;
+      return;
+    }
+    attached = true;
+  }
+  env->DeleteGlobalRef(wrapped->buffer);
+  if (attached) {
+    wrapped->vm->DetachCurrentThread();
+  }
+  delete wrapped;
+}
+}  // namespace
+
+JNIEXPORT jlong JNICALL Java_org_tensorflow_Tensor_allocateWrapped(
+    JNIEnv* env, jclass clazz, jint dtype, jlongArray shape, jobject data,
+    jlong byte_capacity, jlong byte_offset, jlong byte_size) {
+  char* address = static_cast<char*>(env->GetDirectBufferAddress(data));
+  if (address == nullptr) {
+    throwException(env, kIllegalArgumentException,
+                   "only direct buffers can be wrapped by a Tensor");
+    return 0;
+  }
+  // GetDirectBufferCapacity counts elements, not bytes, for typed views of a
+  // buffer (e.g. FloatBuffer), so the capacity in bytes is given by the caller.
+  if (byte_offset < 0 || byte_size < 0 || byte_capacity < 0 ||
+      byte_offset + byte_size > byte_capacity) {
+    throwException(env, kIllegalArgumentException,
+                   "buffer is too small for a Tensor of %lld bytes",
+                   static_cast<long long>(byte_size));
+    return 0;
+  }
+  WrappedBuffer* wrapped = new WrappedBuffer;
+  if (env->GetJavaVM(&wrapped->vm) != JNI_OK) {
+    delete wrapped;
+    throwException(env, kIllegalStateException,
+                   "unable to obtain the Java virtual machine");
+    return 0;
+  }
+  wrapped->buffer = env->NewGlobalRef(data);
+
+  const int num_dims = static_cast<int>(env->GetArrayLength(shape));
+  std::unique_ptr<int64_t[]> dims(new int64_t[num_dims]);
+  if (num_dims > 0) {
+    jlong* jdims = env->GetLongArrayElements(shape, nullptr);
+    for (int i = 0; i < num_dims; ++i) {
+      dims[i] = static_cast<int64_t>(jdims[i]);
+    }
+    env->ReleaseLongArrayElements(shape, jdims, JNI_ABORT);
+  }
+  // If the data is not properly aligned, TF_NewTensor copies it and releases
+  // the buffer right away.
+  TF_Tensor* t = TF_NewTensor(static_cast<TF_DataType>(dtype), dims.get(),
+                              num_dims, address + byte_offset,
+                              static_cast<size_t>(byte_size),
+                              releaseWrappedBuffer, wrapped);
+  if (t == nullptr) {
+    throwException(env, kNullPointerException,
+                   "unable to allocate memory for the Tensor");
+    return 0;
+  }
+  return reinterpret_cast<jlong>(t);
+}
+
 JNIEXPORT jlong JNICALL Java_org_tensorflow_Tensor_allocateScalarBytes(
     JNIEnv* env, jclass clazz, jbyteArray value) {
   // TF_STRING tensors are encoded with a table of 8-byte offsets followed by
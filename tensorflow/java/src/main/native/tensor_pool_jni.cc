@@ -0,0 +1,271 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+#include "tensorflow/java/src/main/native/tensor_pool_jni.h"
+
+#include <stdint.h>
+#include <stdlib.h>
+#include <deque>
+#include <list>
+#include <map>
+#include <memory>
+#include <mutex>
+
+#include "tensorflow/c/c_api.h"
+#include "tensorflow/java/src/main/native/exception_jni.h"
+
+namespace {
+
+// TF_NewTensor copies any data that is not aligned on this boundary.
+constexpr size_t kAlignment = 64;
+constexpr int kMinSizeClass = 6;  // log2(kAlignment)
+constexpr int kMaxSizeClass = 62;
+
+class TensorPool;
+
+// A block of native memory lent by a pool to a tensor.
+struct PooledBlock {
+  TensorPool* pool;
+  void* base;
+  void* data;
+  int size_class;
+};
+
+size_t sizeOfClass(int size_class) {
+  return static_cast<size_t>(1) << size_class;
+}
+
+// Recycles the memory of released tensors into size classes of powers of two.
+//
+// Idle blocks are kept in the order they were released, so that the least
+// recently used are evicted first when the pool is full. The pool deletes
+// itself once it has been closed and all the blocks it lent are released.
+class TensorPool {
+ public:
+  TensorPool(size_t max_pooled_bytes, size_t max_blocks_per_class)
+      : max_pooled_bytes_(max_pooled_bytes),
+        max_blocks_per_class_(max_blocks_per_class),
+        closed_(false),
+        pooled_bytes_(0),
+        num_lent_(0),
+        hits_(0),
+        misses_(0),
+        evictions_(0) {}
+
+  // Returns a block of at least len bytes, or nullptr if it cannot be
+  // allocated.
+  PooledBlock* Acquire(size_t len) {
+    int size_class = kMinSizeClass;
+    while (sizeOfClass(size_class) < len) {
+      if (++size_class > kMaxSizeClass) return nullptr;
+    }
+    {
+      std::lock_guard<std::mutex> lock(mu_);
+      ++num_lent_;
+      auto it = idle_.find(size_class);
+      if (it != idle_.end() && !it->second.empty()) {
+        PooledBlock* block = *it->second.back();
+        lru_.erase(it->second.back());
+        it->second.pop_back();
+        pooled_bytes_ -= sizeOfClass(size_class);
+        ++hits_;
+        return block;
+      }
+      ++misses_;
+    }
+    PooledBlock* block = NewBlock(size_class);
+    if (block == nullptr) Release(nullptr);
+    return block;
+  }
+
+  // Takes back a block lent by this pool, or only decrements the number of
+  // lent blocks if block is null.
+  void Release(PooledBlock* block) {
+    bool destroy = false;
+    {
+      std::lock_guard<std::mutex> lock(mu_);
+      --num_lent_;
+      if (block != nullptr) {
+        const size_t size = sizeOfClass(block->size_class);
+        std::deque<std::list<PooledBlock*>::iterator>& blocks =
+            idle_[block->size_class];
+        if (closed_) {
+          FreeBlock(block);
+        } else if (size > max_pooled_bytes_ ||
+                   blocks.size() >= max_blocks_per_class_) {
+          FreeBlock(block);
+          ++evictions_;
+        } else {
+          while (pooled_bytes_ + size > max_pooled_bytes_) {
+            EvictOldestLocked();
+          }
+          lru_.push_front(block);
+          blocks.push_back(lru_.begin());
+          pooled_bytes_ += size;
+        }
+      }
+      destroy = closed_ && num_lent_ == 0;
+    }
+    if (destroy) delete this;
+  }
+
+  // Frees all idle blocks. Blocks that are still lent are freed when released.
+  void Close() {
+    bool destroy = false;
+    {
+      std::lock_guard<std::mutex> lock(mu_);
+      closed_ = true;
+      for (PooledBlock* block : lru_) {
+        FreeBlock(block);
+      }
+      lru_.clear();
+      idle_.clear();
+      pooled_bytes_ = 0;
+      destroy = num_lent_ == 0;
+    }
+    if (destroy) delete this;
+  }
+
+  void Stats(jlong* stats) {
+    std::lock_guard<std::mutex> lock(mu_);
+    stats[0] = static_cast<jlong>(hits_);
+    stats[1] = static_cast<jlong>(misses_);
+    stats[2] = static_cast<jlong>(evictions_);
+    stats[3] = static_cast<jlong>(pooled_bytes_);
+    stats[4] = static_cast<jlong>(num_lent_);
+  }
+
+ private:
+  ~TensorPool() {}
+
+  PooledBlock* NewBlock(int size_class) {
+    void* base = malloc(sizeOfClass(size_class) + kAlignment - 1);
+    if (base == nullptr) return nullptr;
+    PooledBlock* block = new PooledBlock;
+    block->pool = this;
+    block->base = base;
+    block->data = reinterpret_cast<void*>(
+        (reinterpret_cast<uintptr_t>(base) + kAlignment - 1) &
+        ~(static_cast<uintptr_t>(kAlignment) - 1));
+    block->size_class = size_class;
+    return block;
+  }
+
+  static void FreeBlock(PooledBlock* block) {
+    free(block->base);
+    delete block;
+  }
+
+  void EvictOldestLocked() {
+    PooledBlock* block = lru_.back();
+    // Blocks of a size class are queued in release order, so the oldest idle
+    // block of the pool is also the oldest of its class.
+    idle_[block->size_class].pop_front();
+    lru_.pop_back();
+    pooled_bytes_ -= sizeOfClass(block->size_class);
+    FreeBlock(block);
+    ++evictions_;
+  }
+
+  const size_t max_pooled_bytes_;
+  const size_t max_blocks_per_class_;
+
+  std::mutex mu_;
+  bool closed_;
+  std::list<PooledBlock*> lru_;  // most recently released first
+  std::map<int, std::deque<std::list<PooledBlock*>::iterator>> idle_;
+  size_t pooled_bytes_;
+  size_t num_lent_;
+  uint64_t hits_;
+  uint64_t misses_;
+  uint64_t evictions_;
+};
+
+void releasePooledBlock(void* data, size_t len, void* arg) {
+  PooledBlock* block = static_cast<PooledBlock*>(arg);
+  block->pool->Release(block);
+}
+
+TensorPool* requireHandle(JNIEnv* env, jlong handle) {
+  static_assert(sizeof(jlong) >= sizeof(TensorPool*),
+                "Cannot package C object pointers as a Java long");
+  if (handle == 0) {
+    throwException(env, kNullPointerException,
+                   "close() has been called on the TensorPool");
+    return nullptr;
+  }
+  return reinterpret_cast<TensorPool*>(handle);
+}
+
+}  // namespace
+
+JNIEXPORT jlong JNICALL Java_org_tensorflow_TensorPool_allocate(
+    JNIEnv* env, jclass clazz, jlong max_pooled_bytes,
+    jint max_buffers_per_size_class) {
+  TensorPool* pool =
+      new TensorPool(static_cast<size_t>(max_pooled_bytes),
+                     static_cast<size_t>(max_buffers_per_size_class));
+  return reinterpret_cast<jlong>(pool);
+}
+
+JNIEXPORT void JNICALL Java_org_tensorflow_TensorPool_delete(JNIEnv* env,
+                                                             jclass clazz,
+                                                             jlong handle) {
+  if (handle == 0) return;
+  reinterpret_cast<TensorPool*>(handle)->Close();
+}
+
+JNIEXPORT jlong JNICALL Java_org_tensorflow_TensorPool_allocateTensor(
+    JNIEnv* env, jclass clazz, jlong handle, jint dtype, jlongArray shape,
+    jlong size_in_bytes) {
+  TensorPool* pool = requireHandle(env, handle);
+  if (pool == nullptr) return 0;
+  const size_t len = static_cast<size_t>(size_in_bytes);
+  PooledBlock* block = pool->Acquire(len);
+  if (block == nullptr) {
+    throwException(env, kNullPointerException,
+                   "unable to allocate memory for the Tensor");
+    return 0;
+  }
+  const int num_dims = static_cast<int>(env->GetArrayLength(shape));
+  std::unique_ptr<int64_t[]> dims(new int64_t[num_dims]);
+  if (num_dims > 0) {
+    jlong* jdims = env->GetLongArrayElements(shape, nullptr);
+    for (int i = 0; i < num_dims; ++i) {
+      dims[i] = static_cast<int64_t>(jdims[i]);
+    }
+    env->ReleaseLongArrayElements(shape, jdims, JNI_ABORT);
+  }
+  TF_Tensor* t =
+      TF_NewTensor(static_cast<TF_DataType>(dtype), dims.get(), num_dims,
+                   block->data, len, releasePooledBlock, block);
+  if (t == nullptr) {
+    throwException(env, kNullPointerException,
+                   "unable to allocate memory for the Tensor");
+    return 0;
+  }
+  return reinterpret_cast<jlong>(t);
+}
+
+JNIEXPORT jlongArray JNICALL Java_org_tensorflow_TensorPool_stats(
+    JNIEnv* env, jclass clazz, jlong handle) {
+  TensorPool* pool = requireHandle(env, handle);
+  if (pool == nullptr) return nullptr;
+  jlong stats[5];
+  pool->Stats(stats);
+  jlongArray ret = env->NewLongArray(5);
+  env->SetLongArrayRegion(ret, 0, 5, stats);
+  return ret;
+}
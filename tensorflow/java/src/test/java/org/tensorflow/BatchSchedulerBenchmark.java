@@ -0,0 +1,110 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator comparing concurrent requests executed through a {@link BatchScheduler} with the
+ * same requests executed by {@link Session.Runner#run()}.
+ *
+ * <p>Usage: {@code BatchSchedulerBenchmark [threads] [requests per thread] [max batch size]}
+ */
+public class BatchSchedulerBenchmark {
+  private static final int FEATURES = 256;
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    int requests = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    int maxBatchSize = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+
+    float[][] weights = new float[FEATURES][FEATURES];
+    float[][] features = new float[threads][FEATURES];
+    for (int i = 0; i < FEATURES; ++i) {
+      weights[i][i] = 1f;
+    }
+    try (Graph g = new Graph();
+        final Session s = new Session(g)) {
+      Output<Float> x = TestUtil.placeholder(g, "X", Float.class);
+      TestUtil.matmul(g, "Y", x, TestUtil.<Float>constant(g, "W", weights), false, false);
+
+      final Tensor<?>[] inputs = new Tensor<?>[threads];
+      try {
+        for (int t = 0; t < threads; ++t) {
+          inputs[t] = Tensor.create(new float[][] {features[t]});
+        }
+        runSession(s, inputs, threads, requests);
+        try (BatchScheduler scheduler =
+            BatchScheduler.options()
+                .feed("X")
+                .fetch("Y")
+                .maxBatchSize(maxBatchSize)
+                .batchTimeout(1, TimeUnit.MILLISECONDS)
+                .build(s)) {
+          runScheduler(scheduler, inputs, threads, requests);
+        }
+      } finally {
+        for (Tensor<?> t : inputs) {
+          if (t != null) {
+            t.close();
+          }
+        }
+      }
+    }
+  }
+
+  private static void runSession(
+      final Session s, final Tensor<?>[] inputs, int threads, int requests) throws Exception {
+    long nanos =
+        Benchmark.concurrentNanos(
+            threads,
+            requests,
+            new Benchmark.ConcurrentBody() {
+              @Override
+              public void run(int thread) {
+                s.runner().feed("X", inputs[thread]).fetch("Y").run().get(0).close();
+              }
+            });
+    Benchmark.reportThroughput("Session.run", (long) threads * requests, nanos);
+  }
+
+  private static void runScheduler(
+      final BatchScheduler scheduler, final Tensor<?>[] inputs, int threads, int requests)
+      throws Exception {
+    long nanos =
+        Benchmark.concurrentNanos(
+            threads,
+            requests,
+            new Benchmark.ConcurrentBody() {
+              @Override
+              public void run(int thread) throws Exception {
+                List<Tensor<?>> outputs = scheduler.submit(inputs[thread]).get();
+                outputs.get(0).close();
+              }
+            });
+    Benchmark.reportThroughput("BatchScheduler.submit", (long) threads * requests, nanos);
+    System.out.println("batches: " + scheduler.batchCount());
+    System.out.println("batch size histogram: " + Arrays.toString(scheduler.batchSizeHistogram()));
+    System.out.println(
+        "mean queue latency: "
+            + TimeUnit.NANOSECONDS.toMicros(scheduler.meanQueueLatencyNanos())
+            + " us, max: "
+            + TimeUnit.NANOSECONDS.toMicros(scheduler.maxQueueLatencyNanos())
+            + " us");
+  }
+}
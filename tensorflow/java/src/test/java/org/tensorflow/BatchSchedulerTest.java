@@ -0,0 +1,157 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.BatchScheduler}. */
+@RunWith(JUnit4.class)
+public class BatchSchedulerTest {
+  private static final float EPSILON_F = 1e-7f;
+
+  @Test
+  public void runRequestsInOneBatch() throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.square(g, "Y", TestUtil.placeholder(g, "X", Float.class));
+      try (BatchScheduler scheduler =
+              BatchScheduler.options()
+                  .feed("X")
+                  .fetch("Y")
+                  .maxBatchSize(4)
+                  .batchTimeout(10, TimeUnit.SECONDS)
+                  .build(s);
+          Tensor<Float> x1 = Tensors.create(new float[][] {{1f, 2f}});
+          Tensor<Float> x2 = Tensors.create(new float[][] {{3f, 4f}, {5f, 6f}});
+          Tensor<Float> x3 = Tensors.create(new float[][] {{7f, 8f}})) {
+        Future<List<Tensor<?>>> y1 = scheduler.submit(x1);
+        Future<List<Tensor<?>>> y2 = scheduler.submit(x2);
+        Future<List<Tensor<?>>> y3 = scheduler.submit(x3);
+        // The batch is full, it must not wait for the timeout
+        try (Tensor<Float> t = y1.get(5, TimeUnit.SECONDS).get(0).expect(Float.class)) {
+          assertArrayEquals(new long[] {1, 2}, t.shape());
+          assertArrayEquals(new float[] {1f, 4f}, t.copyTo(new float[1][2])[0], EPSILON_F);
+        }
+        try (Tensor<Float> t = y2.get(5, TimeUnit.SECONDS).get(0).expect(Float.class)) {
+          float[][] values = t.copyTo(new float[2][2]);
+          assertArrayEquals(new float[] {9f, 16f}, values[0], EPSILON_F);
+          assertArrayEquals(new float[] {25f, 36f}, values[1], EPSILON_F);
+        }
+        try (Tensor<Float> t = y3.get(5, TimeUnit.SECONDS).get(0).expect(Float.class)) {
+          assertArrayEquals(new float[] {49f, 64f}, t.copyTo(new float[1][2])[0], EPSILON_F);
+        }
+        assertEquals(1, scheduler.batchCount());
+        assertEquals(3, scheduler.requestCount());
+        assertArrayEquals(new long[] {0, 0, 0, 0, 1}, scheduler.batchSizeHistogram());
+        assertEquals(0, scheduler.queueDepth());
+      }
+    }
+  }
+
+  @Test
+  public void deferIncompatibleRequests() throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.square(g, "Y", TestUtil.placeholder(g, "X", Float.class));
+      try (BatchScheduler scheduler =
+              BatchScheduler.options()
+                  .feed("X")
+                  .fetch("Y")
+                  .batchTimeout(10, TimeUnit.MILLISECONDS)
+                  .build(s);
+          Tensor<Float> x1 = Tensors.create(new float[][] {{1f, 2f}});
+          Tensor<Float> x2 = Tensors.create(new float[][] {{1f, 2f, 3f}})) {
+        Future<List<Tensor<?>>> y1 = scheduler.submit(x1);
+        Future<List<Tensor<?>>> y2 = scheduler.submit(x2);
+        try (Tensor<?> t = y1.get(5, TimeUnit.SECONDS).get(0)) {
+          assertArrayEquals(new long[] {1, 2}, t.shape());
+        }
+        try (Tensor<?> t = y2.get(5, TimeUnit.SECONDS).get(0)) {
+          assertArrayEquals(new long[] {1, 3}, t.shape());
+        }
+        assertEquals(2, scheduler.batchCount());
+        assertEquals(2, scheduler.batchSizeHistogram()[1]);
+      }
+    }
+  }
+
+  @Test
+  public void runEmptyRequests() throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.square(g, "Y", TestUtil.placeholder(g, "X", Float.class));
+      try (BatchScheduler scheduler =
+              BatchScheduler.options()
+                  .feed("X")
+                  .fetch("Y")
+                  .batchTimeout(10, TimeUnit.MILLISECONDS)
+                  .build(s);
+          Tensor<Float> x1 = Tensor.create(new long[] {0, 2}, FloatBuffer.allocate(0));
+          Tensor<Float> x2 = Tensor.create(new long[] {0, 2}, FloatBuffer.allocate(0))) {
+        Future<List<Tensor<?>>> y1 = scheduler.submit(x1);
+        Future<List<Tensor<?>>> y2 = scheduler.submit(x2);
+        try (Tensor<?> t = y1.get(5, TimeUnit.SECONDS).get(0)) {
+          assertArrayEquals(new long[] {0, 2}, t.shape());
+        }
+        try (Tensor<?> t = y2.get(5, TimeUnit.SECONDS).get(0)) {
+          assertArrayEquals(new long[] {0, 2}, t.shape());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void failOnSubmitAfterClose() {
+    try (Graph g = new Graph();
+        Session s = new Session(g);
+        Tensor<Float> x = Tensors.create(new float[][] {{1f}})) {
+      TestUtil.square(g, "Y", TestUtil.placeholder(g, "X", Float.class));
+      BatchScheduler scheduler = BatchScheduler.options().feed("X").fetch("Y").build(s);
+      scheduler.close();
+      try {
+        scheduler.submit(x);
+        fail("should have failed on a closed scheduler");
+      } catch (IllegalStateException e) {
+        // expected exception
+      }
+    }
+  }
+
+  @Test
+  public void failOnScalarInput() {
+    try (Graph g = new Graph();
+        Session s = new Session(g);
+        Tensor<Float> x = Tensors.create(1f)) {
+      TestUtil.square(g, "Y", TestUtil.placeholder(g, "X", Float.class));
+      try (BatchScheduler scheduler = BatchScheduler.options().feed("X").fetch("Y").build(s)) {
+        scheduler.submit(x);
+        fail("should have failed on a scalar input");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** Timing utilities shared by the benchmarks of the Java API. */
+public final class Benchmark {
+
+  /** An operation to time. */
+  public interface Body {
+    void run() throws Exception;
+  }
+
+  /** An operation to time concurrently, given the index of the thread running it. */
+  public interface ConcurrentBody {
+    void run(int thread) throws Exception;
+  }
+
+  /**
+   * Runs {@code body} {@code warmups} times, then returns its mean time in nanoseconds over {@code
+   * iterations} runs.
+   */
+  public static long nanosPerOp(int warmups, int iterations, Body body) throws Exception {
+    for (int i = 0; i < warmups; ++i) {
+      body.run();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; ++i) {
+      body.run();
+    }
+    return (System.nanoTime() - start) / iterations;
+  }
+
+  /**
+   * Runs {@code body} {@code iterations} times on each of {@code threads} threads started at the
+   * same time, and returns the time, in nanoseconds, until all of them are done.
+   */
+  public static long concurrentNanos(
+      int threads, final int iterations, final ConcurrentBody body) throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    List<Thread> workers = new ArrayList<>(threads);
+    for (int t = 0; t < threads; ++t) {
+      final int thread = t;
+      Thread worker =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    start.await();
+                    for (int i = 0; i < iterations; ++i) {
+                      body.run(thread);
+                    }
+                  } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                  }
+                }
+              });
+      worker.start();
+      workers.add(worker);
+    }
+    long startNanos = System.nanoTime();
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    long elapsed = System.nanoTime() - startNanos;
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    return elapsed;
+  }
+
+  /** Prints the mean time of an operation. */
+  public static void report(String name, long nanosPerOp) {
+    System.out.printf("%-48s %12d ns/op%n", name, nanosPerOp);
+  }
+
+  /** Prints the throughput of {@code ops} operations completed in {@code nanos} nanoseconds. */
+  public static void reportThroughput(String name, long ops, long nanos) {
+    System.out.printf("%-48s %12.0f ops/s%n", name, ops * 1e9 / nanos);
+  }
+
+  private Benchmark() {}
+}
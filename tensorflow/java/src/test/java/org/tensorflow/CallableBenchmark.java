@@ -0,0 +1,61 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+/**
+ * Compares the repeated execution of a small graph by {@link Session.Runner#run()} and by a
+ * {@link Session.Callable}.
+ *
+ * <p>Usage: {@code CallableBenchmark [iterations]}
+ */
+public class CallableBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+    try (Graph g = new Graph();
+        final Session s = new Session(g);
+        final Tensor<Integer> x = Tensors.create(new int[][] {{5}, {7}})) {
+      TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+
+      Benchmark.report(
+          "Session.Runner.run",
+          Benchmark.nanosPerOp(
+              iterations / 10,
+              iterations,
+              new Benchmark.Body() {
+                @Override
+                public void run() {
+                  s.runner().feed("X", x).fetch("Y").run().get(0).close();
+                }
+              }));
+
+      try (final Session.Callable callable = s.runner().fetch("Y").makeCallable("X")) {
+        Benchmark.report(
+            "Session.Callable.call",
+            Benchmark.nanosPerOp(
+                iterations / 10,
+                iterations,
+                new Benchmark.Body() {
+                  @Override
+                  public void run() {
+                    callable.call(x).get(0).close();
+                  }
+                }));
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link EagerFunction} class. */
+@RunWith(JUnit4.class)
+public class EagerFunctionTest {
+
+  @Test
+  public void callExecutesTracedFunction() {
+    try (EagerSession session = EagerSession.create()) {
+      EagerFunction square = EagerFunction.create(session, "Square", SQUARE);
+      Output<?>[] outputs = square.call(TestUtil.constant(session, "X", 3));
+      assertEquals(1, outputs.length);
+      assertEquals(9, outputs[0].tensor().intValue());
+    }
+  }
+
+  @Test
+  public void traceIsReusedForSameDataTypesAndShapes() {
+    try (EagerSession session = EagerSession.create()) {
+      EagerFunction square = EagerFunction.create(session, "Square", SQUARE);
+      assertEquals(4, square.call(TestUtil.constant(session, "X1", 2))[0].tensor().intValue());
+      assertEquals(16, square.call(TestUtil.constant(session, "X2", 4))[0].tensor().intValue());
+      assertEquals(2, square.callCount());
+      assertEquals(1, square.traceCount());
+
+      square.call(TestUtil.constant(session, "X3", 2.0f));
+      square.call(TestUtil.constant(session, "X4", new int[] {1, 2}));
+      square.call(TestUtil.constant(session, "X5", new int[] {3, 4}));
+      assertEquals(5, square.callCount());
+      assertEquals(3, square.traceCount());
+    }
+  }
+
+  @Test
+  public void failToCallIfOutputIsNotTraced() {
+    try (EagerSession session = EagerSession.create()) {
+      final Output<Integer> eagerOutput = TestUtil.constant(session, "Eager", 1);
+      EagerFunction function =
+          EagerFunction.create(
+              session,
+              "Untraced",
+              new EagerFunction.Body() {
+                @Override
+                public Output<?>[] build(ExecutionEnvironment env, Output<?>[] inputs) {
+                  return new Output<?>[] {eagerOutput};
+                }
+              });
+      try {
+        function.call(TestUtil.constant(session, "X", 1));
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  private static final EagerFunction.Body SQUARE =
+      new EagerFunction.Body() {
+        @Override
+        public Output<?>[] build(ExecutionEnvironment env, Output<?>[] inputs) {
+          Operation square =
+              env.opBuilder("Mul", "Mul").addInput(inputs[0]).addInput(inputs[0]).build();
+          return new Output<?>[] {square.output(0)};
+        }
+      };
+}
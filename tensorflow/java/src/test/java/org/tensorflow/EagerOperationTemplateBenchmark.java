@@ -0,0 +1,75 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+/**
+ * Compares the dispatch of eager operations built by {@link EagerSession#opBuilder(String,
+ * String)} with those built from an {@link EagerOperationTemplate}.
+ *
+ * <p>Usage: {@code EagerOperationTemplateBenchmark [operations per session]}
+ */
+public class EagerOperationTemplateBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    final int numOperations = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+    long nanos =
+        Benchmark.nanosPerOp(
+            2,
+            10,
+            new Benchmark.Body() {
+              @Override
+              public void run() {
+                try (EagerSession session = EagerSession.create()) {
+                  Output<Integer> x = TestUtil.constant(session, "X", 1);
+                  for (int i = 0; i < numOperations; ++i) {
+                    session
+                        .opBuilder("Cast", "ToFloat")
+                        .addInput(x)
+                        .setAttr("SrcT", DataType.INT32)
+                        .setAttr("DstT", DataType.FLOAT)
+                        .setAttr("Truncate", false)
+                        .build();
+                  }
+                }
+              }
+            });
+    Benchmark.report("EagerSession.opBuilder", nanos / numOperations);
+
+    nanos =
+        Benchmark.nanosPerOp(
+            2,
+            10,
+            new Benchmark.Body() {
+              @Override
+              public void run() {
+                try (EagerSession session = EagerSession.create()) {
+                  Output<Integer> x = TestUtil.constant(session, "X", 1);
+                  EagerOperationTemplate toFloat =
+                      session
+                          .opTemplate("Cast")
+                          .setAttr("SrcT", DataType.INT32)
+                          .setAttr("DstT", DataType.FLOAT)
+                          .setAttr("Truncate", false);
+                  for (int i = 0; i < numOperations; ++i) {
+                    toFloat.opBuilder("ToFloat").addInput(x).build();
+                  }
+                }
+              }
+            });
+    Benchmark.report("EagerOperationTemplate.opBuilder", nanos / numOperations);
+  }
+}
@@ -0,0 +1,64 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link EagerOperationTemplate} class. */
+@RunWith(JUnit4.class)
+public class EagerOperationTemplateTest {
+
+  @Test
+  public void operationsReceiveAttributesOfTemplate() {
+    try (EagerSession session = EagerSession.create()) {
+      EagerOperationTemplate toFloat =
+          session
+              .opTemplate("Cast")
+              .setAttr("SrcT", DataType.INT32)
+              .setAttr("DstT", DataType.FLOAT);
+      assertEquals("Cast", toFloat.type());
+      for (int i = 0; i < 3; ++i) {
+        Operation cast =
+            toFloat.opBuilder("ToFloat").addInput(TestUtil.constant(session, "X", i)).build();
+        assertEquals(DataType.FLOAT, cast.output(0).dataType());
+        assertEquals(i, cast.output(0).tensor().floatValue(), 0.0f);
+      }
+    }
+  }
+
+  @Test
+  public void operationsCanSetOtherAttributes() {
+    try (EagerSession session = EagerSession.create()) {
+      EagerOperationTemplate cast = session.opTemplate("Cast").setAttr("SrcT", DataType.INT32);
+      Operation toFloat =
+          cast.opBuilder("ToFloat")
+              .addInput(TestUtil.constant(session, "X", 1))
+              .setAttr("DstT", DataType.FLOAT)
+              .build();
+      Operation toInt64 =
+          cast.opBuilder("ToInt64")
+              .addInput(TestUtil.constant(session, "Y", 2))
+              .setAttr("DstT", DataType.INT64)
+              .build();
+      assertEquals(DataType.FLOAT, toFloat.output(0).dataType());
+      assertEquals(DataType.INT64, toInt64.output(0).dataType());
+    }
+  }
+}
@@ -24,6 +24,7 @@ import static org.junit.Assert.fail;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -98,6 +99,67 @@ public class EagerSessionTest {
     }
   }
 
+  @Test
+  public void cleanupResourceInBackgroundWithManyThreads() {
+    TestGarbageCollectorQueue gcQueue = new TestGarbageCollectorQueue();
+    try (EagerSession s =
+        EagerSession.options()
+            .resourceCleanupStrategy(ResourceCleanupStrategy.IN_BACKGROUND)
+            .resourceCleanupThreads(4)
+            .buildForGcTest(gcQueue)) {
+
+      TestReference[] refs = new TestReference[1000];
+      for (int i = 0; i < refs.length; ++i) {
+        refs[i] = new TestReference(s, new Object(), 10);
+        gcQueue.collect(refs[i]);
+      }
+      for (int i = 0; i < 100 && s.reclaimedReferenceCount() < refs.length; ++i) {
+        sleep(50); // allow some time to the background threads for cleaning up resources
+      }
+      for (TestReference ref : refs) {
+        assertTrue(ref.isDeleted());
+      }
+      assertEquals(1000, s.reclaimedReferenceCount());
+      assertEquals(10000, s.reclaimedBytes());
+      assertEquals(0, s.liveReferenceCount());
+    }
+  }
+
+  @Test
+  public void countReclaimedResources() {
+    TestGarbageCollectorQueue gcQueue = new TestGarbageCollectorQueue();
+    EagerSession s =
+        EagerSession.options()
+            .resourceCleanupStrategy(ResourceCleanupStrategy.ON_SAFE_POINTS)
+            .buildForGcTest(gcQueue);
+    TestReference ref1 = new TestReference(s, new Object(), 16);
+    new TestReference(s, new Object(), 8);
+    TestReference ref3 = new TestReference(s, new Object(), 4);
+    assertEquals(3, s.liveReferenceCount());
+
+    ref3.clear();
+    gcQueue.collect(ref1);
+    buildOp(s); // safe point
+    assertEquals(1, s.liveReferenceCount());
+    assertEquals(1, s.reclaimedReferenceCount());
+    assertEquals(16, s.reclaimedBytes());
+
+    s.close();
+    assertEquals(0, s.liveReferenceCount());
+    assertEquals(2, s.reclaimedReferenceCount());
+    assertEquals(24, s.reclaimedBytes());
+  }
+
+  @Test
+  public void invalidCleanupThreadCountFails() {
+    try {
+      EagerSession.options().resourceCleanupThreads(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
   @Test
   public void clearedResourcesAreNotCleanedUp() {
     TestReference ref;
@@ -132,6 +194,35 @@ public class EagerSessionTest {
     }
   }
 
+  @Test
+  public void resolveOutputsAsynchronously() throws Exception {
+    try (EagerSession s = EagerSession.options().async(true).build()) {
+      Output<Integer> x = TestUtil.constant(s, "X", 2);
+      Output<Integer> y = TestUtil.constant(s, "Y", 3);
+      Operation add = s.opBuilder("Add", "Add").addInput(x).addInput(y).build();
+      Operation mul = s.opBuilder("Mul", "Mul").addInput(add.output(0)).addInput(y).build();
+      Future<Void> resolved = s.resolveAsync(add.output(0), mul.output(0), add.output(0));
+      resolved.get(10, TimeUnit.SECONDS);
+      assertEquals(5, add.output(0).tensor().intValue());
+      assertEquals(15, mul.output(0).tensor().intValue());
+      s.sync();
+    }
+  }
+
+  @Test
+  public void resolvingOutputsOfAnotherSessionFails() {
+    try (EagerSession s1 = EagerSession.create();
+        EagerSession s2 = EagerSession.create()) {
+      Output<Integer> x = TestUtil.constant(s1, "X", 1);
+      try {
+        s2.resolveAsync(x);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
   @Test
   public void defaultSession() throws Exception {
     EagerSession.Options options =
@@ -157,7 +248,12 @@ public class EagerSessionTest {
   private static class TestReference extends EagerSession.NativeReference {
 
     TestReference(EagerSession session, Object referent) {
+      this(session, referent, 0L);
+    }
+
+    TestReference(EagerSession session, Object referent, long byteSize) {
       super(session, referent);
+      this.byteSize = byteSize;
     }
 
     @Override
@@ -167,11 +263,17 @@ public class EagerSessionTest {
       }
     }
 
+    @Override
+    long byteSize() {
+      return byteSize;
+    }
+
     boolean isDeleted() {
       return deleted.get();
     }
 
     private final AtomicBoolean deleted = new AtomicBoolean();
+    private final long byteSize;
   }
 
   private static class TestGarbageCollectorQueue extends ReferenceQueue<Object> {
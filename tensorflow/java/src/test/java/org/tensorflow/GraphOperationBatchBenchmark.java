@@ -0,0 +1,75 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+/**
+ * Compares the construction of a large graph by {@link Graph#opBuilder(String, String)} and by
+ * {@link Graph#opBatch()}.
+ *
+ * <p>Usage: {@code GraphOperationBatchBenchmark [number of operations]}
+ */
+public class GraphOperationBatchBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    final int numOperations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+    Benchmark.report(
+        "Graph.opBuilder (" + numOperations + " ops)",
+        Benchmark.nanosPerOp(
+            2,
+            5,
+            new Benchmark.Body() {
+              @Override
+              public void run() {
+                try (Graph g = new Graph()) {
+                  Output<Float> prev = TestUtil.placeholder(g, "X", Float.class);
+                  for (int i = 0; i < numOperations; ++i) {
+                    prev =
+                        g.opBuilder("Identity", "N" + i)
+                            .addInput(prev)
+                            .setAttr("T", DataType.FLOAT)
+                            .build()
+                            .<Float>output(0);
+                  }
+                }
+              }
+            }));
+
+    Benchmark.report(
+        "Graph.opBatch (" + numOperations + " ops)",
+        Benchmark.nanosPerOp(
+            2,
+            5,
+            new Benchmark.Body() {
+              @Override
+              public void run() {
+                try (Graph g = new Graph()) {
+                  GraphOperationBatch batch = g.opBatch();
+                  GraphOperationBatch.PendingOperation prev =
+                      batch.opBuilder("Placeholder", "X").setAttr("dtype", DataType.FLOAT);
+                  for (int i = 0; i < numOperations; ++i) {
+                    prev =
+                        batch
+                            .opBuilder("Identity", "N" + i)
+                            .addInput(prev, 0)
+                            .setAttr("T", DataType.FLOAT);
+                  }
+                  batch.flush();
+                }
+              }
+            }));
+  }
+}
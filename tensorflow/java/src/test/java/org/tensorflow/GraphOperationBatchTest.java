@@ -0,0 +1,206 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.GraphOperationBatch}. */
+@RunWith(JUnit4.class)
+public class GraphOperationBatchTest {
+
+  @Test
+  public void flushAddsOperationsToGraph() {
+    try (Graph g = new Graph();
+        Session s = new Session(g);
+        Tensor<Integer> t = Tensors.create(3)) {
+      Output<Integer> two = TestUtil.constant(g, "Two", 2);
+      GraphOperationBatch batch = g.opBatch();
+      GraphOperationBatch.PendingOperation x =
+          batch.opBuilder("Const", "X").setAttr("dtype", t.dataType()).setAttr("value", t);
+      GraphOperationBatch.PendingOperation y =
+          batch
+              .opBuilder("AddN", "Y")
+              .addInputList(
+                  new GraphOperationBatch.PendingOperation[] {x, x}, new int[] {0, 0});
+      GraphOperationBatch.PendingOperation z =
+          batch.opBuilder("Mul", "Z").addInput(y, 0).addInput(two).setAttr("T", DataType.INT32);
+      assertEquals(3, batch.size());
+
+      GraphOperation[] operations = batch.flush();
+      assertEquals(3, operations.length);
+      assertEquals(0, batch.size());
+      assertSame(operations[2], z.operation());
+      assertEquals("Z", z.operation().name());
+      assertEquals(g.operation("Y"), y.operation());
+
+      try (Tensor<?> result = s.runner().fetch("Z").run().get(0)) {
+        assertEquals(12, result.intValue());
+      }
+    }
+  }
+
+  @Test
+  public void flushedOperationsCanBeInputsOfNextBatch() {
+    try (Graph g = new Graph()) {
+      GraphOperationBatch batch = g.opBatch();
+      GraphOperationBatch.PendingOperation x =
+          batch.opBuilder("Placeholder", "X").setAttr("dtype", DataType.FLOAT);
+      batch.flush();
+      // Builds a long chain of operations in a single batch.
+      GraphOperationBatch.PendingOperation last = x;
+      for (int i = 0; i < 1000; ++i) {
+        last = batch.opBuilder("Identity", "Identity" + i).addInput(last, 0);
+      }
+      assertEquals(1000, batch.flush().length);
+      assertEquals(DataType.FLOAT, last.operation().output(0).dataType());
+    }
+  }
+
+  @Test
+  public void failToModifyPreviousOperation() {
+    try (Graph g = new Graph()) {
+      GraphOperationBatch batch = g.opBatch();
+      GraphOperationBatch.PendingOperation x = batch.opBuilder("NoOp", "X");
+      batch.opBuilder("NoOp", "Y");
+      try {
+        x.setDevice("/cpu:0");
+        fail();
+      } catch (IllegalStateException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void failToUseOperationOfAnotherBatchAsInput() {
+    try (Graph g = new Graph()) {
+      GraphOperationBatch.PendingOperation x =
+          g.opBatch().opBuilder("Placeholder", "X").setAttr("dtype", DataType.INT32);
+      GraphOperationBatch batch = g.opBatch();
+      GraphOperationBatch.PendingOperation y = batch.opBuilder("Identity", "Y");
+      try {
+        y.addInput(x, 0);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+      try {
+        y.addControlInput(y);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void failToGetOperationBeforeFlush() {
+    try (Graph g = new Graph()) {
+      GraphOperationBatch.PendingOperation x = g.opBatch().opBuilder("NoOp", "X");
+      try {
+        x.operation();
+        fail();
+      } catch (IllegalStateException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void failedFlushEmptiesBatch() {
+    try (Graph g = new Graph()) {
+      GraphOperationBatch batch = g.opBatch();
+      batch.opBuilder("NoOp", "X");
+      // Missing the input of the operation.
+      batch.opBuilder("Identity", "Y");
+      try {
+        batch.flush();
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+      assertEquals(0, batch.size());
+      assertEquals("X", g.operation("X").name());
+    }
+  }
+
+  @Test
+  public void failToFlushClosedTensorAttribute() {
+    try (Graph g = new Graph()) {
+      GraphOperationBatch batch = g.opBatch();
+      batch.opBuilder("NoOp", "X");
+      try (Tensor<Integer> t = Tensors.create(3)) {
+        batch.opBuilder("Const", "Y").setAttr("dtype", t.dataType()).setAttr("value", t);
+      }
+      try {
+        batch.flush();
+        fail();
+      } catch (IllegalStateException e) {
+        // expected
+      }
+      assertEquals(0, batch.size());
+      assertNull(g.operation("X"));
+    }
+  }
+
+  @Test
+  public void failToUseOperationOfFailedFlushAsInput() {
+    try (Graph g = new Graph()) {
+      GraphOperationBatch batch = g.opBatch();
+      batch.opBuilder("NoOp", "X");
+      GraphOperationBatch.PendingOperation y =
+          batch.opBuilder("Placeholder", "Y").setAttr("dtype", DataType.INT32);
+      // Missing the input of the operation.
+      batch.opBuilder("Identity", "Z");
+      try {
+        batch.flush();
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+      try {
+        y.operation();
+        fail();
+      } catch (IllegalStateException e) {
+        // expected
+      }
+
+      // Y had the same position as B, which must not be mistaken for it.
+      batch.opBuilder("NoOp", "A");
+      batch.opBuilder("NoOp", "B");
+      GraphOperationBatch.PendingOperation c = batch.opBuilder("Identity", "C");
+      try {
+        c.addInput(y, 0);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+      try {
+        c.addControlInput(y);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -18,7 +18,10 @@ package org.tensorflow;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.HashSet;
 import java.util.Iterator;
@@ -130,6 +133,47 @@ public class GraphTest {
     }
   }
 
+  @Test
+  public void reuseOperationsFoundByName() {
+    try (Graph g = new Graph()) {
+      TestUtil.constant(g, "c", 1);
+      GraphOperation c = g.operation("c");
+      assertNotNull(c);
+      assertSame(c, g.operation("c"));
+      assertNull(g.operation("d"));
+      TestUtil.constant(g, "d", 2);
+      assertEquals("d", g.operation("d").name());
+    }
+  }
+
+  @Test
+  public void closeWaitsForActiveReferences() throws Exception {
+    final Graph g = new Graph();
+    TestUtil.constant(g, "c", 1);
+    Graph.Reference ref = g.ref();
+    Thread closer =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                g.close();
+              }
+            });
+    closer.start();
+    closer.join(100);
+    assertTrue(closer.isAlive());
+    assertTrue(ref.nativeHandle() != 0);
+    try {
+      g.operation("c");
+      fail("should not acquire new references while closing");
+    } catch (IllegalStateException e) {
+      // expected exception.
+    }
+    ref.close();
+    closer.join();
+    assertEquals(0, ref.nativeHandle());
+  }
+
   @Test
   public void addGradientsToGraph() {
     try (Graph g = new Graph();
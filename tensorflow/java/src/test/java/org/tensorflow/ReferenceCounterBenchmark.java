@@ -0,0 +1,63 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+/**
+ * Measures the throughput of {@link Session.Runner#run()} and {@link Graph#operation(String)} when
+ * called concurrently on the same instances, which contend on their reference counts.
+ *
+ * <p>Usage: {@code ReferenceCounterBenchmark [max threads] [calls per thread]}
+ */
+public class ReferenceCounterBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    final int calls = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+    try (final Graph g = new Graph();
+        final Session s = new Session(g)) {
+      TestUtil.constant(g, "X", 1);
+      for (int threads = 1; threads <= maxThreads; threads *= 2) {
+        long nanos =
+            Benchmark.concurrentNanos(
+                threads,
+                calls,
+                new Benchmark.ConcurrentBody() {
+                  @Override
+                  public void run(int thread) {
+                    s.runner().fetch("X").run().get(0).close();
+                  }
+                });
+        Benchmark.reportThroughput(
+            "Session.run, " + threads + " threads", (long) threads * calls, nanos);
+      }
+      for (int threads = 1; threads <= maxThreads; threads *= 2) {
+        long nanos =
+            Benchmark.concurrentNanos(
+                threads,
+                calls,
+                new Benchmark.ConcurrentBody() {
+                  @Override
+                  public void run(int thread) {
+                    g.operation("X");
+                  }
+                });
+        Benchmark.reportThroughput(
+            "Graph.operation, " + threads + " threads", (long) threads * calls, nanos);
+      }
+    }
+  }
+}
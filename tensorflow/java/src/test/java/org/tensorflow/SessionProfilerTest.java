@@ -0,0 +1,159 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.SessionProfiler}. */
+@RunWith(JUnit4.class)
+public class SessionProfilerTest {
+
+  @Test
+  public void traceSampledRuns() {
+    SessionProfiler profiler = SessionProfiler.options().sampleRate(0.5).build();
+    try (Graph g = new Graph();
+        Session s = new Session(g);
+        Tensor<Integer> x = Tensors.create(new int[][] {{5}, {7}})) {
+      TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+      for (int i = 0; i < 4; ++i) {
+        Session.Runner runner = s.runner().feed("X", x).fetch("Y");
+        try (TestUtil.AutoCloseableList<Tensor<?>> outputs =
+            new TestUtil.AutoCloseableList<Tensor<?>>(profiler.run(runner))) {
+          assertEquals(31, outputs.get(0).copyTo(new int[1][1])[0][0]);
+        }
+        assertEquals(null, runner.options());
+      }
+    }
+    assertEquals(4, profiler.runCount());
+    assertEquals(2, profiler.sampledRunCount());
+    boolean found = false;
+    for (SessionProfiler.OpStats op : profiler.hotspots(Integer.MAX_VALUE)) {
+      if (op.nodeName().equals("Y")) {
+        assertEquals(2, op.count());
+        found = true;
+      }
+    }
+    assertTrue(found);
+  }
+
+  @Test
+  public void aggregateRecordedRuns() {
+    SessionProfiler profiler = SessionProfiler.create();
+    profiler.record(runMetadata("/cpu:0", nodeExecStats("a", "a = MatMul(x, y)", 100, 30, 64)));
+    profiler.record(
+        runMetadata(
+            "/cpu:0",
+            nodeExecStats("a", "a = MatMul(x, y)", 200, 10, 128),
+            nodeExecStats("b", "b = Add(a, a)", 210, 5, 0)));
+
+    List<SessionProfiler.OpStats> hotspots = profiler.hotspots(1);
+    assertEquals(1, hotspots.size());
+    SessionProfiler.OpStats a = hotspots.get(0);
+    assertEquals("a", a.nodeName());
+    assertEquals("MatMul", a.opType());
+    assertEquals("/cpu:0", a.device());
+    assertEquals(2, a.count());
+    assertEquals(40, a.totalMicros());
+    assertEquals(30, a.maxMicros());
+    assertEquals(128, a.peakBytes());
+
+    String trace = profiler.toChromeTrace();
+    assertTrue(trace.startsWith("{\"traceEvents\":["));
+    assertTrue(trace.contains("\"args\":{\"name\":\"/cpu:0\"}"));
+    assertTrue(trace.contains("\"name\":\"Add\",\"cat\":\"Op\",\"ph\":\"X\",\"pid\":0"));
+    assertTrue(trace.contains("\"ts\":10,\"dur\":5"));
+
+    profiler.reset();
+    assertEquals(0, profiler.sampledRunCount());
+    assertEquals(0, profiler.hotspots(10).size());
+    assertEquals("{\"traceEvents\":[]}", profiler.toChromeTrace());
+  }
+
+  @Test
+  public void failOnMalformedMetadata() {
+    SessionProfiler profiler = SessionProfiler.create();
+    try {
+      profiler.record(new byte[] {0x0A, 0x05, 0x0A});
+      fail("should fail on a truncated protocol buffer");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    assertEquals(0, profiler.sampledRunCount());
+  }
+
+  private static byte[] runMetadata(String device, byte[]... nodeStats) {
+    byte[] devStats = concat(string(1, device));
+    for (byte[] n : nodeStats) {
+      devStats = concat(devStats, message(2, n));
+    }
+    return message(1, message(1, devStats));
+  }
+
+  private static byte[] nodeExecStats(
+      String name, String label, long startMicros, long durationMicros, long peakBytes) {
+    return concat(
+        string(1, name),
+        varint(2, startMicros),
+        varint(5, durationMicros),
+        message(6, concat(string(1, "cpu"), varint(3, peakBytes))),
+        string(8, label),
+        varint(10, 1));
+  }
+
+  private static byte[] varint(int field, long value) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeVarint(out, field << 3);
+    writeVarint(out, value);
+    return out.toByteArray();
+  }
+
+  private static byte[] string(int field, String value) {
+    return message(field, value.getBytes(Charset.forName("UTF-8")));
+  }
+
+  private static byte[] message(int field, byte[] value) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeVarint(out, (field << 3) | 2);
+    writeVarint(out, value.length);
+    out.write(value, 0, value.length);
+    return out.toByteArray();
+  }
+
+  private static byte[] concat(byte[]... values) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] v : values) {
+      out.write(v, 0, v.length);
+    }
+    return out.toByteArray();
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+}
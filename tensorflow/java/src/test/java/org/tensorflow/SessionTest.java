@@ -17,9 +17,18 @@ package org.tensorflow;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -142,6 +151,125 @@ public class SessionTest {
     }
   }
 
+  @Test
+  public void runUsingCallable() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+      try (Session.Callable callable = s.runner().fetch("Y").makeCallable("X")) {
+        try (Tensor<Integer> x = Tensors.create(new int[][] {{5}, {7}});
+            TestUtil.AutoCloseableList<Tensor<?>> outputs =
+                new TestUtil.AutoCloseableList<Tensor<?>>(callable.call(x))) {
+          assertEquals(1, outputs.size());
+          final int[][] expected = {{31}};
+          assertArrayEquals(expected, outputs.get(0).copyTo(new int[1][1]));
+        }
+        try (Tensor<Integer> x = Tensors.create(new int[][] {{1}, {1}});
+            TestUtil.AutoCloseableList<Tensor<?>> outputs =
+                new TestUtil.AutoCloseableList<Tensor<?>>(callable.call(x))) {
+          final int[][] expected = {{5}};
+          assertArrayEquals(expected, outputs.get(0).copyTo(new int[1][1]));
+        }
+        try {
+          callable.call();
+          fail("should fail when the number of inputs does not match the number of feeds");
+        } catch (IllegalArgumentException e) {
+          // expected exception
+        }
+      }
+      try {
+        s.runner().fetch("Y").makeCallable("Z");
+        fail("should fail when a feed does not exist");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+
+  @Test
+  public void runIntoBuffers() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+      IntBuffer y = ByteBuffer.allocateDirect(8).order(ByteOrder.nativeOrder()).asIntBuffer();
+      try (Tensor<Integer> x = Tensors.create(new int[][] {{5}, {7}})) {
+        s.runner().feed("X", x).fetch("Y").runInto(y);
+        assertEquals(1, y.position());
+        assertEquals(31, y.get(0));
+      }
+      try (Tensor<Integer> x = Tensors.create(new int[][] {{1}, {1}});
+          Session.Callable callable = s.runner().fetch("Y").makeCallable("X")) {
+        callable.callInto(new Tensor<?>[] {x}, y);
+        assertEquals(2, y.position());
+        assertEquals(5, y.get(1));
+        try {
+          callable.callInto(new Tensor<?>[] {x}, y);
+          fail("should fail when the buffer is full");
+        } catch (IllegalArgumentException e) {
+          // expected exception
+        }
+        try {
+          callable.callInto(new Tensor<?>[] {x}, FloatBuffer.allocate(1));
+          fail("should fail when the buffer is not direct");
+        } catch (IllegalArgumentException e) {
+          // expected exception
+        }
+      }
+    }
+  }
+
+  @Test
+  public void runAsync() throws Exception {
+    final List<Runnable> pending = new ArrayList<Runnable>();
+    Executor executor =
+        new Executor() {
+          @Override
+          public void execute(Runnable r) {
+            pending.add(r);
+          }
+        };
+    Graph g = new Graph();
+    Session s = new Session(g);
+    TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+    try (Tensor<Integer> x = Tensors.create(new int[][] {{5}, {7}})) {
+      Future<List<Tensor<?>>> run = s.runner().feed("X", x).fetch("Y").runAsync(executor);
+      Future<List<Tensor<?>>> cancelled = s.runner().feed("X", x).fetch("Y").runAsync(executor);
+      assertEquals(2, pending.size());
+      assertFalse(run.isDone());
+      pending.get(0).run();
+      try (Tensor<?> y = run.get().get(0)) {
+        assertArrayEquals(new int[][] {{31}}, y.copyTo(new int[1][1]));
+      }
+      assertTrue(cancelled.cancel(false));
+      pending.get(1).run();
+    }
+    // Returns immediately, as no run is pending anymore
+    s.close();
+    g.close();
+    try {
+      s.runner().runAsync(executor);
+      fail("runAsync() should fail after close() is called");
+    } catch (IllegalStateException e) {
+      // expected exception
+    }
+  }
+
+  @Test
+  public void failOnCallableUseAfterClose() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.constant(g, "c", 2718);
+      Session.Callable callable = s.runner().fetch("c").makeCallable();
+      callable.close();
+      try {
+        callable.call();
+        fail("methods on a callable should fail after close() is called");
+      } catch (IllegalStateException e) {
+        // expected exception
+      }
+    }
+  }
+
   @Test
   public void failOnUseAfterClose() {
     try (Graph g = new Graph()) {
@@ -0,0 +1,87 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.FloatBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.TensorPool}. */
+@RunWith(JUnit4.class)
+public class TensorPoolTest {
+  private static final float EPSILON_F = 1e-7f;
+
+  @Test
+  public void recycleBuffers() {
+    float[] floats = {1f, 2f, 3f, 4f};
+    long[] shape = {4};
+    try (TensorPool pool = TensorPool.create()) {
+      try (Tensor<Float> t = pool.createTensor(shape, FloatBuffer.wrap(floats))) {
+        assertArrayEquals(floats, t.copyTo(new float[4]), EPSILON_F);
+        assertEquals(1, pool.lentBufferCount());
+      }
+      assertEquals(0, pool.lentBufferCount());
+      assertEquals(1, pool.missCount());
+      assertEquals(0, pool.hitCount());
+      assertEquals(64, pool.pooledBytes());
+
+      // Same size class, different type and shape
+      try (Tensor<Integer> t = pool.createTensor(new int[][] {{1, 2}, {3, 4}}, Integer.class)) {
+        assertArrayEquals(new long[] {2, 2}, t.shape());
+        assertArrayEquals(new int[] {3, 4}, t.copyTo(new int[2][2])[1]);
+      }
+      assertEquals(1, pool.missCount());
+      assertEquals(1, pool.hitCount());
+    }
+  }
+
+  @Test
+  public void evictWhenFull() {
+    try (TensorPool pool = TensorPool.options().maxPooledBytes(192).build()) {
+      Tensor<Float> t1 = pool.createTensor(new long[] {16}, FloatBuffer.allocate(16));
+      Tensor<Float> t2 = pool.createTensor(new long[] {32}, FloatBuffer.allocate(32));
+      Tensor<Float> t3 = pool.createTensor(new long[] {4}, FloatBuffer.allocate(4));
+      t1.close();
+      t2.close();
+      assertEquals(192, pool.pooledBytes());
+      assertEquals(0, pool.evictionCount());
+      t3.close();
+      assertEquals(1, pool.evictionCount());
+      assertEquals(192, pool.pooledBytes());
+    }
+  }
+
+  @Test
+  public void tensorOutlivesPool() {
+    TensorPool pool = TensorPool.create();
+    float[] floats = {1f, 2f};
+    try (Tensor<Float> t = pool.createTensor(new long[] {2}, FloatBuffer.wrap(floats))) {
+      pool.close();
+      assertArrayEquals(floats, t.copyTo(new float[2]), EPSILON_F);
+    }
+    try {
+      pool.createTensor(new long[] {1}, FloatBuffer.allocate(1));
+      fail("should not create tensors after close()");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+}
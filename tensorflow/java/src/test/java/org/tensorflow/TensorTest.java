@@ -164,6 +164,101 @@ public class TensorTest {
     }
   }
 
+  @Test
+  public void wrapDirectBuffer() {
+    float[] floats = {1f, 2f, 3f, 4f};
+    long[] shape = {2, 2};
+
+    ByteBuffer buf = ByteBuffer.allocateDirect(4 * floats.length).order(ByteOrder.nativeOrder());
+    buf.asFloatBuffer().put(floats);
+    try (Tensor<Float> t = Tensor.wrap(Float.class, shape, buf)) {
+      assertEquals(DataType.FLOAT, t.dataType());
+      assertArrayEquals(shape, t.shape());
+      float[][] actual = new float[2][2];
+      t.copyTo(actual);
+      assertArrayEquals(new float[] {1f, 2f}, actual[0], EPSILON_F);
+      assertArrayEquals(new float[] {3f, 4f}, actual[1], EPSILON_F);
+    }
+    try (Tensor<Float> t = Tensor.wrap(shape, buf.asFloatBuffer())) {
+      float[][] actual = new float[2][2];
+      t.copyTo(actual);
+      assertArrayEquals(new float[] {3f, 4f}, actual[1], EPSILON_F);
+    }
+    // The remaining elements of a typed view fill the whole tensor.
+    try (Tensor<Float> t =
+        Tensor.wrap(new long[] {2}, (FloatBuffer) buf.asFloatBuffer().position(2))) {
+      float[] actual = new float[2];
+      t.copyTo(actual);
+      assertArrayEquals(new float[] {3f, 4f}, actual, EPSILON_F);
+    }
+
+    // validate buffer-checking
+    try (Tensor<Float> t = Tensor.wrap(shape, FloatBuffer.wrap(floats))) {
+      fail("should have failed on non-direct buffer");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try (Tensor<Float> t = Tensor.wrap(new long[] {5}, buf.asFloatBuffer())) {
+      fail("should have failed on incompatible buffer");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    ByteBuffer nonNative =
+        ByteBuffer.allocateDirect(4).order(
+            ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN
+                ? ByteOrder.LITTLE_ENDIAN
+                : ByteOrder.BIG_ENDIAN);
+    try (Tensor<Integer> t = Tensor.wrap(new long[] {1}, nonNative.asIntBuffer())) {
+      fail("should have failed on non-native byte order");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void readFlat() {
+    float[][] matrix = {{1f, 2f, 3f}, {4f, 5f, 6f}};
+    try (Tensor<Float> t = Tensors.create(matrix)) {
+      float[] all = new float[7];
+      assertEquals(6, t.readFloats(all, 1));
+      assertArrayEquals(new float[] {0f, 1f, 2f, 3f, 4f, 5f, 6f}, all, EPSILON_F);
+
+      float[] row = new float[3];
+      assertEquals(3, t.readFloats(3, row, 0, 3));
+      assertArrayEquals(matrix[1], row, EPSILON_F);
+
+      FloatBuffer view = t.asFloatBuffer();
+      assertTrue(view.isReadOnly());
+      assertEquals(6, view.remaining());
+      assertEquals(5f, view.get(4), EPSILON_F);
+
+      try {
+        t.readFloats(4, row, 0, 3);
+        fail("should have failed on out of range elements");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+      try {
+        t.readInts(new int[6], 0);
+        fail("should have failed on incompatible type");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+      try {
+        t.readFloats(row, 0);
+        fail("should have failed on small destination array");
+      } catch (IndexOutOfBoundsException e) {
+        // expected
+      }
+    }
+    try (Tensor<Long> t = Tensors.create(new long[] {7L, 8L})) {
+      long[] longs = new long[2];
+      t.readLongs(longs, 0);
+      assertArrayEquals(new long[] {7L, 8L}, longs);
+      assertEquals(8L, t.asLongBuffer().get(1));
+    }
+  }
+
   @Test
   public void writeTo() {
     int[] ints = {1, 2, 3};
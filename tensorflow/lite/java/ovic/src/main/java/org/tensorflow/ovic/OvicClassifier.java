@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Quantization;
 import org.tensorflow.lite.TestHelper;
 
 /** Class for running ImageNet classification with a TfLite model. */
@@ -120,10 +121,9 @@ public class OvicClassifier {
       tflite.run(imgData, labelProbArray);
     } else {
       tflite.run(imgData, inferenceOutputArray);
-      /** Convert results to float */
-      for (int i = 0; i < inferenceOutputArray[0].length; i++) {
-        labelProbArray[0][i] = (inferenceOutputArray[0][i] & 0xff) / 255.0f;
-      }
+      /** Convert results to float, with the quantization parameters of the output */
+      Quantization.dequantize(
+          ByteBuffer.wrap(inferenceOutputArray[0]), tflite.getOutputTensor(0), labelProbArray[0]);
     }
     OvicClassificationResult iterResult = computeTopKLabels();
     iterResult.latencyMilli = getLastNativeInferenceLatencyMilliseconds();
@@ -16,14 +16,13 @@ package org.tensorflow.ovic;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.util.Random;
+import org.tensorflow.lite.MappedModel;
 
 /** Validate a submission model. */
 public class OvicValidator {
@@ -49,8 +48,8 @@ public class OvicValidator {
     final String labelPath =
         "tensorflow/lite/java/ovic/src/testdata/labels.txt";
 
-    try {
-      MappedByteBuffer model = loadModelFile(modelFile);
+    try (MappedModel mappedModel = MappedModel.map(new File(modelFile))) {
+      MappedByteBuffer model = mappedModel.getBuffer();
       File labelsfile = new File(labelPath);
       InputStream labelsInputStream = new FileInputStream(labelsfile);
 
@@ -91,13 +90,4 @@ public class OvicValidator {
     }
     return imgData;
   }
-
-  private static MappedByteBuffer loadModelFile(String modelFilePath) throws IOException {
-    File modelfile = new File(modelFilePath);
-    FileInputStream inputStream = new FileInputStream(modelfile);
-    FileChannel fileChannel = inputStream.getChannel();
-    long startOffset = 0L;
-    long declaredLength = fileChannel.size();
-    return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
-  }
 }
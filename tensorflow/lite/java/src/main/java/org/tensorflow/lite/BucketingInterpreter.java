@@ -0,0 +1,335 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Runs a model on inputs of varying shapes without reallocating tensors whenever the shape changes.
+ *
+ * <p>Resizing an input of an {@link Interpreter} invalidates its memory plan, so inputs of
+ * oscillating shapes, e.g. text sequences of variable length, pay a full reallocation on nearly
+ * every inference. Instead, a {@code BucketingInterpreter}:
+ *
+ * <ul>
+ *   <li>pads the inputs with zeros along one dimension, up to the nearest of a few bucket sizes, so
+ *       that many shapes share the same padded shape;
+ *   <li>keeps a separate interpreter, with its tensors allocated, for each of the most recently
+ *       used padded shapes. All interpreters share a single copy of the model.
+ * </ul>
+ *
+ * <p>For example, for a model taking token ids of shape {@code [1, length]}:
+ *
+ * <pre>{@code
+ * BucketingInterpreter.Options options =
+ *     new BucketingInterpreter.Options().setBucketSizes(16, 32, 64, 128).setMaxCachedShapes(4);
+ * try (BucketingInterpreter interpreter = new BucketingInterpreter(modelFile, options)) {
+ *   interpreter.run(new int[][] {tokenIds}, probabilities);
+ * }
+ * }</pre>
+ *
+ * <p>Inputs must be given as arrays of a primitive type. Outputs given as arrays are cropped back
+ * to their own shape if the padding extended the shape of the output tensor.
+ *
+ * <p>Like {@link Interpreter}, instances of this class are not thread-safe.
+ */
+public final class BucketingInterpreter implements AutoCloseable {
+
+  /** An options class for controlling the bucketing of input shapes. */
+  public static class Options {
+    public Options() {}
+
+    /**
+     * Sets the dimension of the inputs that is padded, by default 1, e.g. the length of inputs of
+     * shape {@code [batch, length]}. Inputs with fewer dimensions are not padded.
+     */
+    public Options setPaddedDimension(int paddedDimension) {
+      if (paddedDimension < 0) {
+        throw new IllegalArgumentException("The padded dimension must not be negative.");
+      }
+      this.paddedDimension = paddedDimension;
+      return this;
+    }
+
+    /**
+     * Sets the sizes to which the padded dimension is rounded up. Inputs larger than the largest
+     * bucket are not padded. By default, inputs are never padded, and only exact shapes are cached.
+     */
+    public Options setBucketSizes(int... bucketSizes) {
+      int[] sorted = bucketSizes.clone();
+      Arrays.sort(sorted);
+      if (sorted.length > 0 && sorted[0] <= 0) {
+        throw new IllegalArgumentException("Bucket sizes must be positive.");
+      }
+      this.bucketSizes = sorted;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of input shapes whose interpreter is kept allocated, by default 4. The
+     * least recently used one is closed when another shape is seen.
+     */
+    public Options setMaxCachedShapes(int maxCachedShapes) {
+      if (maxCachedShapes <= 0) {
+        throw new IllegalArgumentException("The number of cached shapes must be positive.");
+      }
+      this.maxCachedShapes = maxCachedShapes;
+      return this;
+    }
+
+    /**
+     * Sets the options of each interpreter, which must not contain any {@link Delegate}, as a
+     * delegate cannot be applied to several interpreters.
+     */
+    public Options setInterpreterOptions(Interpreter.Options interpreterOptions) {
+      if (!interpreterOptions.delegates.isEmpty()) {
+        throw new IllegalArgumentException(
+            "Delegates cannot be shared by the interpreters of a BucketingInterpreter.");
+      }
+      this.interpreterOptions = interpreterOptions;
+      return this;
+    }
+
+    int paddedDimension = 1;
+    int[] bucketSizes = new int[0];
+    int maxCachedShapes = 4;
+    Interpreter.Options interpreterOptions = new Interpreter.Options();
+  }
+
+  /**
+   * Creates a {@code BucketingInterpreter} of the model of a file.
+   *
+   * @throws IllegalArgumentException if {@code modelFile} does not encode a valid TensorFlow Lite
+   *     model.
+   */
+  public BucketingInterpreter(@NonNull File modelFile, Options options) {
+    this.model = new NativeInterpreterWrapper.SharedModel(modelFile.getAbsolutePath());
+    this.options = options == null ? new Options() : options;
+  }
+
+  /**
+   * Creates a {@code BucketingInterpreter} of the model of a {@code ByteBuffer}, which should not
+   * be modified afterwards.
+   *
+   * @throws IllegalArgumentException if {@code byteBuffer} is not a {@link
+   *     java.nio.MappedByteBuffer} nor a direct {@link ByteBuffer} of nativeOrder.
+   */
+  public BucketingInterpreter(@NonNull ByteBuffer byteBuffer, Options options) {
+    this.model = new NativeInterpreterWrapper.SharedModel(byteBuffer);
+    this.options = options == null ? new Options() : options;
+  }
+
+  /**
+   * Runs model inference if the model takes only one input, and provides only one output.
+   *
+   * @see #runForMultipleInputsOutputs(Object[], Map)
+   */
+  public void run(Object input, Object output) {
+    Object[] inputs = {input};
+    Map<Integer, Object> outputs = new HashMap<>();
+    outputs.put(0, output);
+    runForMultipleInputsOutputs(inputs, outputs);
+  }
+
+  /**
+   * Runs model inference on inputs padded to the nearest bucket, with the interpreter allocated for
+   * their padded shapes.
+   *
+   * @param inputs arrays of a primitive type, in the same order as the inputs of the model
+   * @param outputs a map of output indices to arrays or {@link java.nio.Buffer}s, as in {@link
+   *     Interpreter#runForMultipleInputsOutputs(Object[], Map)}
+   * @throws IllegalArgumentException if an input is not an array of a primitive type, or if an
+   *     error occurs when running the inference.
+   */
+  public void runForMultipleInputsOutputs(
+      @NonNull Object[] inputs, @NonNull Map<Integer, Object> outputs) {
+    checkNotClosed();
+    Object[] paddedInputs = new Object[inputs.length];
+    StringBuilder key = new StringBuilder();
+    for (int i = 0; i < inputs.length; ++i) {
+      int[] shape = shapeOf(inputs[i]);
+      int[] paddedShape = paddedShapeOf(shape);
+      paddedInputs[i] = Arrays.equals(shape, paddedShape) ? inputs[i] : pad(inputs[i], paddedShape);
+      key.append(Arrays.toString(paddedShape));
+    }
+    Interpreter interpreter = interpreterFor(key.toString(), paddedInputs);
+
+    Map<Integer, Object> paddedOutputs = new HashMap<>();
+    for (Map.Entry<Integer, Object> output : outputs.entrySet()) {
+      Object value = output.getValue();
+      int[] outputShape = interpreter.getOutputTensor(output.getKey()).shape();
+      if (value != null
+          && value.getClass().isArray()
+          && !Arrays.equals(shapeOf(value), outputShape)) {
+        value = Array.newInstance(baseTypeOf(value), outputShape);
+      }
+      paddedOutputs.put(output.getKey(), value);
+    }
+    interpreter.runForMultipleInputsOutputs(paddedInputs, paddedOutputs);
+    for (Map.Entry<Integer, Object> output : outputs.entrySet()) {
+      Object paddedOutput = paddedOutputs.get(output.getKey());
+      if (paddedOutput != output.getValue()) {
+        copyOverlap(paddedOutput, output.getValue());
+      }
+    }
+  }
+
+  /** Returns the number of inferences that reused the interpreter of a cached shape. */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of inferences that required a new interpreter. */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /** Returns the fraction of inferences that reused the interpreter of a cached shape. */
+  public double getHitRate() {
+    long count = hitCount + missCount;
+    return count == 0 ? 0.0 : (double) hitCount / count;
+  }
+
+  /** Returns the number of interpreters closed to make room for other shapes. */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /** Returns the number of shapes whose interpreter is currently allocated. */
+  public int getCachedShapeCount() {
+    return interpreters.size();
+  }
+
+  /** Releases all interpreters and the model. */
+  @Override
+  public void close() {
+    if (model == null) {
+      return;
+    }
+    for (Interpreter interpreter : interpreters.values()) {
+      interpreter.close();
+    }
+    interpreters.clear();
+    model.close();
+    model = null;
+  }
+
+  private Interpreter interpreterFor(String key, Object[] paddedInputs) {
+    Interpreter interpreter = interpreters.get(key);
+    if (interpreter != null) {
+      ++hitCount;
+      return interpreter;
+    }
+    ++missCount;
+    if (interpreters.size() >= options.maxCachedShapes) {
+      Iterator<Interpreter> eldest = interpreters.values().iterator();
+      eldest.next().close();
+      eldest.remove();
+      ++evictionCount;
+    }
+    interpreter =
+        new Interpreter(new NativeInterpreterWrapper(model, options.interpreterOptions));
+    try {
+      for (int i = 0; i < paddedInputs.length; ++i) {
+        interpreter.resizeInput(i, shapeOf(paddedInputs[i]));
+      }
+      interpreter.allocateTensors();
+    } catch (RuntimeException e) {
+      interpreter.close();
+      throw e;
+    }
+    interpreters.put(key, interpreter);
+    return interpreter;
+  }
+
+  private int[] paddedShapeOf(int[] shape) {
+    int dim = options.paddedDimension;
+    if (dim >= shape.length) {
+      return shape;
+    }
+    for (int bucketSize : options.bucketSizes) {
+      if (bucketSize >= shape[dim]) {
+        int[] paddedShape = shape.clone();
+        paddedShape[dim] = bucketSize;
+        return paddedShape;
+      }
+    }
+    return shape;
+  }
+
+  private static int[] shapeOf(Object array) {
+    if (array == null || !array.getClass().isArray() || !baseTypeOf(array).isPrimitive()) {
+      throw new IllegalArgumentException(
+          "Inputs of a BucketingInterpreter must be arrays of a primitive type, got " + array);
+    }
+    int[] shape = new int[Tensor.computeNumDimensions(array)];
+    Tensor.fillShape(array, 0, shape);
+    return shape;
+  }
+
+  private static Class<?> baseTypeOf(Object array) {
+    Class<?> c = array.getClass();
+    while (c.isArray()) {
+      c = c.getComponentType();
+    }
+    return c;
+  }
+
+  /** Returns a copy of an array padded with zeros to a larger shape. */
+  private static Object pad(Object array, int[] paddedShape) {
+    Object padded = Array.newInstance(baseTypeOf(array), paddedShape);
+    copyOverlap(array, padded);
+    return padded;
+  }
+
+  /** Copies the elements of an array that are within the shape of another array. */
+  private static void copyOverlap(Object src, Object dst) {
+    int length = Math.min(Array.getLength(src), Array.getLength(dst));
+    if (src.getClass().getComponentType().isArray()) {
+      for (int i = 0; i < length; ++i) {
+        copyOverlap(Array.get(src, i), Array.get(dst, i));
+      }
+    } else {
+      System.arraycopy(src, 0, dst, 0, length);
+    }
+  }
+
+  private void checkNotClosed() {
+    if (model == null) {
+      throw new IllegalStateException(
+          "Internal error: The BucketingInterpreter has already been closed.");
+    }
+  }
+
+  private NativeInterpreterWrapper.SharedModel model;
+  private final Options options;
+
+  // Interpreters allocated for each padded shape of the inputs, the least recently used first.
+  private final LinkedHashMap<String, Interpreter> interpreters =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+}
@@ -16,12 +16,22 @@ limitations under the License.
 package org.tensorflow.lite;
 
 import java.io.File;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 /**
@@ -173,12 +183,26 @@ public final class Interpreter implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Advanced: Set if the time spent in each operator of the model is profiled.
+     *
+     * <p>Profiling adds a small overhead to each operator invocation, so it should only be enabled
+     * while investigating the latency of a model.
+     *
+     * @see Interpreter#getOperatorStats()
+     */
+    public Options setOperatorProfiling(boolean enable) {
+      this.operatorProfiling = enable;
+      return this;
+    }
+
     int numThreads = -1;
     Boolean useNNAPI;
     Boolean allowFp16PrecisionForFp32;
     Boolean allowBufferHandleOutput;
     Boolean allowCancellation;
     Boolean useXNNPACK;
+    Boolean operatorProfiling;
     final List<Delegate> delegates = new ArrayList<>();
   }
 
@@ -277,6 +301,10 @@ public final class Interpreter implements AutoCloseable {
     wrapper = new NativeInterpreterWrapper(byteBuffer, options);
   }
 
+  Interpreter(NativeInterpreterWrapper wrapper) {
+    this.wrapper = wrapper;
+  }
+
   /**
    * Runs model inference if the model takes only one input, and provides only one output.
    *
@@ -360,6 +388,162 @@ public final class Interpreter implements AutoCloseable {
     wrapper.run(inputs, outputs);
   }
 
+  /**
+   * Runs model inference once on a batch of samples, if the model takes only one input, and
+   * provides only one output.
+   *
+   * <p>The first dimension of the input is the batch dimension: it is resized to the number of
+   * samples if it differs from the current one, so tensors are only reallocated when the batch size
+   * changes. The samples are then packed into the input tensor, the model is invoked once for the
+   * whole batch, and the output is sliced back into the output of each sample.
+   *
+   * <p>Each input and output sample is either a (multi-dimensional) array with a first dimension of
+   * 1, e.g. {@code float[1][224][224][3]}, or a {@link Buffer} of primitive types holding a single
+   * sample. Input buffers must hold exactly one sample in their full capacity, and output buffers
+   * receive it at their position, as in {@link #run(Object, Object)}.
+   *
+   * @param inputs the input of each sample of the batch
+   * @param outputs the output of each sample of the batch, in the same order as {@code inputs}
+   * @throws IllegalArgumentException if {@code inputs} is null or empty, if {@code outputs} does
+   *     not have the size of {@code inputs}, or if an error occurs when running the inference.
+   */
+  public void runBatch(@NonNull List<?> inputs, @NonNull List<?> outputs) {
+    List<Object[]> inputsList = new ArrayList<>(inputs.size());
+    for (Object input : inputs) {
+      inputsList.add(new Object[] {input});
+    }
+    List<Map<Integer, Object>> outputsList = new ArrayList<>(outputs.size());
+    for (Object output : outputs) {
+      Map<Integer, Object> outputMap = new HashMap<>();
+      outputMap.put(0, output);
+      outputsList.add(outputMap);
+    }
+    runBatchForMultipleInputsOutputs(inputsList, outputsList);
+  }
+
+  /**
+   * Runs model inference once on a batch of samples, if the model takes multiple inputs, or
+   * returns multiple outputs.
+   *
+   * <p>Inputs are batched along their first dimension as in {@link #runBatch(List, List)}, and
+   * each sample provides its inputs and outputs as in {@link #runForMultipleInputsOutputs(Object[],
+   * Map)}. All samples must fetch the same outputs.
+   *
+   * @param inputs the inputs of each sample of the batch
+   * @param outputs the outputs of each sample of the batch, in the same order as {@code inputs}
+   * @throws IllegalArgumentException if {@code inputs} is null or empty, if {@code outputs} does
+   *     not have the size of {@code inputs}, or if an error occurs when running the inference.
+   */
+  public void runBatchForMultipleInputsOutputs(
+      @NonNull List<Object[]> inputs, @NonNull List<Map<Integer, Object>> outputs) {
+    checkNotClosed();
+    wrapper.runBatch(inputs, outputs);
+  }
+
+  /**
+   * Prepares the repeated inference of the model on the same input and output buffers.
+   *
+   * <p>The buffers are bound once, so that each {@link PreparedInvocation#run()} only copies their
+   * content to and from the tensors of the model and runs inference, without allocating any Java
+   * object. This is the preferred way to run a model in a tight loop, e.g.:
+   *
+   * <pre>{@code
+   * try (Interpreter.PreparedInvocation invocation =
+   *     interpreter.prepareInvocation(new Buffer[] {input}, new Buffer[] {output})) {
+   *   while (hasMoreFrames()) {
+   *     readFrameInto(input);
+   *     invocation.run();
+   *     processResult(output);
+   *   }
+   * }
+   * }</pre>
+   *
+   * <p>All buffers must be direct and, unless they are {@link ByteBuffer}s, in native byte order.
+   * Each buffer is bound from its current position: input buffers must have exactly as many bytes
+   * remaining as their tensor, and output buffers at least as many. Entries of {@code outputs}
+   * may be {@code null} for outputs that need not be fetched. Buffer positions are never modified.
+   *
+   * <p>Inputs must not be resized while the returned invocation is in use.
+   *
+   * @param inputs direct buffers for all inputs of the model, in the same order as the model inputs
+   * @param outputs direct buffers for the first {@code outputs.length} outputs of the model
+   * @throws IllegalArgumentException if a buffer cannot be bound to its tensor
+   */
+  public PreparedInvocation prepareInvocation(
+      @NonNull Buffer[] inputs, @NonNull Buffer[] outputs) {
+    checkNotClosed();
+    return new PreparedInvocation(wrapper.prepare(inputs, outputs), inputs, outputs);
+  }
+
+  /**
+   * Runs model inference asynchronously, on a thread dedicated to this interpreter.
+   *
+   * <p>Inferences submitted by successive calls run one after the other, in order. The inputs and
+   * outputs must not be accessed until the returned future is done.
+   *
+   * <p>The returned future is completed with:
+   *
+   * <ul>
+   *   <li>{@link RunStatus#COMPLETED} if the inference completed and the outputs have been written;
+   *   <li>{@link RunStatus#TIMED_OUT} if the deadline expired before the inference completed, in
+   *       which case it is interrupted between two operators, or not even started;
+   *   <li>{@link RunStatus#CANCELLED} if the inference was interrupted by {@link
+   *       #setCancelled(boolean)}.
+   * </ul>
+   *
+   * <p>Cancelling the returned future also interrupts the inference. If the inference has not
+   * started, the future is cancelled immediately. Otherwise, the inputs and outputs are still in
+   * use until the inference is interrupted, so the future is only done once it has returned, and
+   * it is then completed with {@link RunStatus#CANCELLED} (or {@link RunStatus#TIMED_OUT} if the
+   * deadline expired first) rather than cancelled: wait for it with {@link Future#get()} before
+   * reusing the inputs and outputs. Inference errors are reported by the future as an {@link
+   * java.util.concurrent.ExecutionException}.
+   *
+   * <p>Each asynchronous inference clears the cancellation flag of the interpreter before running.
+   *
+   * <p>WARNING: This is an experimental API and subject to change.
+   *
+   * @param inputs the inputs of the model, as in {@link #runForMultipleInputsOutputs(Object[],
+   *     Map)}
+   * @param outputs the outputs of the model, as in {@link #runForMultipleInputsOutputs(Object[],
+   *     Map)}
+   * @param timeout the maximum time to wait for the inference to complete, from this call
+   * @param unit the unit of {@code timeout}
+   * @throws IllegalStateException if the interpreter is not initialized with the cancellable
+   *     option.
+   * @see Interpreter.Options#setCancellable(boolean)
+   */
+  public Future<RunStatus> runAsync(
+      @NonNull Object[] inputs,
+      @NonNull Map<Integer, Object> outputs,
+      long timeout,
+      @NonNull TimeUnit unit) {
+    checkNotClosed();
+    if (!wrapper.isCancellable()) {
+      throw new IllegalStateException(
+          "Cannot run asynchronously. Have you called Interpreter.Options.setCancellable?");
+    }
+    AsyncRun run = new AsyncRun(inputs, outputs);
+    AsyncFuture future = new AsyncFuture(run);
+    if (asyncExecutor == null) {
+      asyncExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory());
+    }
+    // Scheduled first, so that an inference cannot complete before its deadline is set.
+    future.deadline = DeadlineScheduler.INSTANCE.schedule((Runnable) run, timeout, unit);
+    asyncExecutor.execute(future);
+    return future;
+  }
+
+  /** The outcome of an inference run by {@link #runAsync(Object[], Map, long, TimeUnit)}. */
+  public enum RunStatus {
+    /** The inference completed and the outputs have been written. */
+    COMPLETED,
+    /** The inference was interrupted by {@link Interpreter#setCancelled(boolean)}. */
+    CANCELLED,
+    /** The inference was interrupted, or not started, because its deadline expired. */
+    TIMED_OUT
+  }
+
   /**
    * Expicitly updates allocations for all tensors, if necessary.
    *
@@ -412,6 +596,52 @@ public final class Interpreter implements AutoCloseable {
     wrapper.resizeInput(idx, dims, strict);
   }
 
+  /**
+   * Uses the memory of {@code buffer} as the memory of the idx-th input tensor.
+   *
+   * <p>Once bound, data written to the buffer is directly read by the model, and passing the same
+   * buffer to {@link #run(Object, Object)} or {@link #runForMultipleInputsOutputs(Object[], Map)}
+   * does not copy it. This saves a full copy of the input per inference, e.g. for camera frames
+   * written to the buffer by the producer.
+   *
+   * <p>The whole capacity of the buffer is bound, regardless of its position and limit. It must be
+   * direct, aligned in memory as returned by {@link #allocateAlignedBuffer(int)}, and at least as
+   * large as the tensor, also after any later resize. The buffer must not be written while
+   * inference is running. A tensor can be bound again to another buffer, but not unbound.
+   *
+   * @throws IllegalArgumentException if {@code idx} is not a valid input index, or if the buffer
+   *     cannot be bound to the tensor.
+   */
+  public void bindInputBuffer(int idx, @NonNull ByteBuffer buffer) {
+    checkNotClosed();
+    wrapper.bindInputBuffer(idx, buffer);
+  }
+
+  /**
+   * Uses the memory of {@code buffer} as the memory of the idx-th output tensor.
+   *
+   * <p>Once bound, the model writes its output directly to the buffer, and passing the same buffer
+   * to {@link #run(Object, Object)} or {@link #runForMultipleInputsOutputs(Object[], Map)} does
+   * not copy it. The requirements of {@link #bindInputBuffer(int, ByteBuffer)} apply.
+   *
+   * @throws IllegalArgumentException if {@code idx} is not a valid output index, or if the buffer
+   *     cannot be bound to the tensor.
+   */
+  public void bindOutputBuffer(int idx, @NonNull ByteBuffer buffer) {
+    checkNotClosed();
+    wrapper.bindOutputBuffer(idx, buffer);
+  }
+
+  /**
+   * Allocates a direct buffer in native byte order that can be bound to a tensor with {@link
+   * #bindInputBuffer(int, ByteBuffer)} or {@link #bindOutputBuffer(int, ByteBuffer)}.
+   *
+   * @param capacity the capacity of the buffer, in bytes
+   */
+  public static ByteBuffer allocateAlignedBuffer(int capacity) {
+    return NativeInterpreterWrapper.allocateAlignedBuffer(capacity);
+  }
+
   /** Gets the number of input tensors. */
   public int getInputTensorCount() {
     checkNotClosed();
@@ -525,6 +755,33 @@ public final class Interpreter implements AutoCloseable {
     wrapper.modifyGraphWithDelegate(delegate);
   }
 
+  /**
+   * Advanced: Returns the time spent in each operator of the model, aggregated over all inferences
+   * since the interpreter was created or the statistics were last reset.
+   *
+   * <p>Operators are sorted by decreasing total time, so the first ones dominate the latency of the
+   * model. Operators that a delegate runs as a single node are reported once for that node, and
+   * again for each of their internal operators if the delegate profiles them.
+   *
+   * @throws IllegalStateException if operator profiling has not been enabled with {@link
+   *     Options#setOperatorProfiling(boolean)}.
+   */
+  public List<OperatorStats> getOperatorStats() {
+    checkNotClosed();
+    return wrapper.getOperatorStats();
+  }
+
+  /**
+   * Advanced: Resets the statistics returned by {@link #getOperatorStats()}.
+   *
+   * @throws IllegalStateException if operator profiling has not been enabled with {@link
+   *     Options#setOperatorProfiling(boolean)}.
+   */
+  public void resetOperatorStats() {
+    checkNotClosed();
+    wrapper.resetOperatorStats();
+  }
+
   /**
    * Advanced: Resets all variable tensors to the default value.
    *
@@ -567,6 +824,9 @@ public final class Interpreter implements AutoCloseable {
   @Override
   public void close() {
     if (wrapper != null) {
+      if (asyncExecutor != null) {
+        shutdownAsyncExecutor();
+      }
       wrapper.close();
       wrapper = null;
     }
@@ -583,6 +843,198 @@ public final class Interpreter implements AutoCloseable {
     }
   }
 
+  /**
+   * Inference of the model on buffers bound by {@link #prepareInvocation(Buffer[], Buffer[])}.
+   *
+   * <p>Instances are not thread-safe and must be closed to release their native resources.
+   */
+  public final class PreparedInvocation implements AutoCloseable {
+
+    /**
+     * Copies the input buffers to the model, runs inference and copies the outputs to their buffers.
+     *
+     * @throws IllegalStateException if this invocation or its {@code Interpreter} has been closed
+     * @throws IllegalArgumentException if an input has been resized since this invocation was
+     *     prepared, or if an error occurs when running the inference
+     */
+    public void run() {
+      checkNotClosed();
+      if (nativeHandle == 0) {
+        throw new IllegalStateException("Internal error: The invocation has already been closed.");
+      }
+      wrapper.runPrepared(nativeHandle);
+    }
+
+    /** Releases the native resources of this invocation. */
+    @Override
+    public void close() {
+      if (nativeHandle != 0) {
+        NativeInterpreterWrapper.deletePrepared(nativeHandle);
+        nativeHandle = 0;
+      }
+    }
+
+    private PreparedInvocation(long nativeHandle, Buffer[] inputs, Buffer[] outputs) {
+      this.nativeHandle = nativeHandle;
+      this.inputs = inputs.clone();
+      this.outputs = outputs.clone();
+    }
+
+    private long nativeHandle;
+
+    // Keeps the bound buffers reachable, as the native bindings only refer to their addresses.
+    @SuppressWarnings("unused")
+    private final Buffer[] inputs;
+
+    @SuppressWarnings("unused")
+    private final Buffer[] outputs;
+  }
+
+  /** Cancels pending asynchronous inferences and waits for the running one to be interrupted. */
+  private void shutdownAsyncExecutor() {
+    for (Runnable pending : asyncExecutor.shutdownNow()) {
+      ((Future<?>) pending).cancel(false);
+    }
+    wrapper.setCancelled(true);
+    boolean interrupted = false;
+    while (true) {
+      try {
+        if (asyncExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    asyncExecutor = null;
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** An inference run asynchronously, which its deadline or its future can interrupt. */
+  private final class AsyncRun implements Callable<RunStatus>, Runnable {
+
+    @Override
+    public RunStatus call() {
+      synchronized (this) {
+        if (state != PENDING) {
+          return state == TIMED_OUT ? RunStatus.TIMED_OUT : RunStatus.CANCELLED;
+        }
+        state = RUNNING;
+        running = true;
+        wrapper.setCancelled(false);
+      }
+      try {
+        wrapper.run(inputs, outputs);
+        return RunStatus.COMPLETED;
+      } catch (IllegalArgumentException e) {
+        synchronized (this) {
+          if (state == TIMED_OUT) {
+            return RunStatus.TIMED_OUT;
+          }
+          if (state == CANCELLED || wrapper.isCancelled()) {
+            return RunStatus.CANCELLED;
+          }
+        }
+        throw e;
+      } finally {
+        synchronized (this) {
+          if (state != RUNNING) {
+            // The flag has been raised for this inference only.
+            wrapper.setCancelled(false);
+          }
+          state = DONE;
+          running = false;
+        }
+      }
+    }
+
+    /** Expires the deadline of the inference. */
+    @Override
+    public void run() {
+      interrupt(TIMED_OUT);
+    }
+
+    /** Interrupts the inference, returning whether it is still using its inputs and outputs. */
+    synchronized boolean interrupt(int newState) {
+      if (state == PENDING || state == RUNNING) {
+        if (state == RUNNING) {
+          wrapper.setCancelled(true);
+        }
+        state = newState;
+      }
+      return running;
+    }
+
+    AsyncRun(Object[] inputs, Map<Integer, Object> outputs) {
+      this.inputs = inputs;
+      this.outputs = outputs;
+    }
+
+    private final Object[] inputs;
+    private final Map<Integer, Object> outputs;
+    private int state = PENDING;
+    private boolean running;
+  }
+
+  private static final class AsyncFuture extends FutureTask<RunStatus> {
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      if (run.interrupt(CANCELLED)) {
+        // The native inference still accesses the inputs and outputs: this future is completed
+        // by the worker once it has returned.
+        return true;
+      }
+      return super.cancel(false);
+    }
+
+    @Override
+    protected void done() {
+      ScheduledFuture<?> deadline = this.deadline;
+      if (deadline != null) {
+        deadline.cancel(false);
+      }
+    }
+
+    AsyncFuture(AsyncRun run) {
+      super(run);
+      this.run = run;
+    }
+
+    private final AsyncRun run;
+    volatile ScheduledFuture<?> deadline;
+  }
+
+  /** Expires the deadlines of the asynchronous inferences of all interpreters. */
+  private static final class DeadlineScheduler {
+    static final ScheduledThreadPoolExecutor INSTANCE = create();
+
+    private static ScheduledThreadPoolExecutor create() {
+      ScheduledThreadPoolExecutor scheduler =
+          new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());
+      scheduler.setRemoveOnCancelPolicy(true);
+      return scheduler;
+    }
+  }
+
+  private static final class DaemonThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "tflite-interpreter-async");
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  // States of an asynchronous inference.
+  private static final int PENDING = 0;
+  private static final int RUNNING = 1;
+  private static final int TIMED_OUT = 2;
+  private static final int CANCELLED = 3;
+  private static final int DONE = 4;
+
   private void checkNotClosed() {
     if (wrapper == null) {
       throw new IllegalStateException("Internal error: The Interpreter has already been closed.");
@@ -590,4 +1042,7 @@ public final class Interpreter implements AutoCloseable {
   }
 
   NativeInterpreterWrapper wrapper;
+
+  // Lazily created by the first asynchronous inference.
+  private ExecutorService asyncExecutor;
 }
@@ -0,0 +1,298 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * A fixed set of {@link Interpreter}s of the same model, handed out to concurrent threads.
+ *
+ * <p>An {@code Interpreter} must not be used by several threads at once. On a multi-core server,
+ * a pool lets each request thread run inference on its own interpreter, while the model itself is
+ * loaded (or memory-mapped) only once and shared by all interpreters of the pool:
+ *
+ * <pre>{@code
+ * try (InterpreterPool pool = new InterpreterPool(modelFile, 4, new Interpreter.Options())) {
+ *   ...
+ *   // On each request thread
+ *   InterpreterPool.Lease lease = pool.acquire(100, TimeUnit.MILLISECONDS);
+ *   if (lease == null) {
+ *     // All interpreters remained busy, e.g. reject the request
+ *   }
+ *   try {
+ *     lease.interpreter().run(input, output);
+ *   } finally {
+ *     lease.close();
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>Unless a number of threads is set in the options, each interpreter is pinned to an equal share
+ * of the available processors, so that a fully used pool saturates all cores without
+ * oversubscribing them.
+ *
+ * <p>Instances of this class are thread-safe.
+ */
+public final class InterpreterPool implements AutoCloseable {
+
+  /**
+   * Creates a pool of {@code size} interpreters sharing the model of a file.
+   *
+   * @param modelFile a file of a pre-trained TF Lite model
+   * @param size the number of interpreters in the pool
+   * @param options options of every interpreter, which must not contain any {@link Delegate}
+   * @throws IllegalArgumentException if {@code modelFile} does not encode a valid TensorFlow Lite
+   *     model, or if {@code size} or {@code options} are invalid.
+   */
+  public InterpreterPool(@NonNull File modelFile, int size, Interpreter.Options options) {
+    checkArguments(size, options);
+    this.model = new NativeInterpreterWrapper.SharedModel(modelFile.getAbsolutePath());
+    this.size = size;
+    createInterpreters(options);
+  }
+
+  /**
+   * Creates a pool of {@code size} interpreters sharing the model of a {@code ByteBuffer}.
+   *
+   * <p>The {@code ByteBuffer} should not be modified after the construction of the pool. It can be
+   * either a {@code MappedByteBuffer} that memory-maps a model file, or a direct {@code ByteBuffer}
+   * of nativeOrder() that contains the bytes content of a model.
+   *
+   * @param byteBuffer the model
+   * @param size the number of interpreters in the pool
+   * @param options options of every interpreter, which must not contain any {@link Delegate}
+   * @throws IllegalArgumentException if {@code byteBuffer} is not a valid model buffer, or if
+   *     {@code size} or {@code options} are invalid.
+   */
+  public InterpreterPool(@NonNull ByteBuffer byteBuffer, int size, Interpreter.Options options) {
+    checkArguments(size, options);
+    this.model = new NativeInterpreterWrapper.SharedModel(byteBuffer);
+    this.size = size;
+    createInterpreters(options);
+  }
+
+  /**
+   * Acquires an interpreter, waiting until one is available.
+   *
+   * @throws IllegalStateException if the pool has been closed
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public Lease acquire() throws InterruptedException {
+    return acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Acquires an interpreter, waiting up to {@code timeout} until one is available.
+   *
+   * @return a lease of the interpreter, or null if none became available in time
+   * @throws IllegalStateException if the pool has been closed
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public synchronized Lease acquire(long timeout, TimeUnit unit) throws InterruptedException {
+    long startNanos = System.nanoTime();
+    long remainingNanos = unit.toNanos(timeout);
+    while (idle.isEmpty()) {
+      checkNotClosed();
+      if (remainingNanos <= 0) {
+        ++timeoutCount;
+        return null;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+      remainingNanos = unit.toNanos(timeout) - (System.nanoTime() - startNanos);
+    }
+    checkNotClosed();
+    long nowNanos = System.nanoTime();
+    ++acquireCount;
+    totalWaitNanos += nowNanos - startNanos;
+    updateLeasedNanos(nowNanos);
+    // The most recently used interpreter is reused first, as its memory is most likely cached.
+    return new Lease(idle.pop());
+  }
+
+  /** Returns the number of interpreters in the pool. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the number of interpreters that are not currently leased. */
+  public synchronized int availableCount() {
+    return idle.size();
+  }
+
+  /** Returns the number of interpreters successfully acquired since the pool was created. */
+  public synchronized long acquireCount() {
+    return acquireCount;
+  }
+
+  /** Returns the number of acquisitions that timed out since the pool was created. */
+  public synchronized long timeoutCount() {
+    return timeoutCount;
+  }
+
+  /** Returns the mean time spent waiting for an interpreter by successful acquisitions. */
+  public synchronized long meanWaitNanos() {
+    return acquireCount == 0 ? 0 : totalWaitNanos / acquireCount;
+  }
+
+  /**
+   * Returns the fraction of the capacity of the pool used since its creation, i.e. the total time
+   * interpreters have been leased divided by {@code size()} times the age of the pool.
+   */
+  public synchronized double utilization() {
+    long nowNanos = System.nanoTime();
+    long leasedNanos = totalLeasedNanos + (nowNanos - lastChangeNanos) * (size - idle.size());
+    long capacityNanos = (nowNanos - createdNanos) * size;
+    return capacityNanos <= 0 ? 0.0 : Math.min(1.0, (double) leasedNanos / capacityNanos);
+  }
+
+  /**
+   * Closes the pool.
+   *
+   * <p>Idle interpreters are closed immediately, and leased ones when their lease is closed. The
+   * shared model is released once all interpreters have been closed.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    while (!idle.isEmpty()) {
+      closeInterpreter(idle.pop());
+    }
+    notifyAll();
+  }
+
+  /** Exclusive use of an interpreter of the pool, until the lease is closed. */
+  public final class Lease implements AutoCloseable {
+
+    /**
+     * Returns the leased interpreter.
+     *
+     * <p>The interpreter must not be closed, nor used after the lease has been closed.
+     *
+     * @throws IllegalStateException if the lease has been closed
+     */
+    public Interpreter interpreter() {
+      if (interpreter == null) {
+        throw new IllegalStateException("The lease has already been closed.");
+      }
+      return interpreter;
+    }
+
+    /** Returns the interpreter to the pool. */
+    @Override
+    public void close() {
+      if (interpreter != null) {
+        release(interpreter);
+        interpreter = null;
+      }
+    }
+
+    private Lease(Interpreter interpreter) {
+      this.interpreter = interpreter;
+    }
+
+    private Interpreter interpreter;
+  }
+
+  private static void checkArguments(int size, Interpreter.Options options) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("The size of the pool must be positive, got " + size);
+    }
+    if (options != null && !options.delegates.isEmpty()) {
+      throw new IllegalArgumentException(
+          "Delegates cannot be shared by the interpreters of a pool.");
+    }
+  }
+
+  private void createInterpreters(Interpreter.Options options) {
+    if (options == null) {
+      options = new Interpreter.Options();
+    }
+    int numThreads =
+        options.numThreads > 0
+            ? options.numThreads
+            : Math.max(1, Runtime.getRuntime().availableProcessors() / size);
+    try {
+      for (int i = 0; i < size; ++i) {
+        NativeInterpreterWrapper wrapper = new NativeInterpreterWrapper(model, options);
+        ++liveCount;
+        idle.push(new Interpreter(wrapper));
+        wrapper.setNumThreads(numThreads);
+      }
+    } catch (RuntimeException e) {
+      close();
+      if (liveCount == 0) {
+        model.close();
+      }
+      throw e;
+    }
+    createdNanos = lastChangeNanos = System.nanoTime();
+  }
+
+  private synchronized void release(Interpreter interpreter) {
+    updateLeasedNanos(System.nanoTime());
+    if (closed) {
+      closeInterpreter(interpreter);
+      return;
+    }
+    idle.push(interpreter);
+    notify();
+  }
+
+  private void updateLeasedNanos(long nowNanos) {
+    totalLeasedNanos += (nowNanos - lastChangeNanos) * (size - idle.size());
+    lastChangeNanos = nowNanos;
+  }
+
+  private void closeInterpreter(Interpreter interpreter) {
+    interpreter.close();
+    if (--liveCount == 0) {
+      model.close();
+    }
+  }
+
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("The InterpreterPool has already been closed.");
+    }
+  }
+
+  private final NativeInterpreterWrapper.SharedModel model;
+  private final int size;
+
+  // Idle interpreters, the most recently released first.
+  private final ArrayDeque<Interpreter> idle = new ArrayDeque<>();
+
+  // Number of interpreters of the pool that have not been closed yet.
+  private int liveCount;
+  private boolean closed;
+
+  private long createdNanos;
+  private long acquireCount;
+  private long timeoutCount;
+  private long totalWaitNanos;
+
+  // Time interpreters have been leased until lastChangeNanos, when the number of leased interpreters
+  // last changed.
+  private long totalLeasedNanos;
+  private long lastChangeNanos;
+}
@@ -0,0 +1,196 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * A TensorFlow Lite model memory-mapped read-only from a file, without copying it to the heap.
+ *
+ * <p>The model can be the whole file or a region of a larger file, e.g. an uncompressed entry of an
+ * archive. Mapping the same region more than once, from any thread, shares a single mapping and a
+ * single loaded model, so that interpreters of the same model do not duplicate its weights:
+ *
+ * <pre>{@code
+ * try (MappedModel model = MappedModel.map(modelFile);
+ *     Interpreter interpreter = model.newInterpreter(new Interpreter.Options())) {
+ *   interpreter.run(input, output);
+ * }
+ * }</pre>
+ *
+ * <p>The mapping is reference counted: the loaded model is released once all {@code MappedModel}
+ * instances of the region and all interpreters created from them have been closed. The memory of
+ * the mapping itself is returned to the system when its buffer is garbage collected.
+ *
+ * <p>Pages of the model are only read from storage when first accessed, so {@link
+ * #getResidentBytes()} may be much lower than {@link #getMappedBytes()}, e.g. for the weights of
+ * operators that have never run.
+ *
+ * <p>Instances of this class are thread-safe.
+ */
+public final class MappedModel implements AutoCloseable {
+
+  /**
+   * Memory-maps the model of a whole file.
+   *
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the file does not encode a valid TensorFlow Lite model
+   */
+  public static MappedModel map(@NonNull File modelFile) throws IOException {
+    return map(modelFile, 0, modelFile.length());
+  }
+
+  /**
+   * Memory-maps the model stored in a region of a file.
+   *
+   * @param modelFile the file containing the model
+   * @param offset the position of the model in the file, in bytes
+   * @param length the size of the model, in bytes
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the region is out of the bounds of the file, or does not
+   *     encode a valid TensorFlow Lite model
+   */
+  public static MappedModel map(@NonNull File modelFile, long offset, long length)
+      throws IOException {
+    if (offset < 0 || length <= 0 || length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          "Invalid model region: offset " + offset + ", length " + length + ".");
+    }
+    String key = modelFile.getCanonicalPath() + ":" + offset + ":" + length;
+    synchronized (mappings) {
+      Mapping mapping = mappings.get(key);
+      if (mapping == null) {
+        mapping = new Mapping(key, mapRegion(modelFile, offset, length));
+        mappings.put(key, mapping);
+      }
+      ++mapping.openCount;
+      return new MappedModel(mapping);
+    }
+  }
+
+  /**
+   * Creates an interpreter of the model, which holds a reference to it until the interpreter is
+   * closed.
+   *
+   * @param options options of the interpreter, or null to use the default options
+   * @throws IllegalStateException if this {@code MappedModel} has been closed
+   */
+  public Interpreter newInterpreter(Interpreter.Options options) {
+    return new Interpreter(new NativeInterpreterWrapper(checkNotClosed().model, options));
+  }
+
+  /**
+   * Returns the read-only buffer mapping the model, e.g. to create an {@link Interpreter} that does
+   * not share the loaded model.
+   */
+  public MappedByteBuffer getBuffer() {
+    return checkNotClosed().buffer;
+  }
+
+  /** Returns the number of bytes of the model mapped in the address space of the process. */
+  public long getMappedBytes() {
+    return checkNotClosed().buffer.capacity();
+  }
+
+  /**
+   * Returns the number of bytes of the model currently resident in physical memory, or -1 if it
+   * cannot be determined on this platform.
+   */
+  public long getResidentBytes() {
+    return NativeInterpreterWrapper.residentBytes(checkNotClosed().buffer);
+  }
+
+  /**
+   * Releases this reference to the mapping. Interpreters created by {@link
+   * #newInterpreter(Interpreter.Options)} remain usable until they are closed.
+   */
+  @Override
+  public void close() {
+    Mapping mapping;
+    synchronized (this) {
+      mapping = this.mapping;
+      this.mapping = null;
+    }
+    if (mapping == null) {
+      return;
+    }
+    synchronized (mappings) {
+      if (--mapping.openCount > 0) {
+        return;
+      }
+      mappings.remove(mapping.key);
+    }
+    mapping.model.close();
+  }
+
+  private MappedModel(Mapping mapping) {
+    this.mapping = mapping;
+  }
+
+  private static MappedByteBuffer mapRegion(File modelFile, long offset, long length)
+      throws IOException {
+    try (FileInputStream stream = new FileInputStream(modelFile);
+        FileChannel channel = stream.getChannel()) {
+      if (offset + length > channel.size()) {
+        throw new IllegalArgumentException(
+            "The model region ends at byte "
+                + (offset + length)
+                + ", beyond the end of "
+                + modelFile
+                + " ("
+                + channel.size()
+                + " bytes).");
+      }
+      // The mapping remains valid after the channel is closed.
+      return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+  }
+
+  private synchronized Mapping checkNotClosed() {
+    if (mapping == null) {
+      throw new IllegalStateException("The MappedModel has already been closed.");
+    }
+    return mapping;
+  }
+
+  /** A region of a file mapped in memory, and the model loaded from it. */
+  private static final class Mapping {
+    Mapping(String key, MappedByteBuffer buffer) {
+      this.key = key;
+      this.buffer = buffer;
+      this.model = new NativeInterpreterWrapper.SharedModel(buffer);
+    }
+
+    final String key;
+    final MappedByteBuffer buffer;
+    final NativeInterpreterWrapper.SharedModel model;
+
+    // Number of MappedModel instances of the mapping that have not been closed yet.
+    int openCount;
+  }
+
+  // Mappings of the models currently open, by file, offset and length.
+  private static final Map<String, Mapping> mappings = new HashMap<>();
+
+  private Mapping mapping;
+}
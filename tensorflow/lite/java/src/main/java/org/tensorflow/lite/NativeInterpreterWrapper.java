@@ -15,10 +15,16 @@ limitations under the License.
 
 package org.tensorflow.lite;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.nio.MappedByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +56,85 @@ final class NativeInterpreterWrapper implements AutoCloseable {
 
   NativeInterpreterWrapper(ByteBuffer buffer, Interpreter.Options options) {
     TensorFlowLite.init();
+    checkModelBuffer(buffer);
+    this.modelByteBuffer = buffer;
+    long errorHandle = createErrorReporter(ERROR_BUFFER_SIZE);
+    long modelHandle = createModelWithBuffer(modelByteBuffer, errorHandle);
+    init(errorHandle, modelHandle, options);
+  }
+
+  /** Creates an interpreter of a model that it does not own. */
+  NativeInterpreterWrapper(SharedModel model, Interpreter.Options options) {
+    long modelHandle = model.retain();
+    try {
+      init(createErrorReporter(ERROR_BUFFER_SIZE), modelHandle, options);
+    } catch (RuntimeException e) {
+      // The wrapper is unusable, so the reference it acquired would never be released otherwise.
+      model.release();
+      throw e;
+    }
+    this.sharedModel = model;
+  }
+
+  /**
+   * A model loaded once and shared by several interpreters, e.g. those of an {@link
+   * InterpreterPool}.
+   *
+   * <p>Interpreters hold a reference to the model, so that it is only deleted once it has been
+   * closed by its owner and all interpreters using it have been closed.
+   */
+  static final class SharedModel implements AutoCloseable {
+
+    SharedModel(String modelPath) {
+      TensorFlowLite.init();
+      this.errorHandle = createErrorReporter(ERROR_BUFFER_SIZE);
+      this.modelHandle = createModel(modelPath, errorHandle);
+    }
+
+    SharedModel(ByteBuffer buffer) {
+      TensorFlowLite.init();
+      checkModelBuffer(buffer);
+      this.modelByteBuffer = buffer;
+      this.errorHandle = createErrorReporter(ERROR_BUFFER_SIZE);
+      this.modelHandle = createModelWithBuffer(buffer, errorHandle);
+    }
+
+    /** Releases the reference of the owner of the model. */
+    @Override
+    public void close() {
+      release();
+    }
+
+    /** Acquires a reference to the model, returning its handle. */
+    synchronized long retain() {
+      if (modelHandle == 0) {
+        throw new IllegalStateException("Internal error: The model has already been closed.");
+      }
+      ++references;
+      return modelHandle;
+    }
+
+    synchronized void release() {
+      if (modelHandle == 0 || --references > 0) {
+        return;
+      }
+      delete(errorHandle, modelHandle, 0);
+      errorHandle = 0;
+      modelHandle = 0;
+      modelByteBuffer = null;
+    }
+
+    // The owner of the model holds the first reference.
+    private int references = 1;
+
+    private long errorHandle;
+
+    private long modelHandle;
+
+    private ByteBuffer modelByteBuffer;
+  }
+
+  private static void checkModelBuffer(ByteBuffer buffer) {
     if (buffer == null
         || (!(buffer instanceof MappedByteBuffer)
             && (!buffer.isDirect() || buffer.order() != ByteOrder.nativeOrder()))) {
@@ -57,10 +142,6 @@ final class NativeInterpreterWrapper implements AutoCloseable {
           "Model ByteBuffer should be either a MappedByteBuffer of the model file, or a direct "
               + "ByteBuffer using ByteOrder.nativeOrder() which contains bytes of model content.");
     }
-    this.modelByteBuffer = buffer;
-    long errorHandle = createErrorReporter(ERROR_BUFFER_SIZE);
-    long modelHandle = createModelWithBuffer(modelByteBuffer, errorHandle);
-    init(errorHandle, modelHandle, options);
   }
 
   private void init(long errorHandle, long modelHandle, Interpreter.Options options) {
@@ -73,8 +154,14 @@ final class NativeInterpreterWrapper implements AutoCloseable {
     if (options.allowCancellation != null && options.allowCancellation) {
       this.cancellationFlagHandle = createCancellationFlag(interpreterHandle);
     }
+    if (options.operatorProfiling != null && options.operatorProfiling) {
+      // Set before applying delegates, so that they can profile their internal operators.
+      this.operatorProfilerHandle = createOperatorProfiler(interpreterHandle);
+    }
     this.inputTensors = new Tensor[getInputCount(interpreterHandle)];
     this.outputTensors = new Tensor[getOutputCount(interpreterHandle)];
+    this.boundInputBuffers = new ByteBuffer[inputTensors.length];
+    this.boundOutputBuffers = new ByteBuffer[outputTensors.length];
     if (options.allowFp16PrecisionForFp32 != null) {
       allowFp16PrecisionForFp32(
           interpreterHandle, options.allowFp16PrecisionForFp32.booleanValue());
@@ -107,13 +194,21 @@ final class NativeInterpreterWrapper implements AutoCloseable {
         outputTensors[i] = null;
       }
     }
-    delete(errorHandle, modelHandle, interpreterHandle);
+    // A shared model is deleted once its last reference is released.
+    delete(errorHandle, sharedModel == null ? modelHandle : 0, interpreterHandle);
     deleteCancellationFlag(cancellationFlagHandle);
+    if (sharedModel != null) {
+      sharedModel.release();
+    }
     errorHandle = 0;
     modelHandle = 0;
     interpreterHandle = 0;
     cancellationFlagHandle = 0;
+    operatorProfilerHandle = 0;
     modelByteBuffer = null;
+    sharedModel = null;
+    boundInputBuffers = null;
+    boundOutputBuffers = null;
     inputsIndexes = null;
     outputsIndexes = null;
     isMemoryAllocated = false;
@@ -138,25 +233,33 @@ final class NativeInterpreterWrapper implements AutoCloseable {
       throw new IllegalArgumentException("Input error: Outputs should not be null or empty.");
     }
 
-    // TODO(b/80431971): Remove implicit resize after deprecating multi-dimensional array inputs.
-    // Rather than forcing an immediate resize + allocation if an input's shape differs, we first
-    // flush all resizes, avoiding redundant allocations.
-    for (int i = 0; i < inputs.length; ++i) {
-      Tensor tensor = getInputTensor(i);
-      int[] newShape = tensor.getInputShapeIfDifferent(inputs[i]);
-      if (newShape != null) {
-        resizeInput(i, newShape);
+    // When the tensors are allocated, first try to copy the inputs as is: the shape of each array
+    // is checked while it is copied, so unchanged shapes cost a single traversal of the arrays.
+    boolean needsAllocation = !isMemoryAllocated;
+    if (needsAllocation || !setInputsIfShapesMatch(inputs)) {
+      // TODO(b/80431971): Remove implicit resize after deprecating multi-dimensional array inputs.
+      // Rather than forcing an immediate resize + allocation if an input's shape differs, we first
+      // flush all resizes, avoiding redundant allocations.
+      for (int i = 0; i < inputs.length; ++i) {
+        Tensor tensor = getInputTensor(i);
+        int[] newShape = tensor.getInputShapeIfDifferent(inputs[i]);
+        if (newShape != null) {
+          resizeInput(i, newShape);
+        }
       }
-    }
 
-    boolean needsAllocation = !isMemoryAllocated;
-    if (needsAllocation) {
-      allocateTensors(interpreterHandle, errorHandle);
-      isMemoryAllocated = true;
-    }
+      needsAllocation = !isMemoryAllocated;
+      if (needsAllocation) {
+        allocateTensors(interpreterHandle, errorHandle);
+        isMemoryAllocated = true;
+      }
 
-    for (int i = 0; i < inputs.length; ++i) {
-      getInputTensor(i).setTo(inputs[i]);
+      for (int i = 0; i < inputs.length; ++i) {
+        // A buffer bound to the input already is the memory of its tensor.
+        if (inputs[i] != boundInputBuffers[i]) {
+          getInputTensor(i).setTo(inputs[i]);
+        }
+      }
     }
 
     long inferenceStartNanos = System.nanoTime();
@@ -172,15 +275,302 @@ final class NativeInterpreterWrapper implements AutoCloseable {
       }
     }
     for (Map.Entry<Integer, Object> output : outputs.entrySet()) {
-      getOutputTensor(output.getKey()).copyTo(output.getValue());
+      Tensor tensor = getOutputTensor(output.getKey());
+      if (output.getValue() != boundOutputBuffers[output.getKey()]) {
+        tensor.copyTo(output.getValue());
+      }
     }
 
     // Only set if the entire operation succeeds.
     this.inferenceDurationNanoseconds = inferenceDurationNanoseconds;
   }
 
+  /** Copies the inputs to their tensors, unless the shape of an input array has changed. */
+  private boolean setInputsIfShapesMatch(Object[] inputs) {
+    for (int i = 0; i < inputs.length; ++i) {
+      // Validates the index of the input before looking up its bound buffer.
+      Tensor tensor = getInputTensor(i);
+      if (inputs[i] != boundInputBuffers[i] && !tensor.setToIfShapeMatches(inputs[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static native void run(long interpreterHandle, long errorHandle);
 
+  /**
+   * Runs model inference once on a batch of samples, resizing the first dimension of the inputs to
+   * the size of the batch if it changed since the previous inference.
+   */
+  void runBatch(List<Object[]> inputs, List<Map<Integer, Object>> outputs) {
+    inferenceDurationNanoseconds = -1;
+    if (inputs == null || inputs.isEmpty()) {
+      throw new IllegalArgumentException("Input error: Inputs should not be null or empty.");
+    }
+    if (outputs == null || outputs.size() != inputs.size()) {
+      throw new IllegalArgumentException(
+          "Input error: Outputs should have one entry per sample of the batch.");
+    }
+    int batchSize = inputs.size();
+    int inputCount = inputs.get(0).length;
+    for (int i = 0; i < inputCount; ++i) {
+      int[] shape = getInputTensor(i).shape();
+      if (shape.length == 0) {
+        throw new IllegalArgumentException(
+            "Input error: Input " + i + " is a scalar and cannot be batched.");
+      }
+      if (shape[0] != batchSize) {
+        shape = shape.clone();
+        shape[0] = batchSize;
+        resizeInput(i, shape);
+      }
+    }
+    allocateTensors();
+
+    List<Object> samples = new ArrayList<>(batchSize);
+    for (int i = 0; i < inputCount; ++i) {
+      samples.clear();
+      for (Object[] sampleInputs : inputs) {
+        if (sampleInputs.length != inputCount) {
+          throw new IllegalArgumentException(
+              "Input error: All samples of a batch should have the same number of inputs.");
+        }
+        samples.add(sampleInputs[i]);
+      }
+      getInputTensor(i).setToBatch(samples);
+    }
+
+    long inferenceStartNanos = System.nanoTime();
+    run(interpreterHandle, errorHandle);
+    long inferenceDurationNanoseconds = System.nanoTime() - inferenceStartNanos;
+
+    for (Integer outputIndex : outputs.get(0).keySet()) {
+      samples.clear();
+      for (Map<Integer, Object> sampleOutputs : outputs) {
+        Object output = sampleOutputs.get(outputIndex);
+        if (output == null) {
+          throw new IllegalArgumentException(
+              "Input error: All samples of a batch should fetch output " + outputIndex + ".");
+        }
+        samples.add(output);
+      }
+      getOutputTensor(outputIndex).copyToBatch(samples);
+    }
+
+    // Only set if the entire operation succeeds.
+    this.inferenceDurationNanoseconds = inferenceDurationNanoseconds;
+  }
+
+  /**
+   * Binds direct buffers to the inputs and outputs of the model, allocating tensors if needed.
+   *
+   * <p>Outputs with a null buffer are not copied on each run. Bindings are made at the current
+   * position of each buffer and must later be released with {@link #deletePrepared(long)}.
+   *
+   * @return a handle to the native bindings, to be run with {@link #runPrepared(long)}
+   */
+  long prepare(Buffer[] inputs, Buffer[] outputs) {
+    if (inputs == null || inputs.length != inputTensors.length) {
+      throw new IllegalArgumentException(
+          "Input error: Expected " + inputTensors.length + " input buffers.");
+    }
+    if (outputs == null || outputs.length > outputTensors.length) {
+      throw new IllegalArgumentException(
+          "Input error: Expected at most " + outputTensors.length + " output buffers.");
+    }
+    allocateTensors();
+
+    int count = inputs.length + outputs.length;
+    Buffer[] buffers = new Buffer[count];
+    long[] byteOffsets = new long[count];
+    long[] byteSizes = new long[count];
+    for (int i = 0; i < count; ++i) {
+      boolean isInput = i < inputs.length;
+      Buffer buffer = isInput ? inputs[i] : outputs[i - inputs.length];
+      if (buffer == null) {
+        if (isInput) {
+          throw new IllegalArgumentException("Input error: Input buffer " + i + " is null.");
+        }
+        continue;
+      }
+      Tensor tensor = isInput ? getInputTensor(i) : getOutputTensor(i - inputs.length);
+      int elementSize = bindableElementSize(tensor, buffer);
+      long byteSize = (long) buffer.remaining() * elementSize;
+      if (isInput ? byteSize != tensor.numBytes() : byteSize < tensor.numBytes()) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Cannot bind a buffer with %d bytes to %s TensorFlowLite tensor (%s) with %d"
+                    + " bytes.",
+                byteSize, isInput ? "an input" : "an output", tensor.name(), tensor.numBytes()));
+      }
+      buffers[i] = buffer;
+      byteOffsets[i] = (long) buffer.position() * elementSize;
+      byteSizes[i] = byteSize;
+    }
+    return createPreparedInvocation(
+        interpreterHandle, buffers, byteOffsets, byteSizes, inputs.length);
+  }
+
+  /**
+   * Runs model inference on buffers bound by {@link #prepare(Buffer[], Buffer[])}.
+   *
+   * <p>Unlike {@link #run(Object[], Map)}, this does not allocate any Java object.
+   */
+  void runPrepared(long invocationHandle) {
+    inferenceDurationNanoseconds = -1;
+    allocateTensors();
+    long inferenceStartNanos = System.nanoTime();
+    runPreparedInvocation(interpreterHandle, errorHandle, invocationHandle);
+    this.inferenceDurationNanoseconds = System.nanoTime() - inferenceStartNanos;
+  }
+
+  /** Releases the native bindings returned by {@link #prepare(Buffer[], Buffer[])}. */
+  static void deletePrepared(long invocationHandle) {
+    deletePreparedInvocation(invocationHandle);
+  }
+
+  private static int bindableElementSize(Tensor tensor, Buffer buffer) {
+    if (!buffer.isDirect()) {
+      throw new IllegalArgumentException(
+          "Only direct buffers can be bound to a TensorFlowLite tensor, but "
+              + tensor.name()
+              + " was given a non-direct buffer.");
+    }
+    if (buffer instanceof ByteBuffer) {
+      return 1;
+    }
+    ByteOrder order;
+    int elementSize;
+    if (buffer instanceof FloatBuffer) {
+      order = ((FloatBuffer) buffer).order();
+      elementSize = 4;
+    } else if (buffer instanceof IntBuffer) {
+      order = ((IntBuffer) buffer).order();
+      elementSize = 4;
+    } else if (buffer instanceof LongBuffer) {
+      order = ((LongBuffer) buffer).order();
+      elementSize = 8;
+    } else {
+      throw new IllegalArgumentException(
+          "Cannot bind a " + buffer.getClass().getName() + " to a TensorFlowLite tensor.");
+    }
+    if (order != ByteOrder.nativeOrder()) {
+      throw new IllegalArgumentException(
+          "Only buffers in native byte order can be bound to a TensorFlowLite tensor.");
+    }
+    if (tensor.dataTypeOf(buffer) != tensor.dataType()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot bind a %s to TensorFlowLite tensor %s of type %s.",
+              buffer.getClass().getName(), tensor.name(), tensor.dataType()));
+    }
+    return elementSize;
+  }
+
+  private static native long createPreparedInvocation(
+      long interpreterHandle,
+      Buffer[] buffers,
+      long[] byteOffsets,
+      long[] byteSizes,
+      int inputCount);
+
+  private static native void runPreparedInvocation(
+      long interpreterHandle, long errorHandle, long invocationHandle);
+
+  private static native void deletePreparedInvocation(long invocationHandle);
+
+  /**
+   * Allocates a direct buffer in native byte order whose memory is aligned as required to be bound
+   * to a tensor.
+   */
+  static ByteBuffer allocateAlignedBuffer(int capacity) {
+    TensorFlowLite.init();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(capacity + TENSOR_ALIGNMENT - 1);
+    int offset = alignmentOffset(buffer);
+    buffer.position(offset);
+    buffer.limit(offset + capacity);
+    return buffer.slice().order(ByteOrder.nativeOrder());
+  }
+
+  /** Uses the memory of a direct buffer as the memory of an input tensor. */
+  void bindInputBuffer(int idx, ByteBuffer buffer) {
+    Tensor tensor = getInputTensor(idx);
+    setCustomAllocation(interpreterHandle, errorHandle, tensor.index(), buffer);
+    boundInputBuffers[idx] = buffer;
+  }
+
+  /** Uses the memory of a direct buffer as the memory of an output tensor. */
+  void bindOutputBuffer(int idx, ByteBuffer buffer) {
+    Tensor tensor = getOutputTensor(idx);
+    setCustomAllocation(interpreterHandle, errorHandle, tensor.index(), buffer);
+    boundOutputBuffers[idx] = buffer;
+  }
+
+  /**
+   * Returns the number of bytes of a direct buffer that are resident in physical memory, or -1 if it
+   * cannot be determined on this platform.
+   */
+  static native long residentBytes(ByteBuffer buffer);
+
+  private static native int alignmentOffset(ByteBuffer buffer);
+
+  private static native void setCustomAllocation(
+      long interpreterHandle, long errorHandle, int tensorIndex, ByteBuffer buffer);
+
+  /** Returns the time spent in each operator, sorted by decreasing total time. */
+  List<OperatorStats> getOperatorStats() {
+    checkOperatorProfiling();
+    long[] values = getOperatorProfilerStats(interpreterHandle, operatorProfilerHandle);
+    String[] names = getOperatorProfilerNames(interpreterHandle, operatorProfilerHandle);
+    List<OperatorStats> stats = new ArrayList<>(names.length / 2);
+    for (int i = 0; i < names.length / 2; ++i) {
+      int v = i * 6;
+      // values[v + 1] is the index of the subgraph, only the primary one has named nodes.
+      stats.add(
+          new OperatorStats(
+              (int) values[v + 2],
+              names[i * 2 + 1],
+              names[i * 2],
+              values[v] != 0,
+              values[v + 3],
+              values[v + 4],
+              values[v + 5]));
+    }
+    Collections.sort(
+        stats,
+        new Comparator<OperatorStats>() {
+          @Override
+          public int compare(OperatorStats a, OperatorStats b) {
+            return Long.compare(b.getTotalNanoseconds(), a.getTotalNanoseconds());
+          }
+        });
+    return stats;
+  }
+
+  void resetOperatorStats() {
+    checkOperatorProfiling();
+    resetOperatorProfiler(operatorProfilerHandle);
+  }
+
+  private void checkOperatorProfiling() {
+    if (operatorProfilerHandle == 0) {
+      throw new IllegalStateException(
+          "Cannot get operator statistics: operator profiling has not been enabled in the"
+              + " Interpreter.Options.");
+    }
+  }
+
+  private static native long createOperatorProfiler(long interpreterHandle);
+
+  private static native long[] getOperatorProfilerStats(
+      long interpreterHandle, long operatorProfilerHandle);
+
+  private static native String[] getOperatorProfilerNames(
+      long interpreterHandle, long operatorProfilerHandle);
+
+  private static native void resetOperatorProfiler(long operatorProfilerHandle);
+
   /** Resizes dimensions of a specific input. */
   void resizeInput(int idx, int[] dims) {
     resizeInput(idx, dims, false);
@@ -347,9 +737,20 @@ final class NativeInterpreterWrapper implements AutoCloseable {
       throw new IllegalStateException(
           "Cannot cancel the inference. Have you called Interpreter.Options.setCancellable?");
     }
+    cancelled = value;
     setCancelled(interpreterHandle, cancellationFlagHandle, value);
   }
 
+  /** Returns true if the interpreter was created with a cancellation flag. */
+  boolean isCancellable() {
+    return cancellationFlagHandle != 0;
+  }
+
+  /** Returns the last value given to {@link #setCancelled(boolean)}. */
+  boolean isCancelled() {
+    return cancelled;
+  }
+
   private static native void setCancelled(
       long interpreterHandle, long cancellationFlagHandle, boolean value);
 
@@ -411,6 +812,9 @@ final class NativeInterpreterWrapper implements AutoCloseable {
 
   private static final int ERROR_BUFFER_SIZE = 512;
 
+  // Alignment of tensor memory required by the runtime, i.e. kDefaultTensorAlignment.
+  private static final int TENSOR_ALIGNMENT = 64;
+
   private long errorHandle;
 
   private long interpreterHandle;
@@ -419,10 +823,19 @@ final class NativeInterpreterWrapper implements AutoCloseable {
 
   private long cancellationFlagHandle = 0;
 
+  // Owned by the native interpreter.
+  private long operatorProfilerHandle = 0;
+
+  // Set from any thread, to interrupt an inference running on another one.
+  private volatile boolean cancelled = false;
+
   private long inferenceDurationNanoseconds = -1;
 
   private ByteBuffer modelByteBuffer;
 
+  // The model of this interpreter, if it is shared with other interpreters.
+  private SharedModel sharedModel;
+
   // Lazily constructed maps of input and output names to input and output Tensor indexes.
   private Map<String, Integer> inputsIndexes;
   private Map<String, Integer> outputsIndexes;
@@ -431,6 +844,10 @@ final class NativeInterpreterWrapper implements AutoCloseable {
   private Tensor[] inputTensors;
   private Tensor[] outputTensors;
 
+  // Buffers bound as the memory of input and output tensors, which must outlive the interpreter.
+  private ByteBuffer[] boundInputBuffers;
+  private ByteBuffer[] boundOutputBuffers;
+
   private boolean isMemoryAllocated = false;
 
   // As the Java Delegate owns the native delegate instance, we keep a strong ref to any injected
@@ -0,0 +1,109 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite;
+
+/**
+ * Time spent in an operator of a model, aggregated over all inferences profiled by an {@link
+ * Interpreter}.
+ *
+ * @see Interpreter.Options#setOperatorProfiling(boolean)
+ */
+public final class OperatorStats {
+
+  /**
+   * Returns the index of the node of this operator in the model.
+   *
+   * <p>For an operator run internally by a delegate, this is an index specific to the delegate.
+   */
+  public int getNodeIndex() {
+    return nodeIndex;
+  }
+
+  /**
+   * Returns the name of the node, i.e. the name of its first output tensor, or an empty string for
+   * an operator run internally by a delegate.
+   */
+  public String getNodeName() {
+    return nodeName;
+  }
+
+  /** Returns the type of the operator, e.g. "CONV_2D", or the name of the delegate running it. */
+  public String getOpType() {
+    return opType;
+  }
+
+  /** Returns true if the operator has been run by a delegate, false if by the CPU kernels. */
+  public boolean isDelegated() {
+    return delegated;
+  }
+
+  /** Returns the number of times the operator has been invoked. */
+  public long getInvocationCount() {
+    return invocationCount;
+  }
+
+  /** Returns the total time spent in the operator, in nanoseconds. */
+  public long getTotalNanoseconds() {
+    return totalNanoseconds;
+  }
+
+  /** Returns the average time spent in an invocation of the operator, in nanoseconds. */
+  public long getAverageNanoseconds() {
+    return invocationCount == 0 ? 0 : totalNanoseconds / invocationCount;
+  }
+
+  /** Returns the longest time spent in an invocation of the operator, in nanoseconds. */
+  public long getMaxNanoseconds() {
+    return maxNanoseconds;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s (%s, node %d%s): %d invocations, %d ns on average",
+        nodeName,
+        opType,
+        nodeIndex,
+        delegated ? ", delegated" : "",
+        invocationCount,
+        getAverageNanoseconds());
+  }
+
+  OperatorStats(
+      int nodeIndex,
+      String nodeName,
+      String opType,
+      boolean delegated,
+      long invocationCount,
+      long totalNanoseconds,
+      long maxNanoseconds) {
+    this.nodeIndex = nodeIndex;
+    this.nodeName = nodeName;
+    this.opType = opType;
+    this.delegated = delegated;
+    this.invocationCount = invocationCount;
+    this.totalNanoseconds = totalNanoseconds;
+    this.maxNanoseconds = maxNanoseconds;
+  }
+
+  private final int nodeIndex;
+  private final String nodeName;
+  private final String opType;
+  private final boolean delegated;
+  private final long invocationCount;
+  private final long totalNanoseconds;
+  private final long maxNanoseconds;
+}
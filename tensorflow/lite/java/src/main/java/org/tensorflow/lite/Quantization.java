@@ -0,0 +1,246 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite;
+
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Bulk conversions between float values and the quantized values of {@link DataType#UINT8} or
+ * {@link DataType#INT8} tensors, using the {@link Tensor.QuantizationParams} of the tensor.
+ *
+ * <p>A float value {@code x} is quantized to {@code clamp(round(x / scale) + zeroPoint)}, and a
+ * quantized value {@code q} is dequantized to {@code scale * (q - zeroPoint)}. For example, to feed
+ * float features to a quantized model and read its scores as floats:
+ *
+ * <pre>{@code
+ * ByteBuffer input = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes());
+ * Quantization.quantize(features, interpreter.getInputTensor(0), input);
+ * ByteBuffer output = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes());
+ * interpreter.run(input.rewind(), output);
+ * Quantization.dequantize((ByteBuffer) output.rewind(), interpreter.getOutputTensor(0), scores);
+ * }</pre>
+ *
+ * <p>Buffers are read and written from their current position, which is advanced past the converted
+ * values, like bulk {@code get} and {@code put} operations.
+ */
+public final class Quantization {
+
+  /**
+   * Quantizes float values into a buffer of quantized values of a tensor.
+   *
+   * @throws IllegalArgumentException if {@code tensor} is not a quantized tensor of 8-bit integers
+   * @throws BufferOverflowException if {@code dst} has less than {@code src.length} bytes
+   *     remaining
+   */
+  public static void quantize(
+      @NonNull float[] src, @NonNull Tensor tensor, @NonNull ByteBuffer dst) {
+    Params params = new Params(tensor);
+    checkRemaining(dst, src.length);
+    if (dst.hasArray()) {
+      int position = dst.position();
+      params.quantize(src, 0, dst.array(), dst.arrayOffset() + position, src.length);
+      dst.position(position + src.length);
+      return;
+    }
+    byte[] chunk = new byte[Math.min(src.length, CHUNK_SIZE)];
+    for (int start = 0; start < src.length; start += chunk.length) {
+      int count = Math.min(chunk.length, src.length - start);
+      params.quantize(src, start, chunk, 0, count);
+      dst.put(chunk, 0, count);
+    }
+  }
+
+  /**
+   * Quantizes the remaining float values of a buffer into a buffer of quantized values of a tensor.
+   *
+   * @throws IllegalArgumentException if {@code tensor} is not a quantized tensor of 8-bit integers
+   * @throws BufferOverflowException if {@code dst} has less bytes remaining than {@code
+   *     src} has floats remaining
+   */
+  public static void quantize(
+      @NonNull FloatBuffer src, @NonNull Tensor tensor, @NonNull ByteBuffer dst) {
+    Params params = new Params(tensor);
+    checkRemaining(dst, src.remaining());
+    float[] floats = new float[Math.min(src.remaining(), CHUNK_SIZE)];
+    byte[] chunk = new byte[floats.length];
+    while (src.hasRemaining()) {
+      int count = Math.min(floats.length, src.remaining());
+      src.get(floats, 0, count);
+      params.quantize(floats, 0, chunk, 0, count);
+      dst.put(chunk, 0, count);
+    }
+  }
+
+  /**
+   * Dequantizes quantized values of a tensor into an array of floats, reading {@code dst.length}
+   * values from {@code src}.
+   *
+   * @throws IllegalArgumentException if {@code tensor} is not a quantized tensor of 8-bit integers
+   * @throws BufferUnderflowException if {@code src} has less than {@code dst.length} bytes
+   *     remaining
+   */
+  public static void dequantize(
+      @NonNull ByteBuffer src, @NonNull Tensor tensor, @NonNull float[] dst) {
+    Params params = new Params(tensor);
+    if (src.remaining() < dst.length) {
+      // Fails before reading anything, rather than after a partial conversion.
+      throw new BufferUnderflowException();
+    }
+    if (src.hasArray()) {
+      int position = src.position();
+      params.dequantize(src.array(), src.arrayOffset() + position, dst, 0, dst.length);
+      src.position(position + dst.length);
+      return;
+    }
+    byte[] chunk = new byte[Math.min(dst.length, CHUNK_SIZE)];
+    for (int start = 0; start < dst.length; start += chunk.length) {
+      int count = Math.min(chunk.length, dst.length - start);
+      src.get(chunk, 0, count);
+      params.dequantize(chunk, 0, dst, start, count);
+    }
+  }
+
+  /**
+   * Dequantizes the remaining quantized values of a tensor in a buffer into a buffer of floats.
+   *
+   * @throws IllegalArgumentException if {@code tensor} is not a quantized tensor of 8-bit integers
+   * @throws BufferOverflowException if {@code dst} has less floats remaining than {@code
+   *     src} has bytes remaining
+   */
+  public static void dequantize(
+      @NonNull ByteBuffer src, @NonNull Tensor tensor, @NonNull FloatBuffer dst) {
+    Params params = new Params(tensor);
+    checkRemaining(dst, src.remaining());
+    byte[] chunk = new byte[Math.min(src.remaining(), CHUNK_SIZE)];
+    float[] floats = new float[chunk.length];
+    while (src.hasRemaining()) {
+      int count = Math.min(chunk.length, src.remaining());
+      src.get(chunk, 0, count);
+      params.dequantize(chunk, 0, floats, 0, count);
+      dst.put(floats, 0, count);
+    }
+  }
+
+  /**
+   * Normalizes the RGB channels of packed ARGB pixels, e.g. those of {@code
+   * android.graphics.Bitmap.getPixels}, and quantizes them into a buffer of quantized values of a
+   * tensor, in a single pass.
+   *
+   * <p>Each channel value {@code c}, from 0 to 255, is normalized to {@code (c - mean) / stddev}
+   * before being quantized. The alpha channel is ignored, and 3 bytes are written per pixel, in RGB
+   * order.
+   *
+   * @throws IllegalArgumentException if {@code tensor} is not a quantized tensor of 8-bit integers
+   * @throws BufferOverflowException if {@code dst} has less than {@code 3 *
+   *     pixels.length} bytes remaining
+   */
+  public static void quantizeRgbPixels(
+      @NonNull int[] pixels,
+      float mean,
+      float stddev,
+      @NonNull Tensor tensor,
+      @NonNull ByteBuffer dst) {
+    Params params = new Params(tensor);
+    checkRemaining(dst, 3 * pixels.length);
+    // A channel only takes 256 values, so their quantized values are computed once.
+    float[] normalized = new float[256];
+    for (int c = 0; c < normalized.length; ++c) {
+      normalized[c] = (c - mean) / stddev;
+    }
+    byte[] table = new byte[256];
+    params.quantize(normalized, 0, table, 0, table.length);
+
+    byte[] chunk = new byte[3 * Math.min(pixels.length, CHUNK_SIZE)];
+    for (int start = 0; start < pixels.length; start += CHUNK_SIZE) {
+      int count = Math.min(CHUNK_SIZE, pixels.length - start);
+      for (int i = 0; i < count; ++i) {
+        int pixel = pixels[start + i];
+        chunk[3 * i] = table[(pixel >> 16) & 0xFF];
+        chunk[3 * i + 1] = table[(pixel >> 8) & 0xFF];
+        chunk[3 * i + 2] = table[pixel & 0xFF];
+      }
+      dst.put(chunk, 0, 3 * count);
+    }
+  }
+
+  /** The quantization parameters of a tensor, resolved once per conversion. */
+  private static final class Params {
+    Params(Tensor tensor) {
+      DataType dataType = tensor.dataType();
+      if (dataType != DataType.UINT8 && dataType != DataType.INT8) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Cannot quantize values of tensor %s of type %s, only UINT8 and INT8 tensors are "
+                    + "supported.",
+                tensor.name(), dataType));
+      }
+      Tensor.QuantizationParams params = tensor.quantizationParams();
+      if (params.getScale() == 0.0f) {
+        throw new IllegalArgumentException(
+            String.format("Tensor %s has no quantization parameters.", tensor.name()));
+      }
+      this.scale = params.getScale();
+      this.zeroPoint = params.getZeroPoint();
+      this.unsigned = dataType == DataType.UINT8;
+    }
+
+    // The loops below only access arrays, so that they can be vectorized by the JIT compiler.
+
+    void quantize(float[] src, int srcOffset, byte[] dst, int dstOffset, int count) {
+      int min = unsigned ? 0 : Byte.MIN_VALUE;
+      int max = unsigned ? 255 : Byte.MAX_VALUE;
+      for (int i = 0; i < count; ++i) {
+        // Math.round saturates at Integer.MAX_VALUE for large values, so the zero point is added
+        // as a long to avoid overflowing to negative values.
+        long q = (long) Math.round(src[srcOffset + i] / scale) + zeroPoint;
+        dst[dstOffset + i] = (byte) Math.min(Math.max(q, min), max);
+      }
+    }
+
+    void dequantize(byte[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+      if (unsigned) {
+        for (int i = 0; i < count; ++i) {
+          dst[dstOffset + i] = scale * ((src[srcOffset + i] & 0xFF) - zeroPoint);
+        }
+      } else {
+        for (int i = 0; i < count; ++i) {
+          dst[dstOffset + i] = scale * (src[srcOffset + i] - zeroPoint);
+        }
+      }
+    }
+
+    private final float scale;
+    private final int zeroPoint;
+    private final boolean unsigned;
+  }
+
+  private static void checkRemaining(Buffer dst, int count) {
+    // Fails before writing anything, rather than after a partial conversion.
+    if (dst.remaining() < count) {
+      throw new BufferOverflowException();
+    }
+  }
+
+  // Number of values converted at a time through temporary arrays.
+  private static final int CHUNK_SIZE = 1024;
+
+  private Quantization() {}
+}
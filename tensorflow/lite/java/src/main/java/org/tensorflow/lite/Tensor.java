@@ -23,6 +23,7 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * A typed multi-dimensional array used in Tensorflow Lite.
@@ -178,14 +179,41 @@ public final class Tensor {
    *     with the tensor (for example, mismatched data types or shapes).
    */
   void setTo(Object src) {
+    if (!setToIfShapeMatches(src)) {
+      throwIfSrcShapeIsIncompatible(src);
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot copy to a TensorFlowLite tensor (%s) with shape %s from a Java array "
+                  + "with null or mismatched rows.",
+              name(), Arrays.toString(shapeCopy)));
+    }
+  }
+
+  /**
+   * Copies the contents of {@code src} to the tensor, unless {@code src} is a multi-dimensional
+   * array of a primitive type whose shape differs from the shape of the tensor.
+   *
+   * <p>The shape of such an array is checked while it is copied, in a single native traversal, so
+   * that a caller can try to copy an array before resizing the tensor to its shape.
+   *
+   * @return false if the shape of {@code src} differs from the shape of the tensor, in which case
+   *     the contents of the tensor are undefined.
+   * @throws IllegalArgumentException if {@code src} is not compatible with the tensor for any other
+   *     reason.
+   */
+  boolean setToIfShapeMatches(Object src) {
     if (src == null) {
       if (hasDelegateBufferHandle(nativeHandle)) {
-        return;
+        return true;
       }
       throw new IllegalArgumentException(
           "Null inputs are allowed only if the Tensor is bound to a buffer handle.");
     }
     throwIfTypeIsIncompatible(src);
+    if (src.getClass().isArray() && dtype != DataType.STRING) {
+      return computeNumDimensions(src) == shapeCopy.length
+          && writeMultiDimensionalArray(nativeHandle, src);
+    }
     throwIfSrcShapeIsIncompatible(src);
     if (isBuffer(src)) {
       setTo((Buffer) src);
@@ -194,6 +222,7 @@ public final class Tensor {
     } else {
       writeScalar(nativeHandle, src);
     }
+    return true;
   }
 
   private void setTo(Buffer src) {
@@ -238,7 +267,8 @@ public final class Tensor {
    * @param dst the destination buffer, either an explicitly-typed array, a {@link ByteBuffer} or
    *     {@code null} iff the tensor has an underlying delegate buffer handle.
    * @throws IllegalArgumentException if {@code dst} is not compatible with the tensor (for example,
-   *     mismatched data types or shapes).
+   *     mismatched data types or shapes). The contents of an array of a mismatched shape are
+   *     undefined, as its shape is only checked while it is filled.
    */
   Object copyTo(Object dst) {
     if (dst == null) {
@@ -249,6 +279,18 @@ public final class Tensor {
           "Null outputs are allowed only if the Tensor is bound to a buffer handle.");
     }
     throwIfTypeIsIncompatible(dst);
+    if (dst.getClass().isArray() && dtype != DataType.STRING) {
+      if (computeNumDimensions(dst) != shapeCopy.length
+          || !readMultiDimensionalArray(nativeHandle, dst)) {
+        throwIfDstShapeIsIncompatible(dst);
+        throw new IllegalArgumentException(
+            String.format(
+                "Cannot copy from a TensorFlowLite tensor (%s) with shape %s to a Java array "
+                    + "with null or mismatched rows.",
+                name(), Arrays.toString(shapeCopy)));
+      }
+      return dst;
+    }
     throwIfDstShapeIsIncompatible(dst);
     if (isBuffer(dst)) {
       copyTo((Buffer) dst);
@@ -259,20 +301,143 @@ public final class Tensor {
   }
 
   private void copyTo(Buffer dst) {
+    copyTo(dst, buffer());
+  }
+
+  /**
+   * Copies the samples of a batch to this tensor, whose first dimension is the batch dimension.
+   *
+   * <p>Each sample is either an array with a first dimension of 1, or a {@link Buffer} holding the
+   * data of a single sample in its full capacity. The positions of sample buffers are not modified.
+   */
+  void setToBatch(List<?> samples) {
+    if (!isBuffer(samples.get(0))) {
+      setTo(stack(samples));
+      return;
+    }
+    int sampleBytes = sampleBytes(samples.size());
+    ByteBuffer dst = buffer();
+    for (Object sample : samples) {
+      throwIfTypeIsIncompatible(sample);
+      int srcBytes = byteCapacityOf(sample);
+      if (srcBytes != sampleBytes) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Cannot copy to a sample of TensorFlowLite tensor (%s) with %d bytes from a "
+                    + "Java Buffer with %d bytes.",
+                name(), sampleBytes, srcBytes));
+      }
+      int end = dst.position() + sampleBytes;
+      // There are no base Buffer#duplicate() or Buffer#put() methods, so we have to ugly cast.
+      if (sample instanceof ByteBuffer) {
+        ByteBuffer src = ((ByteBuffer) sample).duplicate();
+        src.clear();
+        dst.put(src);
+      } else if (sample instanceof FloatBuffer) {
+        FloatBuffer src = ((FloatBuffer) sample).duplicate();
+        src.clear();
+        dst.asFloatBuffer().put(src);
+      } else if (sample instanceof LongBuffer) {
+        LongBuffer src = ((LongBuffer) sample).duplicate();
+        src.clear();
+        dst.asLongBuffer().put(src);
+      } else if (sample instanceof IntBuffer) {
+        IntBuffer src = ((IntBuffer) sample).duplicate();
+        src.clear();
+        dst.asIntBuffer().put(src);
+      } else {
+        throw new IllegalArgumentException("Unexpected input buffer type: " + sample);
+      }
+      dst.position(end);
+    }
+  }
+
+  /**
+   * Copies this tensor, whose first dimension is the batch dimension, to the samples of a batch.
+   *
+   * <p>Each sample is either an array with a first dimension of 1, or a {@link Buffer} with enough
+   * remaining capacity for the data of a single sample, which is written at its position.
+   */
+  void copyToBatch(List<?> samples) {
+    if (!isBuffer(samples.get(0))) {
+      Object batch = copyTo(stack(samples));
+      // Samples of one-dimensional arrays have been stacked by value, not by reference.
+      for (int i = 0; i < samples.size(); ++i) {
+        Array.set(samples.get(i), 0, Array.get(batch, i));
+      }
+      return;
+    }
+    int sampleBytes = sampleBytes(samples.size());
+    ByteBuffer src = buffer();
+    for (int i = 0; i < samples.size(); ++i) {
+      Object sample = samples.get(i);
+      throwIfTypeIsIncompatible(sample);
+      int dstBytes = byteCapacityOf(sample);
+      if (sampleBytes > dstBytes) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Cannot copy from a sample of TensorFlowLite tensor (%s) with %d bytes to a "
+                    + "Java Buffer with %d bytes.",
+                name(), sampleBytes, dstBytes));
+      }
+      src.limit((i + 1) * sampleBytes);
+      src.position(i * sampleBytes);
+      copyTo((Buffer) sample, src);
+    }
+  }
+
+  private static void copyTo(Buffer dst, ByteBuffer src) {
     // There is no base Buffer#put() method, so we have to ugly cast.
     if (dst instanceof ByteBuffer) {
-      ((ByteBuffer) dst).put(buffer());
+      ((ByteBuffer) dst).put(src);
     } else if (dst instanceof FloatBuffer) {
-      ((FloatBuffer) dst).put(buffer().asFloatBuffer());
+      ((FloatBuffer) dst).put(src.asFloatBuffer());
     } else if (dst instanceof LongBuffer) {
-      ((LongBuffer) dst).put(buffer().asLongBuffer());
+      ((LongBuffer) dst).put(src.asLongBuffer());
     } else if (dst instanceof IntBuffer) {
-      ((IntBuffer) dst).put(buffer().asIntBuffer());
+      ((IntBuffer) dst).put(src.asIntBuffer());
     } else {
       throw new IllegalArgumentException("Unexpected output buffer type: " + dst);
     }
   }
 
+  private int sampleBytes(int batchSize) {
+    if (shapeCopy.length == 0 || shapeCopy[0] != batchSize) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot copy a batch of %d samples to or from a TensorFlowLite tensor (%s) with"
+                  + " shape %s.",
+              batchSize, name(), Arrays.toString(shapeCopy)));
+    }
+    return numBytes() / batchSize;
+  }
+
+  private int byteCapacityOf(Object buffer) {
+    int capacity = ((Buffer) buffer).capacity();
+    return isByteBuffer(buffer) ? capacity : capacity * dtype.byteSize();
+  }
+
+  /** Stacks arrays with a first dimension of 1 into an array of all samples of a batch. */
+  private static Object stack(List<?> samples) {
+    Class<?> c = samples.get(0) == null ? null : samples.get(0).getClass();
+    if (c == null || !c.isArray()) {
+      throw new IllegalArgumentException(
+          "Samples of a batch must be either arrays or Buffers, got " + samples.get(0));
+    }
+    Object batch = Array.newInstance(c.getComponentType(), samples.size());
+    for (int i = 0; i < samples.size(); ++i) {
+      Object sample = samples.get(i);
+      if (sample == null || sample.getClass() != c || Array.getLength(sample) != 1) {
+        throw new IllegalArgumentException(
+            "Each sample of a batch must be an array of type "
+                + c.getName()
+                + " with a first dimension of 1.");
+      }
+      Array.set(batch, i, Array.get(sample, 0));
+    }
+    return batch;
+  }
+
   /** Returns the provided buffer's shape if specified and different from this Tensor's shape. */
   // TODO(b/80431971): Remove this method after deprecating multi-dimensional array inputs.
   int[] getInputShapeIfDifferent(Object input) {
@@ -532,9 +697,11 @@ public final class Tensor {
 
   private static native boolean hasDelegateBufferHandle(long handle);
 
-  private static native void readMultiDimensionalArray(long handle, Object dst);
+  /** Returns false if {@code dst} does not have the shape of the tensor. */
+  private static native boolean readMultiDimensionalArray(long handle, Object dst);
 
-  private static native void writeMultiDimensionalArray(long handle, Object src);
+  /** Returns false if {@code src} does not have the shape of the tensor. */
+  private static native boolean writeMultiDimensionalArray(long handle, Object src);
 
   private static native void writeScalar(long handle, Object src);
 
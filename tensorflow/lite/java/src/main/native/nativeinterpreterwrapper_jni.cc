@@ -18,10 +18,23 @@ limitations under the License.
 #include <stdio.h>
 #include <time.h>
 
+#if defined(__linux__) || defined(__APPLE__)
+#include <sys/mman.h>
+#include <unistd.h>
+#endif
+
+#include <algorithm>
 #include <atomic>
+#include <chrono>  // NOLINT(build/c++11)
+#include <cstring>
+#include <map>
+#include <memory>
+#include <string>
+#include <tuple>
 #include <vector>
 
 #include "tensorflow/lite/c/common.h"
+#include "tensorflow/lite/core/api/profiler.h"
 #include "tensorflow/lite/delegates/xnnpack/xnnpack_delegate.h"
 #include "tensorflow/lite/experimental/tflite_api_dispatcher/tflite_api_dispatcher.h"
 #include "tensorflow/lite/java/src/main/native/jni_utils.h"
@@ -149,6 +162,114 @@ bool AreDimsDifferent(JNIEnv* env, TfLiteTensor* tensor, jintArray dims) {
   return is_different;
 }
 
+// Direct buffers bound to the inputs and outputs of an interpreter. Each
+// prepared invocation copies the input buffers into their tensors, invokes
+// the interpreter and copies the output tensors into their buffers.
+struct PreparedInvocation {
+  struct Binding {
+    int tensor_index;
+    char* data;
+    size_t bytes;
+  };
+  std::vector<Binding> inputs;
+  std::vector<Binding> outputs;
+};
+
+PreparedInvocation* convertLongToPreparedInvocation(JNIEnv* env,
+                                                    jlong handle) {
+  if (handle == 0) {
+    ThrowException(env, kIllegalArgumentException,
+                   "Internal error: Invalid handle to prepared invocation.");
+    return nullptr;
+  }
+  return reinterpret_cast<PreparedInvocation*>(handle);
+}
+
+// Accumulates the time spent in each operator over all profiled invocations.
+class OperatorProfiler : public tflite::Profiler {
+ public:
+  // Event type, subgraph index and node index of an operator.
+  typedef std::tuple<int, int64_t, int64_t> Key;
+
+  struct Stats {
+    std::string op_type;
+    int64_t count = 0;
+    int64_t total_nanos = 0;
+    int64_t max_nanos = 0;
+  };
+
+  uint32_t BeginEvent(const char* tag, EventType event_type,
+                      int64_t event_metadata1,
+                      int64_t event_metadata2) override {
+    if (event_type != EventType::OPERATOR_INVOKE_EVENT &&
+        event_type != EventType::DELEGATE_OPERATOR_INVOKE_EVENT) {
+      return 0;
+    }
+    Event event;
+    event.key =
+        Key(static_cast<int>(event_type), event_metadata2, event_metadata1);
+    event.tag = tag;
+    event.start = std::chrono::steady_clock::now();
+    active_events_.push_back(event);
+    return static_cast<uint32_t>(active_events_.size());
+  }
+
+  using tflite::Profiler::EndEvent;
+
+  void EndEvent(uint32_t event_handle) override {
+    if (event_handle == 0 || event_handle > active_events_.size()) return;
+    const Event& event = active_events_[event_handle - 1];
+    const int64_t nanos = std::chrono::duration_cast<std::chrono::nanoseconds>(
+                              std::chrono::steady_clock::now() - event.start)
+                              .count();
+    Stats& stats = stats_[event.key];
+    if (stats.count == 0 && event.tag != nullptr) stats.op_type = event.tag;
+    ++stats.count;
+    stats.total_nanos += nanos;
+    stats.max_nanos = std::max(stats.max_nanos, nanos);
+    // Nested events end before the events enclosing them.
+    active_events_.resize(event_handle - 1);
+  }
+
+  const std::map<Key, Stats>& stats() const { return stats_; }
+
+  void Reset() { stats_.clear(); }
+
+ private:
+  struct Event {
+    Key key;
+    const char* tag;
+    std::chrono::steady_clock::time_point start;
+  };
+
+  std::vector<Event> active_events_;
+  std::map<Key, Stats> stats_;
+};
+
+OperatorProfiler* convertLongToOperatorProfiler(JNIEnv* env, jlong handle) {
+  if (handle == 0) {
+    ThrowException(env, kIllegalArgumentException,
+                   "Internal error: Invalid handle to operator profiler.");
+    return nullptr;
+  }
+  return reinterpret_cast<OperatorProfiler*>(handle);
+}
+
+// Returns the name of the first output of a node of the primary subgraph, or
+// an empty string for other nodes.
+const char* GetNodeName(tflite_api_dispatcher::Interpreter* interpreter,
+                        int64_t subgraph_index, int64_t node_index) {
+  if (subgraph_index != 0 || node_index < 0 ||
+      node_index >= static_cast<int64_t>(interpreter->nodes_size())) {
+    return "";
+  }
+  const TfLiteNode& node =
+      interpreter->node_and_registration(static_cast<int>(node_index))->first;
+  if (node.outputs == nullptr || node.outputs->size == 0) return "";
+  const TfLiteTensor* tensor = interpreter->tensor(node.outputs->data[0]);
+  return tensor != nullptr && tensor->name != nullptr ? tensor->name : "";
+}
+
 // TODO(yichengfan): evaluate the benefit to use tflite verifier.
 bool VerifyModel(const void* buf, size_t len) {
   flatbuffers::Verifier verifier(static_cast<const uint8_t*>(buf), len);
@@ -482,8 +603,17 @@ Java_org_tensorflow_lite_NativeInterpreterWrapper_createInterpreter(
   if (error_reporter == nullptr) return 0;
   auto resolver = ::tflite::CreateOpResolver();
   std::unique_ptr<tflite_api_dispatcher::Interpreter> interpreter;
-  TfLiteStatus status = tflite_api_dispatcher::InterpreterBuilder(
-      *model, *(resolver.get()))(&interpreter, static_cast<int>(num_threads));
+  TfLiteStatus status;
+  if (model->error_reporter() == error_reporter) {
+    status = tflite_api_dispatcher::InterpreterBuilder(
+        *model, *(resolver.get()))(&interpreter, static_cast<int>(num_threads));
+  } else {
+    // The model is shared by several interpreters, which must each report
+    // errors to their own reporter as reporters are not thread-safe.
+    status = tflite_api_dispatcher::InterpreterBuilder(
+        model->GetModel(), *(resolver.get()),
+        error_reporter)(&interpreter, static_cast<int>(num_threads));
+  }
   if (status != kTfLiteOk) {
     ThrowException(env, kIllegalArgumentException,
                    "Internal error: Cannot create interpreter: %s",
@@ -514,6 +644,306 @@ JNIEXPORT void JNICALL Java_org_tensorflow_lite_NativeInterpreterWrapper_run(
   }
 }
 
+JNIEXPORT jlong JNICALL
+Java_org_tensorflow_lite_NativeInterpreterWrapper_createOperatorProfiler(
+    JNIEnv* env, jclass clazz, jlong interpreter_handle) {
+  tflite_api_dispatcher::Interpreter* interpreter =
+      convertLongToInterpreter(env, interpreter_handle);
+  if (interpreter == nullptr) return 0;
+  OperatorProfiler* profiler = new OperatorProfiler();
+  // The interpreter owns the profiler.
+  interpreter->SetProfiler(std::unique_ptr<tflite::Profiler>(profiler));
+  return reinterpret_cast<jlong>(profiler);
+}
+
+// Returns, for each profiled operator, whether it has been executed by a
+// delegate, its subgraph and node indices, its invocation count, and the total
+// and maximum time spent in it, in nanoseconds.
+JNIEXPORT jlongArray JNICALL
+Java_org_tensorflow_lite_NativeInterpreterWrapper_getOperatorProfilerStats(
+    JNIEnv* env, jclass clazz, jlong interpreter_handle,
+    jlong profiler_handle) {
+  tflite_api_dispatcher::Interpreter* interpreter =
+      convertLongToInterpreter(env, interpreter_handle);
+  if (interpreter == nullptr) return nullptr;
+  OperatorProfiler* profiler =
+      convertLongToOperatorProfiler(env, profiler_handle);
+  if (profiler == nullptr) return nullptr;
+
+  const int kValuesPerOperator = 6;
+  std::vector<jlong> values;
+  values.reserve(profiler->stats().size() * kValuesPerOperator);
+  for (const auto& entry : profiler->stats()) {
+    const int event_type = std::get<0>(entry.first);
+    const int64_t subgraph_index = std::get<1>(entry.first);
+    const int64_t node_index = std::get<2>(entry.first);
+    bool is_delegated =
+        event_type ==
+        static_cast<int>(
+            tflite::Profiler::EventType::DELEGATE_OPERATOR_INVOKE_EVENT);
+    if (!is_delegated && subgraph_index == 0 && node_index >= 0 &&
+        node_index < static_cast<int64_t>(interpreter->nodes_size())) {
+      const TfLiteNode& node =
+          interpreter->node_and_registration(static_cast<int>(node_index))
+              ->first;
+      is_delegated = node.delegate != nullptr;
+    }
+    values.push_back(is_delegated ? 1 : 0);
+    values.push_back(subgraph_index);
+    values.push_back(node_index);
+    values.push_back(entry.second.count);
+    values.push_back(entry.second.total_nanos);
+    values.push_back(entry.second.max_nanos);
+  }
+  jlongArray result = env->NewLongArray(values.size());
+  if (result == nullptr) return nullptr;
+  env->SetLongArrayRegion(result, 0, values.size(), values.data());
+  return result;
+}
+
+// Returns, for each profiled operator in the order of
+// getOperatorProfilerStats, its op type and node name.
+JNIEXPORT jobjectArray JNICALL
+Java_org_tensorflow_lite_NativeInterpreterWrapper_getOperatorProfilerNames(
+    JNIEnv* env, jclass clazz, jlong interpreter_handle,
+    jlong profiler_handle) {
+  tflite_api_dispatcher::Interpreter* interpreter =
+      convertLongToInterpreter(env, interpreter_handle);
+  if (interpreter == nullptr) return nullptr;
+  OperatorProfiler* profiler =
+      convertLongToOperatorProfiler(env, profiler_handle);
+  if (profiler == nullptr) return nullptr;
+
+  jclass string_class = env->FindClass("java/lang/String");
+  if (string_class == nullptr) {
+    ThrowException(env, kUnsupportedOperationException,
+                   "Internal error: Can not find java/lang/String class.");
+    return nullptr;
+  }
+  jobjectArray names =
+      env->NewObjectArray(profiler->stats().size() * 2, string_class, nullptr);
+  if (names == nullptr) return nullptr;
+  int i = 0;
+  for (const auto& entry : profiler->stats()) {
+    const bool is_delegate_op =
+        std::get<0>(entry.first) ==
+        static_cast<int>(
+            tflite::Profiler::EventType::DELEGATE_OPERATOR_INVOKE_EVENT);
+    jstring op_type = env->NewStringUTF(entry.second.op_type.c_str());
+    jstring node_name = env->NewStringUTF(
+        is_delegate_op ? ""
+                       : GetNodeName(interpreter, std::get<1>(entry.first),
+                                     std::get<2>(entry.first)));
+    env->SetObjectArrayElement(names, i++, op_type);
+    env->SetObjectArrayElement(names, i++, node_name);
+    env->DeleteLocalRef(op_type);
+    env->DeleteLocalRef(node_name);
+  }
+  return names;
+}
+
+JNIEXPORT void JNICALL
+Java_org_tensorflow_lite_NativeInterpreterWrapper_resetOperatorProfiler(
+    JNIEnv* env, jclass clazz, jlong profiler_handle) {
+  OperatorProfiler* profiler =
+      convertLongToOperatorProfiler(env, profiler_handle);
+  if (profiler == nullptr) return;
+  profiler->Reset();
+}
+
+JNIEXPORT jlong JNICALL
+Java_org_tensorflow_lite_NativeInterpreterWrapper_residentBytes(
+    JNIEnv* env, jclass clazz, jobject buffer) {
+#if defined(__linux__) || defined(__APPLE__)
+  const uintptr_t address =
+      reinterpret_cast<uintptr_t>(env->GetDirectBufferAddress(buffer));
+  const jlong capacity = env->GetDirectBufferCapacity(buffer);
+  const long page_size = sysconf(_SC_PAGESIZE);  // NOLINT(runtime/int)
+  if (address == 0 || capacity <= 0 || page_size <= 0) return 0;
+  // mincore() requires a page-aligned start address.
+  const uintptr_t start = address - address % page_size;
+  const size_t length = address + capacity - start;
+  const size_t page_count = (length + page_size - 1) / page_size;
+#if defined(__APPLE__)
+  std::vector<char> residency(page_count);
+#else
+  std::vector<unsigned char> residency(page_count);
+#endif
+  if (mincore(reinterpret_cast<void*>(start), length, residency.data()) != 0) {
+    return -1;
+  }
+  jlong resident_bytes = 0;
+  for (size_t i = 0; i < page_count; ++i) {
+    if (residency[i] & 1) resident_bytes += page_size;
+  }
+  // Do not count the parts of the first and last pages outside the buffer.
+  return std::min(resident_bytes, capacity);
+#else
+  return -1;
+#endif
+}
+
+JNIEXPORT jint JNICALL
+Java_org_tensorflow_lite_NativeInterpreterWrapper_alignmentOffset(
+    JNIEnv* env, jclass clazz, jobject buffer) {
+  const intptr_t address =
+      reinterpret_cast<intptr_t>(env->GetDirectBufferAddress(buffer));
+  return static_cast<jint>(
+      (tflite::kDefaultTensorAlignment -
+       address % tflite::kDefaultTensorAlignment) %
+      tflite::kDefaultTensorAlignment);
+}
+
+JNIEXPORT void JNICALL
+Java_org_tensorflow_lite_NativeInterpreterWrapper_setCustomAllocation(
+    JNIEnv* env, jclass clazz, jlong interpreter_handle, jlong error_handle,
+    jint tensor_index, jobject buffer) {
+  tflite_api_dispatcher::Interpreter* interpreter =
+      convertLongToInterpreter(env, interpreter_handle);
+  if (interpreter == nullptr) return;
+  BufferErrorReporter* error_reporter =
+      convertLongToErrorReporter(env, error_handle);
+  if (error_reporter == nullptr) return;
+  const TfLiteTensor* tensor = interpreter->tensor(tensor_index);
+
+  void* data = env->GetDirectBufferAddress(buffer);
+  if (data == nullptr) {
+    ThrowException(env, kIllegalArgumentException,
+                   "Input error: Only direct buffers can be bound to tensor "
+                   "%s.",
+                   tensor->name);
+    return;
+  }
+  if (reinterpret_cast<intptr_t>(data) % tflite::kDefaultTensorAlignment !=
+      0) {
+    ThrowException(env, kIllegalArgumentException,
+                   "Input error: The buffer bound to tensor %s must be "
+                   "aligned to %d bytes.",
+                   tensor->name, tflite::kDefaultTensorAlignment);
+    return;
+  }
+  TfLiteCustomAllocation allocation;
+  allocation.data = data;
+  allocation.bytes = static_cast<size_t>(env->GetDirectBufferCapacity(buffer));
+  if (interpreter->SetCustomAllocationForTensor(tensor_index, allocation) !=
+      kTfLiteOk) {
+    ThrowException(env, kIllegalArgumentException,
+                   "Internal error: Failed to bind a buffer of %d bytes to "
+                   "tensor %s: %s",
+                   static_cast<int>(allocation.bytes), tensor->name,
+                   error_reporter->CachedErrorMessage());
+  }
+}
+
+JNIEXPORT jlong JNICALL
+Java_org_tensorflow_lite_NativeInterpreterWrapper_createPreparedInvocation(
+    JNIEnv* env, jclass clazz, jlong interpreter_handle, jobjectArray buffers,
+    jlongArray byte_offsets, jlongArray byte_sizes, jint num_inputs) {
+  tflite_api_dispatcher::Interpreter* interpreter =
+      convertLongToInterpreter(env, interpreter_handle);
+  if (interpreter == nullptr) return 0;
+  const int num_buffers = env->GetArrayLength(buffers);
+  if (num_inputs != static_cast<int>(interpreter->inputs().size()) ||
+      num_buffers - num_inputs >
+          static_cast<int>(interpreter->outputs().size())) {
+    ThrowException(env, kIllegalArgumentException,
+                   "Internal error: Unexpected number of bound buffers.");
+    return 0;
+  }
+  std::vector<jlong> offsets(num_buffers);
+  std::vector<jlong> sizes(num_buffers);
+  env->GetLongArrayRegion(byte_offsets, 0, num_buffers, offsets.data());
+  env->GetLongArrayRegion(byte_sizes, 0, num_buffers, sizes.data());
+
+  std::unique_ptr<PreparedInvocation> invocation(new PreparedInvocation());
+  for (int i = 0; i < num_buffers; ++i) {
+    jobject buffer = env->GetObjectArrayElement(buffers, i);
+    if (buffer == nullptr) continue;  // Output that is not fetched.
+    char* data = static_cast<char*>(env->GetDirectBufferAddress(buffer));
+    env->DeleteLocalRef(buffer);
+    if (data == nullptr) {
+      ThrowException(env, kIllegalArgumentException,
+                     "Input error: Only direct buffers can be bound to an "
+                     "Interpreter.");
+      return 0;
+    }
+    PreparedInvocation::Binding binding;
+    binding.data = data + offsets[i];
+    binding.bytes = static_cast<size_t>(sizes[i]);
+    if (i < num_inputs) {
+      binding.tensor_index = interpreter->inputs()[i];
+      invocation->inputs.push_back(binding);
+    } else {
+      binding.tensor_index = interpreter->outputs()[i - num_inputs];
+      invocation->outputs.push_back(binding);
+    }
+  }
+  return reinterpret_cast<jlong>(invocation.release());
+}
+
+// Copies the bound input buffers to their tensors, runs inference, and copies
+// the output tensors to their bound buffers.
+JNIEXPORT void JNICALL
+Java_org_tensorflow_lite_NativeInterpreterWrapper_runPreparedInvocation(
+    JNIEnv* env, jclass clazz, jlong interpreter_handle, jlong error_handle,
+    jlong invocation_handle) {
+  tflite_api_dispatcher::Interpreter* interpreter =
+      convertLongToInterpreter(env, interpreter_handle);
+  if (interpreter == nullptr) return;
+  BufferErrorReporter* error_reporter =
+      convertLongToErrorReporter(env, error_handle);
+  if (error_reporter == nullptr) return;
+  PreparedInvocation* invocation =
+      convertLongToPreparedInvocation(env, invocation_handle);
+  if (invocation == nullptr) return;
+
+  for (const PreparedInvocation::Binding& binding : invocation->inputs) {
+    TfLiteTensor* tensor = interpreter->tensor(binding.tensor_index);
+    if (tensor->data.raw == nullptr || tensor->bytes != binding.bytes) {
+      ThrowException(env, kIllegalArgumentException,
+                     "Input error: Tensor %s has %d bytes but its bound buffer "
+                     "has %d bytes. Inputs must be bound again after being "
+                     "resized.",
+                     tensor->name, static_cast<int>(tensor->bytes),
+                     static_cast<int>(binding.bytes));
+      return;
+    }
+    // The buffer may have been bound as the memory of the tensor.
+    if (tensor->data.raw != binding.data) {
+      memcpy(tensor->data.raw, binding.data, binding.bytes);
+    }
+  }
+
+  if (interpreter->Invoke() != kTfLiteOk) {
+    // TODO(b/168266570): Return InterruptedException.
+    ThrowException(env, kIllegalArgumentException,
+                   "Internal error: Failed to run on the given Interpreter: %s",
+                   error_reporter->CachedErrorMessage());
+    return;
+  }
+
+  for (const PreparedInvocation::Binding& binding : invocation->outputs) {
+    const TfLiteTensor* tensor = interpreter->tensor(binding.tensor_index);
+    if (tensor->data.raw == nullptr || tensor->bytes > binding.bytes) {
+      ThrowException(env, kIllegalArgumentException,
+                     "Output error: Tensor %s has %d bytes but its bound "
+                     "buffer has only %d bytes.",
+                     tensor->name, static_cast<int>(tensor->bytes),
+                     static_cast<int>(binding.bytes));
+      return;
+    }
+    if (tensor->data.raw != binding.data) {
+      memcpy(binding.data, tensor->data.raw, tensor->bytes);
+    }
+  }
+}
+
+JNIEXPORT void JNICALL
+Java_org_tensorflow_lite_NativeInterpreterWrapper_deletePreparedInvocation(
+    JNIEnv* env, jclass clazz, jlong invocation_handle) {
+  delete reinterpret_cast<PreparedInvocation*>(invocation_handle);
+}
+
 JNIEXPORT jint JNICALL
 Java_org_tensorflow_lite_NativeInterpreterWrapper_getOutputDataType(
     JNIEnv* env, jclass clazz, jlong handle, jint output_idx) {
@@ -104,131 +104,67 @@ size_t ElementByteSize(TfLiteType data_type) {
   }
 }
 
-size_t WriteOneDimensionalArray(JNIEnv* env, jobject object, TfLiteType type,
-                                void* dst, size_t dst_size) {
-  jarray array = static_cast<jarray>(object);
-  const int num_elements = env->GetArrayLength(array);
-  size_t to_copy = num_elements * ElementByteSize(type);
-  if (to_copy > dst_size) {
-    ThrowException(env, kIllegalStateException,
-                   "Internal error: cannot write Java array of %d bytes to "
-                   "Tensor of %d bytes",
-                   to_copy, dst_size);
-    return 0;
-  }
-  switch (type) {
-    case kTfLiteFloat32: {
-      jfloatArray float_array = static_cast<jfloatArray>(array);
-      jfloat* float_dst = static_cast<jfloat*>(dst);
-      env->GetFloatArrayRegion(float_array, 0, num_elements, float_dst);
-      return to_copy;
-    }
-    case kTfLiteInt32: {
-      jintArray int_array = static_cast<jintArray>(array);
-      jint* int_dst = static_cast<jint*>(dst);
-      env->GetIntArrayRegion(int_array, 0, num_elements, int_dst);
-      return to_copy;
-    }
-    case kTfLiteInt64: {
-      jlongArray long_array = static_cast<jlongArray>(array);
-      jlong* long_dst = static_cast<jlong*>(dst);
-      env->GetLongArrayRegion(long_array, 0, num_elements, long_dst);
-      return to_copy;
-    }
-    case kTfLiteInt8:
-    case kTfLiteUInt8: {
-      jbyteArray byte_array = static_cast<jbyteArray>(array);
-      jbyte* byte_dst = static_cast<jbyte*>(dst);
-      env->GetByteArrayRegion(byte_array, 0, num_elements, byte_dst);
-      return to_copy;
-    }
-    case kTfLiteBool: {
-      jbooleanArray bool_array = static_cast<jbooleanArray>(array);
-      jboolean* bool_dst = static_cast<jboolean*>(dst);
-      env->GetBooleanArrayRegion(bool_array, 0, num_elements, bool_dst);
-      return to_copy;
-    }
-    default: {
-      ThrowException(
-          env, kUnsupportedOperationException,
-          "DataType error: TensorFlowLite currently supports float "
-          "(32 bits), int (32 bits), byte (8 bits), bool (8 bits), and long "
-          "(64 bits), support for other types (DataType %d in this "
-          "case) will be added in the future",
-          kTfLiteFloat32, type);
-      return 0;
+// Copies the data of a tensor from or to a Java multi-dimensional array of a
+// primitive type, checking that the array has the shape of the tensor while
+// it is traversed. Rows of the last dimension are pinned with
+// GetPrimitiveArrayCritical, so each is copied with a single memcpy.
+//
+// Returns false, without throwing, if the shape of the array differs from the
+// shape of the tensor, in which case the data is only partially copied.
+bool CopyMultiDimensionalArray(JNIEnv* env, jarray array,
+                               const TfLiteIntArray* dims, int dim,
+                               size_t element_size, bool to_tensor,
+                               char* data, size_t data_size, size_t* offset) {
+  if (array == nullptr) return false;
+  const int len = env->GetArrayLength(array);
+  if (len != dims->data[dim]) return false;
+  if (dim == dims->size - 1) {
+    const size_t bytes = len * element_size;
+    if (*offset + bytes > data_size) return false;
+    void* elements = env->GetPrimitiveArrayCritical(array, nullptr);
+    if (elements == nullptr) return false;
+    if (to_tensor) {
+      memcpy(data + *offset, elements, bytes);
+    } else {
+      memcpy(elements, data + *offset, bytes);
     }
-  }
+    // No JNI call can be made until the array is released.
+    env->ReleasePrimitiveArrayCritical(array, elements,
+                                       to_tensor ? JNI_ABORT : 0);
+    *offset += bytes;
+    return true;
+  }
+  jobjectArray ndarray = static_cast<jobjectArray>(array);
+  for (int i = 0; i < len; ++i) {
+    jarray row = static_cast<jarray>(env->GetObjectArrayElement(ndarray, i));
+    const bool copied =
+        CopyMultiDimensionalArray(env, row, dims, dim + 1, element_size,
+                                  to_tensor, data, data_size, offset);
+    env->DeleteLocalRef(row);
+    if (!copied || env->ExceptionCheck()) return false;
+  }
+  return true;
 }
 
-size_t ReadOneDimensionalArray(JNIEnv* env, TfLiteType data_type,
-                               const void* src, size_t src_size, jarray dst) {
-  const int len = env->GetArrayLength(dst);
-  const size_t size = len * ElementByteSize(data_type);
-  if (size > src_size) {
+// Returns false if the array does not have the shape of the tensor.
+bool CopyMultiDimensionalArray(JNIEnv* env, TfLiteTensor* tensor, jobject array,
+                               bool to_tensor) {
+  const size_t element_size = ElementByteSize(tensor->type);
+  if (element_size == 0) {
     ThrowException(
-        env, kIllegalStateException,
-        "Internal error: cannot fill a Java array of %d bytes with a Tensor of "
-        "%d bytes",
-        size, src_size);
-    return 0;
-  }
-  switch (data_type) {
-    case kTfLiteFloat32: {
-      jfloatArray float_array = static_cast<jfloatArray>(dst);
-      env->SetFloatArrayRegion(float_array, 0, len,
-                               static_cast<const jfloat*>(src));
-      return size;
-    }
-    case kTfLiteInt32: {
-      jintArray int_array = static_cast<jintArray>(dst);
-      env->SetIntArrayRegion(int_array, 0, len, static_cast<const jint*>(src));
-      return size;
-    }
-    case kTfLiteInt64: {
-      jlongArray long_array = static_cast<jlongArray>(dst);
-      env->SetLongArrayRegion(long_array, 0, len,
-                              static_cast<const jlong*>(src));
-      return size;
-    }
-    case kTfLiteInt8:
-    case kTfLiteUInt8: {
-      jbyteArray byte_array = static_cast<jbyteArray>(dst);
-      env->SetByteArrayRegion(byte_array, 0, len,
-                              static_cast<const jbyte*>(src));
-      return size;
-    }
-    case kTfLiteBool: {
-      jbooleanArray bool_array = static_cast<jbooleanArray>(dst);
-      env->SetBooleanArrayRegion(bool_array, 0, len,
-                                 static_cast<const jboolean*>(src));
-      return size;
-    }
-    default: {
-      ThrowException(env, kIllegalStateException,
-                     "DataType error: invalid DataType(%d)", data_type);
-    }
-  }
-  return 0;
-}
-
-size_t ReadMultiDimensionalArray(JNIEnv* env, TfLiteType data_type, char* src,
-                                 size_t src_size, int dims_left, jarray dst) {
-  if (dims_left == 1) {
-    return ReadOneDimensionalArray(env, data_type, src, src_size, dst);
-  } else {
-    jobjectArray ndarray = static_cast<jobjectArray>(dst);
-    int len = env->GetArrayLength(ndarray);
-    size_t size = 0;
-    for (int i = 0; i < len; ++i) {
-      jarray row = static_cast<jarray>(env->GetObjectArrayElement(ndarray, i));
-      size += ReadMultiDimensionalArray(env, data_type, src + size,
-                                        src_size - size, dims_left - 1, row);
-      env->DeleteLocalRef(row);
-      if (env->ExceptionCheck()) return size;
-    }
-    return size;
-  }
+        env, kUnsupportedOperationException,
+        "DataType error: TensorFlowLite currently supports float "
+        "(32 bits), int (32 bits), byte (8 bits), bool (8 bits), and long "
+        "(64 bits), support for other types (DataType %d in this "
+        "case) will be added in the future",
+        tensor->type);
+    return true;
+  }
+  size_t offset = 0;
+  return CopyMultiDimensionalArray(env, static_cast<jarray>(array),
+                                   tensor->dims, 0, element_size, to_tensor,
+                                   tensor->data.raw, tensor->bytes, &offset) &&
+         offset == tensor->bytes;
 }
 
 // Returns the total number of strings read.
@@ -267,26 +203,6 @@ int ReadMultiDimensionalStringArray(JNIEnv* env, TfLiteTensor* tensor,
   return num_strings_read;
 }
 
-size_t WriteMultiDimensionalArray(JNIEnv* env, jobject src, TfLiteType type,
-                                  int dims_left, char** dst, int dst_size) {
-  if (dims_left <= 1) {
-    return WriteOneDimensionalArray(env, src, type, *dst, dst_size);
-  } else {
-    jobjectArray ndarray = static_cast<jobjectArray>(src);
-    int len = env->GetArrayLength(ndarray);
-    size_t sz = 0;
-    for (int i = 0; i < len; ++i) {
-      jobject row = env->GetObjectArrayElement(ndarray, i);
-      char* next_dst = *dst + sz;
-      sz += WriteMultiDimensionalArray(env, row, type, dims_left - 1, &next_dst,
-                                       dst_size - sz);
-      env->DeleteLocalRef(row);
-      if (env->ExceptionCheck()) return sz;
-    }
-    return sz;
-  }
-}
-
 void AddStringDynamicBuffer(JNIEnv* env, jobject src,
                             tflite::DynamicBuffer* dst_buffer) {
   if (env->IsInstanceOf(src, env->FindClass(kStringClassPath))) {
@@ -450,52 +366,53 @@ JNIEXPORT void JNICALL Java_org_tensorflow_lite_Tensor_writeDirectBuffer(
   memcpy(tensor->data.data, src_data_raw, tensor->bytes);
 }
 
-JNIEXPORT void JNICALL
+JNIEXPORT jboolean JNICALL
 Java_org_tensorflow_lite_Tensor_readMultiDimensionalArray(JNIEnv* env,
                                                           jclass clazz,
                                                           jlong handle,
                                                           jobject value) {
   TfLiteTensor* tensor = GetTensorFromHandle(env, handle);
-  if (tensor == nullptr) return;
+  if (tensor == nullptr) return JNI_TRUE;
   int num_dims = tensor->dims->size;
   if (num_dims == 0) {
     ThrowException(env, kIllegalArgumentException,
                    "Internal error: Cannot copy empty/scalar Tensors.");
-    return;
+    return JNI_TRUE;
   }
   if (tensor->type == kTfLiteString) {
     ReadMultiDimensionalStringArray(env, tensor, num_dims, 0,
                                     static_cast<jarray>(value));
-  } else {
-    ReadMultiDimensionalArray(env, tensor->type, tensor->data.raw,
-                              tensor->bytes, num_dims,
-                              static_cast<jarray>(value));
+    return JNI_TRUE;
   }
+  return CopyMultiDimensionalArray(env, tensor, value, /*to_tensor=*/false)
+             ? JNI_TRUE
+             : JNI_FALSE;
 }
 
-JNIEXPORT void JNICALL
+JNIEXPORT jboolean JNICALL
 Java_org_tensorflow_lite_Tensor_writeMultiDimensionalArray(JNIEnv* env,
                                                            jclass clazz,
                                                            jlong handle,
                                                            jobject src) {
   TfLiteTensor* tensor = GetTensorFromHandle(env, handle);
-  if (tensor == nullptr) return;
+  if (tensor == nullptr) return JNI_TRUE;
   if (tensor->type != kTfLiteString && tensor->data.raw == nullptr) {
     ThrowException(env, kIllegalArgumentException,
                    "Internal error: Target Tensor hasn't been allocated.");
-    return;
+    return JNI_TRUE;
   }
   if (tensor->dims->size == 0) {
     ThrowException(env, kIllegalArgumentException,
                    "Internal error: Cannot copy empty/scalar Tensors.");
-    return;
+    return JNI_TRUE;
   }
   if (tensor->type == kTfLiteString) {
     WriteMultiDimensionalStringArray(env, src, tensor);
-  } else {
-    WriteMultiDimensionalArray(env, src, tensor->type, tensor->dims->size,
-                               &tensor->data.raw, tensor->bytes);
+    return JNI_TRUE;
   }
+  return CopyMultiDimensionalArray(env, tensor, src, /*to_tensor=*/true)
+             ? JNI_TRUE
+             : JNI_FALSE;
 }
 
 JNIEXPORT void JNICALL Java_org_tensorflow_lite_Tensor_writeScalar(
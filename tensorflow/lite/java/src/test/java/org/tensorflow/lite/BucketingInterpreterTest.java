@@ -0,0 +1,88 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.lite.BucketingInterpreter}. */
+@RunWith(JUnit4.class)
+public final class BucketingInterpreterTest {
+
+  private static final String MODEL_PATH = "tensorflow/lite/java/src/testdata/add.bin";
+
+  private static final ByteBuffer MODEL_BUFFER = TestUtils.getTestFileAsBuffer(MODEL_PATH);
+
+  @Test
+  public void testReuseInterpreterOfBucket() {
+    BucketingInterpreter.Options options =
+        new BucketingInterpreter.Options().setBucketSizes(4, 8).setMaxCachedShapes(2);
+    try (BucketingInterpreter interpreter = new BucketingInterpreter(MODEL_BUFFER, options)) {
+      float[][][][] output = run(interpreter, 5);
+      assertThat(output[1][4][7][2]).isWithin(0.1f).of(3.69f);
+      run(interpreter, 6);
+      run(interpreter, 8);
+      assertThat(interpreter.getMissCount()).isEqualTo(1L);
+      assertThat(interpreter.getHitCount()).isEqualTo(2L);
+      assertThat(interpreter.getCachedShapeCount()).isEqualTo(1);
+
+      run(interpreter, 3);
+      output = run(interpreter, 9);
+      assertThat(output[1][8][7][2]).isWithin(0.1f).of(3.69f);
+      assertThat(interpreter.getMissCount()).isEqualTo(3L);
+      assertThat(interpreter.getEvictionCount()).isEqualTo(1L);
+      assertThat(interpreter.getCachedShapeCount()).isEqualTo(2);
+      assertThat(interpreter.getHitRate()).isWithin(0.01).of(0.4);
+    }
+  }
+
+  @Test
+  public void testPaddedOutputBuffer() {
+    BucketingInterpreter.Options options = new BucketingInterpreter.Options().setBucketSizes(8);
+    try (BucketingInterpreter interpreter = new BucketingInterpreter(MODEL_BUFFER, options)) {
+      float[][][][] input = new float[2][5][8][3];
+      input[0][0][0][0] = 1.23f;
+      FloatBuffer output = FloatBuffer.allocate(2 * 8 * 8 * 3);
+      interpreter.run(input, output);
+      assertThat(output.get(0)).isWithin(0.1f).of(3.69f);
+      assertThat(output.get(5 * 8 * 3)).isWithin(0.1f).of(0.0f);
+    }
+  }
+
+  @Test
+  public void testRejectBufferInputs() {
+    try (BucketingInterpreter interpreter = new BucketingInterpreter(MODEL_BUFFER, null)) {
+      interpreter.run(FloatBuffer.allocate(2 * 8 * 8 * 3), FloatBuffer.allocate(2 * 8 * 8 * 3));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessageThat().contains("arrays of a primitive type");
+    }
+  }
+
+  private static float[][][][] run(BucketingInterpreter interpreter, int length) {
+    float[][][][] input = new float[2][length][8][3];
+    input[1][length - 1][7][2] = 1.23f;
+    float[][][][] output = new float[2][length][8][3];
+    interpreter.run(input, output);
+    return output;
+  }
+}
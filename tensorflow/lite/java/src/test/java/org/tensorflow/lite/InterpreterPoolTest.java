@@ -0,0 +1,133 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.lite.InterpreterPool}. */
+@RunWith(JUnit4.class)
+public final class InterpreterPoolTest {
+
+  private static final String MODEL_PATH = "tensorflow/lite/java/src/testdata/add.bin";
+
+  private static final ByteBuffer MODEL_BUFFER = TestUtils.getTestFileAsBuffer(MODEL_PATH);
+
+  @Test
+  public void testRunConcurrently() throws Exception {
+    try (final InterpreterPool pool =
+        new InterpreterPool(new File(MODEL_PATH), 2, new Interpreter.Options())) {
+      assertThat(pool.size()).isEqualTo(2);
+      List<Thread> threads = new ArrayList<>();
+      final List<Throwable> errors = new ArrayList<>();
+      for (int t = 0; t < 4; ++t) {
+        Thread thread =
+            new Thread() {
+              @Override
+              public void run() {
+                try {
+                  for (int i = 0; i < 10; ++i) {
+                    try (InterpreterPool.Lease lease = pool.acquire()) {
+                      float[][][][] output = new float[2][8][8][3];
+                      lease.interpreter().run(input(1.23f), output);
+                      assertThat(output[0][0][0][0]).isWithin(0.1f).of(3.69f);
+                    }
+                  }
+                } catch (Throwable e) {
+                  synchronized (errors) {
+                    errors.add(e);
+                  }
+                }
+              }
+            };
+        threads.add(thread);
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertThat(errors).isEmpty();
+      assertThat(pool.acquireCount()).isEqualTo(40L);
+      assertThat(pool.availableCount()).isEqualTo(2);
+      assertThat(pool.utilization()).isGreaterThan(0.0);
+    }
+  }
+
+  @Test
+  public void testAcquireTimeout() throws Exception {
+    try (InterpreterPool pool = new InterpreterPool(MODEL_BUFFER, 1, null)) {
+      InterpreterPool.Lease lease = pool.acquire(1, TimeUnit.SECONDS);
+      assertThat(lease).isNotNull();
+      assertThat(pool.availableCount()).isEqualTo(0);
+      assertThat(pool.acquire(10, TimeUnit.MILLISECONDS)).isNull();
+      assertThat(pool.timeoutCount()).isEqualTo(1L);
+      Interpreter interpreter = lease.interpreter();
+      lease.close();
+      try (InterpreterPool.Lease other = pool.acquire(1, TimeUnit.SECONDS)) {
+        assertThat(other.interpreter()).isSameInstanceAs(interpreter);
+      }
+      try {
+        lease.interpreter();
+        fail();
+      } catch (IllegalStateException e) {
+        // Expected failure.
+      }
+    }
+  }
+
+  @Test
+  public void testCloseWithActiveLease() throws Exception {
+    InterpreterPool pool = new InterpreterPool(MODEL_BUFFER, 2, null);
+    InterpreterPool.Lease lease = pool.acquire();
+    pool.close();
+    try {
+      pool.acquire();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageThat().contains("closed");
+    }
+    // The model is still used by the leased interpreter.
+    float[][][][] output = new float[2][8][8][3];
+    lease.interpreter().run(input(1.23f), output);
+    assertThat(output[0][0][0][0]).isWithin(0.1f).of(3.69f);
+    lease.close();
+  }
+
+  @Test
+  public void testInvalidSize() {
+    try {
+      new InterpreterPool(MODEL_BUFFER, 0, null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessageThat().contains("must be positive");
+    }
+  }
+
+  private static float[][][][] input(float value) {
+    float[][][][] input = new float[2][8][8][3];
+    input[0][0][0][0] = value;
+    return input;
+  }
+}
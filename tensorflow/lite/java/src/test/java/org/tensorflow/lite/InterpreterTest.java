@@ -19,12 +19,18 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -218,6 +224,233 @@ public final class InterpreterTest {
     assertThat(outputOneD).usingTolerance(0.1f).containsExactly(expected).inOrder();
   }
 
+  @Test
+  public void testPreparedInvocation() {
+    FloatBuffer input =
+        ByteBuffer.allocateDirect(2 * 8 * 8 * 3 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    FloatBuffer output =
+        ByteBuffer.allocateDirect(2 * 8 * 8 * 3 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    try (Interpreter interpreter = new Interpreter(MODEL_BUFFER);
+        Interpreter.PreparedInvocation invocation =
+            interpreter.prepareInvocation(new Buffer[] {input}, new Buffer[] {output})) {
+      input.put(0, 1.23f);
+      invocation.run();
+      assertThat(output.get(0)).isWithin(0.1f).of(3.69f);
+      input.put(0, 2.37f);
+      invocation.run();
+      assertThat(output.get(0)).isWithin(0.1f).of(7.11f);
+      assertThat(output.position()).isEqualTo(0);
+      assertThat(interpreter.getLastNativeInferenceDurationNanoseconds()).isGreaterThan(0L);
+    }
+  }
+
+  @Test
+  public void testPreparedInvocationTiming() {
+    final float[][][][] arrayInput = new float[2][8][8][3];
+    final float[][][][] arrayOutput = new float[2][8][8][3];
+    final FloatBuffer input =
+        ByteBuffer.allocateDirect(2 * 8 * 8 * 3 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    final FloatBuffer output =
+        ByteBuffer.allocateDirect(2 * 8 * 8 * 3 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    try (final Interpreter interpreter = new Interpreter(MODEL_BUFFER);
+        final Interpreter.PreparedInvocation invocation =
+            interpreter.prepareInvocation(new Buffer[] {input}, new Buffer[] {output})) {
+      long arrayNanos =
+          nanosPerRun(
+              new Runnable() {
+                @Override
+                public void run() {
+                  interpreter.run(arrayInput, arrayOutput);
+                }
+              });
+      long bufferNanos =
+          nanosPerRun(
+              new Runnable() {
+                @Override
+                public void run() {
+                  interpreter.run(input, output);
+                  output.rewind();
+                }
+              });
+      long preparedNanos =
+          nanosPerRun(
+              new Runnable() {
+                @Override
+                public void run() {
+                  invocation.run();
+                }
+              });
+      System.out.printf(
+          "run(arrays): %d ns, run(buffers): %d ns, PreparedInvocation.run(): %d ns%n",
+          arrayNanos, bufferNanos, preparedNanos);
+      assertThat(preparedNanos).isGreaterThan(0L);
+    }
+  }
+
+  private static long nanosPerRun(Runnable inference) {
+    final int warmups = 100;
+    final int iterations = 1000;
+    for (int i = 0; i < warmups; ++i) {
+      inference.run();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; ++i) {
+      inference.run();
+    }
+    return (System.nanoTime() - start) / iterations;
+  }
+
+  @Test
+  public void testPrepareInvocationWithInvalidBuffers() {
+    FloatBuffer directInput =
+        ByteBuffer.allocateDirect(2 * 8 * 8 * 3 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    try (Interpreter interpreter = new Interpreter(MODEL_BUFFER)) {
+      try {
+        interpreter.prepareInvocation(
+            new Buffer[] {FloatBuffer.allocate(2 * 8 * 8 * 3)}, new Buffer[] {null});
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertThat(e).hasMessageThat().contains("direct buffers");
+      }
+      try {
+        interpreter.prepareInvocation(
+            new Buffer[] {directInput}, new Buffer[] {ByteBuffer.allocateDirect(4)});
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertThat(e).hasMessageThat().contains("Cannot bind a buffer with 4 bytes");
+      }
+    }
+  }
+
+  @Test
+  public void testBindBuffers() {
+    ByteBuffer input = Interpreter.allocateAlignedBuffer(2 * 8 * 8 * 3 * 4);
+    ByteBuffer output = Interpreter.allocateAlignedBuffer(2 * 8 * 8 * 3 * 4);
+    assertThat(input.order()).isEqualTo(ByteOrder.nativeOrder());
+    try (Interpreter interpreter = new Interpreter(MODEL_BUFFER)) {
+      interpreter.bindInputBuffer(0, input);
+      interpreter.bindOutputBuffer(0, output);
+      input.putFloat(0, 1.23f);
+      interpreter.run(input, output);
+      assertThat(output.getFloat(0)).isWithin(0.1f).of(3.69f);
+
+      // Other buffers are still copied to and from the bound memory.
+      FloatBuffer copiedOutput = FloatBuffer.allocate(2 * 8 * 8 * 3);
+      input.putFloat(0, 2.37f);
+      interpreter.run(input, copiedOutput);
+      assertThat(copiedOutput.get(0)).isWithin(0.1f).of(7.11f);
+      assertThat(output.getFloat(0)).isWithin(0.1f).of(7.11f);
+    }
+  }
+
+  @Test
+  public void testBindInvalidBuffers() {
+    try (Interpreter interpreter = new Interpreter(MODEL_BUFFER)) {
+      try {
+        interpreter.bindInputBuffer(0, ByteBuffer.allocate(2 * 8 * 8 * 3 * 4));
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertThat(e).hasMessageThat().contains("Only direct buffers");
+      }
+      ByteBuffer unaligned = Interpreter.allocateAlignedBuffer(2 * 8 * 8 * 3 * 4 + 4);
+      unaligned.position(4);
+      try {
+        interpreter.bindInputBuffer(0, unaligned.slice());
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertThat(e).hasMessageThat().contains("aligned");
+      }
+      try {
+        interpreter.bindOutputBuffer(0, Interpreter.allocateAlignedBuffer(4));
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertThat(e).hasMessageThat().contains("Failed to bind");
+      }
+    }
+  }
+
+  @Test
+  public void testRunBatch() {
+    List<float[][][][]> inputs = new ArrayList<>();
+    List<float[][][][]> outputs = new ArrayList<>();
+    for (int i = 0; i < 3; ++i) {
+      float[][][][] input = new float[1][8][8][3];
+      input[0][0][0][0] = i + 1.0f;
+      inputs.add(input);
+      outputs.add(new float[1][8][8][3]);
+    }
+    try (Interpreter interpreter = new Interpreter(MODEL_BUFFER)) {
+      interpreter.runBatch(inputs, outputs);
+      assertThat(interpreter.getInputTensor(0).shape()).isEqualTo(new int[] {3, 8, 8, 3});
+      assertThat(outputs.get(0)[0][0][0][0]).isWithin(0.1f).of(3.0f);
+      assertThat(outputs.get(1)[0][0][0][0]).isWithin(0.1f).of(6.0f);
+      assertThat(outputs.get(2)[0][0][0][0]).isWithin(0.1f).of(9.0f);
+
+      FloatBuffer input = FloatBuffer.allocate(8 * 8 * 3);
+      input.put(0, 2.0f);
+      FloatBuffer output = FloatBuffer.allocate(8 * 8 * 3);
+      interpreter.runBatch(Arrays.asList(input), Arrays.asList(output));
+      assertThat(interpreter.getInputTensor(0).shape()).isEqualTo(new int[] {1, 8, 8, 3});
+      assertThat(output.get(0)).isWithin(0.1f).of(6.0f);
+      assertThat(input.position()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testRunBatchWithInvalidSamples() {
+    try (Interpreter interpreter = new Interpreter(MODEL_BUFFER)) {
+      try {
+        interpreter.runBatch(
+            Arrays.asList(new float[2][8][8][3]), Arrays.asList(new float[2][8][8][3]));
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertThat(e).hasMessageThat().contains("first dimension of 1");
+      }
+      try {
+        interpreter.runBatch(
+            Arrays.asList(FloatBuffer.allocate(3)), Arrays.asList(FloatBuffer.allocate(3)));
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertThat(e).hasMessageThat().contains("Cannot copy to a sample");
+      }
+    }
+  }
+
+  @Test
+  public void testOperatorStats() {
+    float[][][][] input = new float[2][8][8][3];
+    float[][][][] output = new float[2][8][8][3];
+    Interpreter.Options options = new Interpreter.Options().setOperatorProfiling(true);
+    try (Interpreter interpreter = new Interpreter(MODEL_BUFFER, options)) {
+      interpreter.run(input, output);
+      interpreter.run(input, output);
+      List<OperatorStats> stats = interpreter.getOperatorStats();
+      assertThat(stats).isNotEmpty();
+      for (OperatorStats op : stats) {
+        assertThat(op.getOpType()).isEqualTo("ADD");
+        assertThat(op.isDelegated()).isFalse();
+        assertThat(op.getNodeName()).isNotEmpty();
+        assertThat(op.getInvocationCount()).isEqualTo(2L);
+        assertThat(op.getMaxNanoseconds()).isAtLeast(op.getAverageNanoseconds());
+      }
+      assertThat(stats.get(0).getTotalNanoseconds())
+          .isAtLeast(stats.get(stats.size() - 1).getTotalNanoseconds());
+
+      interpreter.resetOperatorStats();
+      assertThat(interpreter.getOperatorStats()).isEmpty();
+    }
+  }
+
+  @Test
+  public void testOperatorStatsWithoutProfiling() {
+    try (Interpreter interpreter = new Interpreter(MODEL_BUFFER)) {
+      interpreter.getOperatorStats();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageThat().contains("operator profiling has not been enabled");
+    }
+  }
+
   @Test
   public void testRunWithScalarInput() {
     FloatBuffer parsedOutput = FloatBuffer.allocate(1);
@@ -676,6 +909,61 @@ public final class InterpreterTest {
     }
   }
 
+  @Test
+  public void testRunAsync() throws Exception {
+    float[] oneD = {1.23f, 6.54f, 7.81f};
+    float[][] twoD = {oneD, oneD, oneD, oneD, oneD, oneD, oneD, oneD};
+    float[][][] threeD = {twoD, twoD, twoD, twoD, twoD, twoD, twoD, twoD};
+    float[][][][] fourD = {threeD, threeD};
+    float[][][][] parsedOutputs = new float[2][8][8][3];
+    Map<Integer, Object> outputs = new HashMap<>();
+    outputs.put(0, parsedOutputs);
+    try (Interpreter interpreter =
+        new Interpreter(MODEL_BUFFER, new Interpreter.Options().setCancellable(true))) {
+      Future<Interpreter.RunStatus> status =
+          interpreter.runAsync(new Object[] {fourD}, outputs, 10, TimeUnit.SECONDS);
+      assertThat(status.get()).isEqualTo(Interpreter.RunStatus.COMPLETED);
+      float[] outputOneD = parsedOutputs[0][0][0];
+      float[] expected = {3.69f, 19.62f, 23.43f};
+      assertThat(outputOneD).usingTolerance(0.1f).containsExactly(expected).inOrder();
+
+      // An expired deadline interrupts the inference, if it has not already completed.
+      status = interpreter.runAsync(new Object[] {fourD}, outputs, 0, TimeUnit.NANOSECONDS);
+      assertThat(status.get())
+          .isAnyOf(Interpreter.RunStatus.TIMED_OUT, Interpreter.RunStatus.COMPLETED);
+
+      // A cancelled inference only completes its future once it no longer uses its outputs.
+      status = interpreter.runAsync(new Object[] {fourD}, outputs, 10, TimeUnit.SECONDS);
+      status.cancel(false);
+      if (!status.isCancelled()) {
+        // The inference had started: its outcome is reported once it has returned.
+        assertThat(status.get())
+            .isAnyOf(Interpreter.RunStatus.CANCELLED, Interpreter.RunStatus.COMPLETED);
+      }
+      assertThat(status.isDone()).isTrue();
+
+      // The cancellation flag is cleared for the next inferences.
+      interpreter.run(fourD, parsedOutputs);
+      status = interpreter.runAsync(new Object[] {fourD}, outputs, 10, TimeUnit.SECONDS);
+      assertThat(status.get()).isEqualTo(Interpreter.RunStatus.COMPLETED);
+    }
+  }
+
+  @Test
+  public void testRunAsyncOnNoncancellableInterpreter() throws Exception {
+    try (Interpreter interpreter = new Interpreter(MODEL_BUFFER)) {
+      Map<Integer, Object> outputs = new HashMap<>();
+      outputs.put(0, new float[2][8][8][3]);
+      interpreter.runAsync(
+          new Object[] {new float[2][8][8][3]}, outputs, 10, TimeUnit.SECONDS);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e)
+          .hasMessageThat()
+          .contains("Cannot run asynchronously. Have you called Interpreter.Options.setCancellable?");
+    }
+  }
+
   private static FloatBuffer fill(FloatBuffer buffer, float value) {
     while (buffer.hasRemaining()) {
       buffer.put(value);
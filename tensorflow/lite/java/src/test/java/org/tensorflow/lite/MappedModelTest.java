@@ -0,0 +1,107 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.lite.MappedModel}. */
+@RunWith(JUnit4.class)
+public final class MappedModelTest {
+
+  private static final String MODEL_PATH = "tensorflow/lite/java/src/testdata/add.bin";
+
+  @Test
+  public void testMapFile() throws Exception {
+    File modelFile = new File(MODEL_PATH);
+    try (MappedModel model = MappedModel.map(modelFile)) {
+      assertThat(model.getMappedBytes()).isEqualTo(modelFile.length());
+      assertThat(model.getResidentBytes()).isAtMost(modelFile.length());
+      try (Interpreter interpreter1 = model.newInterpreter(null);
+          Interpreter interpreter2 = model.newInterpreter(new Interpreter.Options())) {
+        assertAddsInputs(interpreter1);
+        assertAddsInputs(interpreter2);
+      }
+    }
+  }
+
+  @Test
+  public void testMapFileRegion() throws Exception {
+    ByteBuffer modelBuffer = TestUtils.getTestFileAsBuffer(MODEL_PATH);
+    byte[] modelBytes = new byte[modelBuffer.remaining()];
+    modelBuffer.get(modelBytes);
+    File archive = File.createTempFile("model", ".bin");
+    archive.deleteOnExit();
+    try (FileOutputStream stream = new FileOutputStream(archive)) {
+      stream.write(new byte[4096]);
+      stream.write(modelBytes);
+      stream.write(new byte[100]);
+    }
+    try (MappedModel model = MappedModel.map(archive, 4096, modelBytes.length);
+        Interpreter interpreter = model.newInterpreter(null)) {
+      assertThat(model.getMappedBytes()).isEqualTo((long) modelBytes.length);
+      assertAddsInputs(interpreter);
+    }
+  }
+
+  @Test
+  public void testShareMapping() throws Exception {
+    MappedModel model1 = MappedModel.map(new File(MODEL_PATH));
+    MappedModel model2 = MappedModel.map(new File(MODEL_PATH));
+    assertThat(model2.getBuffer()).isSameInstanceAs(model1.getBuffer());
+    Interpreter interpreter = model1.newInterpreter(null);
+    model1.close();
+    model2.close();
+    // The interpreter holds a reference to the model.
+    assertAddsInputs(interpreter);
+    interpreter.close();
+    try {
+      model1.newInterpreter(null);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageThat().contains("The MappedModel has already been closed.");
+    }
+    try (MappedModel model3 = MappedModel.map(new File(MODEL_PATH))) {
+      assertThat(model3.getBuffer()).isNotSameInstanceAs(model1.getBuffer());
+    }
+  }
+
+  @Test
+  public void testMapInvalidRegion() throws Exception {
+    File modelFile = new File(MODEL_PATH);
+    try {
+      MappedModel.map(modelFile, 16, modelFile.length());
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessageThat().contains("beyond the end of");
+    }
+  }
+
+  private static void assertAddsInputs(Interpreter interpreter) {
+    float[][][][] input = new float[2][8][8][3];
+    input[0][0][0][0] = 1.23f;
+    float[][][][] output = new float[2][8][8][3];
+    interpreter.run(input, output);
+    assertThat(output[0][0][0][0]).isWithin(0.1f).of(3.69f);
+  }
+}
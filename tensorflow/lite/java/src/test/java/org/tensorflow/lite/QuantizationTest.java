@@ -0,0 +1,137 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.lite.Quantization}. */
+@RunWith(JUnit4.class)
+public final class QuantizationTest {
+
+  private static final String MODEL_PATH = "tensorflow/lite/java/src/testdata/add.bin";
+
+  // Its output tensor has a scale of 0.25 and a zero point of 127.
+  private static final String QUANTIZED_MODEL_PATH =
+      "tensorflow/lite/java/src/testdata/quantized.bin";
+
+  private NativeInterpreterWrapper wrapper;
+  private Tensor tensor;
+
+  @Before
+  public void setUp() {
+    wrapper = new NativeInterpreterWrapper(QUANTIZED_MODEL_PATH);
+    tensor = wrapper.getOutputTensor(0);
+  }
+
+  @After
+  public void tearDown() {
+    wrapper.close();
+  }
+
+  @Test
+  public void testQuantize() {
+    float[] values = {0.0f, 1.0f, -1.0f, 0.1f, 100.0f, -100.0f};
+    ByteBuffer direct = ByteBuffer.allocateDirect(values.length);
+    Quantization.quantize(values, tensor, direct);
+    assertThat(direct.position()).isEqualTo(values.length);
+    byte[] expected = {127, (byte) 131, 123, 127, (byte) 255, 0};
+    for (int i = 0; i < expected.length; ++i) {
+      assertThat(direct.get(i)).isEqualTo(expected[i]);
+    }
+
+    ByteBuffer heap = ByteBuffer.allocate(values.length + 1);
+    heap.put((byte) 1);
+    Quantization.quantize(FloatBuffer.wrap(values), tensor, heap);
+    assertThat(heap.position()).isEqualTo(values.length + 1);
+    assertThat(heap.get(0)).isEqualTo((byte) 1);
+    for (int i = 0; i < expected.length; ++i) {
+      assertThat(heap.get(i + 1)).isEqualTo(expected[i]);
+    }
+  }
+
+  @Test
+  public void testQuantizeSaturatesOutOfRangeValues() {
+    float[] values = {
+      1e10f, Float.MAX_VALUE, Float.POSITIVE_INFINITY, -1e10f, -Float.MAX_VALUE,
+      Float.NEGATIVE_INFINITY
+    };
+    ByteBuffer buffer = ByteBuffer.allocate(values.length);
+    Quantization.quantize(values, tensor, buffer);
+    byte[] expected = {(byte) 255, (byte) 255, (byte) 255, 0, 0, 0};
+    assertThat(buffer.array()).isEqualTo(expected);
+  }
+
+  @Test
+  public void testDequantize() {
+    byte[] quantized = {127, (byte) 131, 123, (byte) 255, 0};
+    float[] expected = {0.0f, 1.0f, -1.0f, 32.0f, -31.75f};
+
+    float[] values = new float[quantized.length];
+    ByteBuffer direct = ByteBuffer.allocateDirect(quantized.length);
+    direct.put(quantized).rewind();
+    Quantization.dequantize(direct, tensor, values);
+    assertThat(values).usingTolerance(1e-6f).containsExactly(expected).inOrder();
+    assertThat(direct.hasRemaining()).isFalse();
+
+    FloatBuffer floats = FloatBuffer.allocate(quantized.length);
+    Quantization.dequantize(ByteBuffer.wrap(quantized), tensor, floats);
+    assertThat(floats.array()).usingTolerance(1e-6f).containsExactly(expected).inOrder();
+  }
+
+  @Test
+  public void testQuantizeRgbPixels() {
+    int[] pixels = {0xFF000000, 0x80FF7F01};
+    ByteBuffer buffer = ByteBuffer.allocateDirect(3 * pixels.length);
+    // Normalizes the channels to [-1, 1].
+    Quantization.quantizeRgbPixels(pixels, 127.5f, 127.5f, tensor, buffer);
+    assertThat(buffer.position()).isEqualTo(6);
+    byte[] expected = {123, 123, 123, (byte) 131, 127, 123};
+    for (int i = 0; i < expected.length; ++i) {
+      assertThat(buffer.get(i)).isEqualTo(expected[i]);
+    }
+  }
+
+  @Test
+  public void testQuantizeToSmallerBuffer() {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(2);
+    try {
+      Quantization.quantize(new float[3], tensor, buffer);
+      fail();
+    } catch (BufferOverflowException e) {
+      assertThat(buffer.position()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testQuantizeFloatTensor() {
+    try (Interpreter interpreter = new Interpreter(TestUtils.getTestFileAsBuffer(MODEL_PATH))) {
+      Quantization.quantize(new float[1], interpreter.getInputTensor(0), ByteBuffer.allocate(1));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessageThat().contains("only UINT8 and INT8 tensors are supported");
+    }
+  }
+}
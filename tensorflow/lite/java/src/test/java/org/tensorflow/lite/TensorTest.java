@@ -24,6 +24,7 @@ import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.After;
@@ -225,6 +226,33 @@ public final class TensorTest {
     }
   }
 
+  @Test
+  public void testCopyToRaggedArray() {
+    float[][][][] parsedOutputs = new float[2][8][8][3];
+    parsedOutputs[1][7][7] = new float[2];
+    try {
+      tensor.copyTo(parsedOutputs);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessageThat().contains("Mismatched lengths (3 and 2) in dimension 3");
+    }
+  }
+
+  @Test
+  public void testSetToIfShapeMatches() {
+    float[][][][] input = new float[2][8][8][3];
+    input[1][7][7][2] = 2.0f;
+    assertThat(tensor.setToIfShapeMatches(input)).isTrue();
+    float[][][][] output = (float[][][][]) tensor.copyTo(new float[2][8][8][3]);
+    assertThat(output[1][7][7][2]).isEqualTo(2.0f);
+
+    assertThat(tensor.setToIfShapeMatches(new float[2][8][8][4])).isFalse();
+    assertThat(tensor.setToIfShapeMatches(new float[2][8][8])).isFalse();
+    float[][][][] ragged = new float[2][8][8][3];
+    ragged[1][7] = new float[7][3];
+    assertThat(tensor.setToIfShapeMatches(ragged)).isFalse();
+  }
+
   @Test
   public void testSetTo() {
     float[][][][] input = new float[2][8][8][3];
@@ -532,6 +560,46 @@ public final class TensorTest {
     assertThat(zeroPoint).isEqualTo(127);
   }
 
+  @Test
+  public void testArrayTransferTiming() {
+    float[][][][] image = new float[1][224][224][3];
+    image[0][223][223][2] = 1.5f;
+    timeArrayTransfers(new int[] {1, 224, 224, 3}, image, new float[1][224][224][3]);
+    for (int n : new int[] {1, 8, 32}) {
+      float[][] logits = new float[n][1001];
+      logits[n - 1][1000] = 1.5f;
+      timeArrayTransfers(new int[] {n, 1001}, logits, new float[n][1001]);
+    }
+  }
+
+  // Reports the mean time to copy src to an input tensor of the given shape and back to dst.
+  private static void timeArrayTransfers(int[] shape, Object src, Object dst) {
+    final int warmups = 10;
+    final int iterations = 100;
+    try (NativeInterpreterWrapper wrapper = new NativeInterpreterWrapper(MODEL_PATH)) {
+      wrapper.resizeInput(0, shape);
+      wrapper.allocateTensors();
+      Tensor input = wrapper.getInputTensor(0);
+      for (int i = 0; i < warmups; ++i) {
+        input.setTo(src);
+        input.copyTo(dst);
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < iterations; ++i) {
+        input.setTo(src);
+      }
+      long setNanos = (System.nanoTime() - start) / iterations;
+      start = System.nanoTime();
+      for (int i = 0; i < iterations; ++i) {
+        input.copyTo(dst);
+      }
+      long copyNanos = (System.nanoTime() - start) / iterations;
+      System.out.printf(
+          "%s: setTo %d ns, copyTo %d ns%n", Arrays.toString(shape), setNanos, copyNanos);
+    }
+    assertThat(Arrays.deepEquals((Object[]) dst, (Object[]) src)).isTrue();
+  }
+
   @Test
   public void testByteArrayStringTensorInput() {
     NativeInterpreterWrapper wrapper = new NativeInterpreterWrapper(STRING_MODEL_PATH);